@@ -28,6 +28,7 @@ import com.velocitypowered.api.plugin.Plugin;
 import com.velocitypowered.api.plugin.annotation.DataDirectory;
 import com.velocitypowered.api.proxy.ProxyServer;
 import org.slf4j.Logger;
+import xyz.yawek.barricade.check.CheckPipeline;
 import xyz.yawek.barricade.command.CommandHandler;
 import xyz.yawek.barricade.config.Config;
 import xyz.yawek.barricade.config.ConfigProvider;
@@ -62,10 +63,18 @@ public class Barricade {
     private ConnectingUserManager connectingUserManager;
     private AddressManager addressManager;
     private StoredUserManager storedUserManager;
+    private ListSnapshotManager listSnapshotManager;
+    private AddressRangeManager addressRangeManager;
+    private ListTransferManager listTransferManager;
+    private RetentionManager retentionManager;
     private OnlineUserManager onlineUserManager;
+    private ClusterManager clusterManager;
     private AccountLimitManager accountLimitManager;
     private RateLimitManager rateLimitManager;
+    private AddressRateLimitManager addressRateLimitManager;
+    private AttackModeManager attackModeManager;
     private ServerQueueManager serverQueueManager;
+    private CheckPipeline checkPipeline;
 
     @Inject
     public Barricade(ProxyServer server, Logger logger, @DataDirectory Path dataDirectory) {
@@ -83,13 +92,21 @@ public class Barricade {
         this.config = new Config(this.configProvider);
         this.dataProvider = new DataProvider(this);
         this.geoDataProvider = new GeoDataProvider(this);
+        this.listSnapshotManager = new ListSnapshotManager(this);
+        this.addressRangeManager = new AddressRangeManager(this);
+        this.listTransferManager = new ListTransferManager(this);
+        this.retentionManager = new RetentionManager(this);
         this.addressManager = new AddressManager(this);
         this.connectingUserManager = new ConnectingUserManager(this);
         this.storedUserManager = new StoredUserManager(this);
         this.onlineUserManager = new OnlineUserManager(this);
-        this.accountLimitManager = new AccountLimitManager();
-        this.rateLimitManager = new RateLimitManager();
+        this.clusterManager = new ClusterManager(this);
+        this.accountLimitManager = new AccountLimitManager(this);
+        this.rateLimitManager = new RateLimitManager(this);
+        this.addressRateLimitManager = new AddressRateLimitManager(this);
+        this.attackModeManager = new AttackModeManager(this);
         this.serverQueueManager = new ServerQueueManager(this);
+        this.checkPipeline = new CheckPipeline(this);
 
         EventManager eventManager = server.getEventManager();
         eventManager.register(this, new PreLoginListener(this));
@@ -111,13 +128,23 @@ public class Barricade {
     @SuppressWarnings("unused")
     @Subscribe
     public void onShutdown(ProxyShutdownEvent e) {
+        retentionManager.stop();
+        clusterManager.shutdown();
         dataProvider.shutdown();
     }
 
     public void reload() {
         configProvider.loadConfig();
+        clusterManager.shutdown();
         dataProvider.shutdown();
         dataProvider = new DataProvider(barricade);
+        clusterManager = new ClusterManager(this);
+        accountLimitManager.publish();
+        addressManager.invalidateCache();
+        storedUserManager.invalidateCache();
+        rateLimitManager = new RateLimitManager(this);
+        addressRateLimitManager = new AddressRateLimitManager(this);
+        checkPipeline = new CheckPipeline(this);
         taskLoader.loadTasks();
     }
 
@@ -161,10 +188,30 @@ public class Barricade {
         return storedUserManager;
     }
 
+    public ListSnapshotManager getListSnapshotManager() {
+        return listSnapshotManager;
+    }
+
+    public AddressRangeManager getAddressRangeManager() {
+        return addressRangeManager;
+    }
+
+    public ListTransferManager getListTransferManager() {
+        return listTransferManager;
+    }
+
+    public RetentionManager getRetentionManager() {
+        return retentionManager;
+    }
+
     public OnlineUserManager getOnlineUserManager() {
         return onlineUserManager;
     }
 
+    public ClusterManager getClusterManager() {
+        return clusterManager;
+    }
+
     public AccountLimitManager getAccountLimitManager() {
         return accountLimitManager;
     }
@@ -173,8 +220,20 @@ public class Barricade {
         return rateLimitManager;
     }
 
+    public AddressRateLimitManager getAddressRateLimitManager() {
+        return addressRateLimitManager;
+    }
+
+    public AttackModeManager getAttackModeManager() {
+        return attackModeManager;
+    }
+
     public ServerQueueManager getServerQueueManager() {
         return serverQueueManager;
     }
 
+    public CheckPipeline getCheckPipeline() {
+        return checkPipeline;
+    }
+
 }
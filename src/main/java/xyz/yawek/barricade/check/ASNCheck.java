@@ -19,23 +19,52 @@
 package xyz.yawek.barricade.check;
 
 import net.kyori.adventure.text.Component;
+import org.jetbrains.annotations.Nullable;
 import xyz.yawek.barricade.Barricade;
+import xyz.yawek.barricade.data.geo.CompiledNetworks;
+import xyz.yawek.barricade.data.geo.GeoData;
+import xyz.yawek.barricade.data.geo.IntervalTable;
 import xyz.yawek.barricade.user.ConnectingUser;
+import xyz.yawek.barricade.util.IntHashSet;
+import xyz.yawek.barricade.util.LogUtils;
 
+import java.util.List;
 import java.util.Optional;
 
 public class ASNCheck extends AbstractCheck {
 
+    private final IntHashSet blockedAsns;
+    private final @Nullable CompiledNetworks blockedNetworks;
+
     public ASNCheck(Barricade barricade) {
         super(barricade, barricade.getConfig().asnBlockPriority());
+
+        List<String> asnBlockList = barricade.getConfig().asnBlockList();
+        this.blockedAsns = new IntHashSet(asnBlockList.size());
+        for (String asnCode : asnBlockList) {
+            String number = asnCode.regionMatches(true, 0, "AS", 0, 2)
+                    ? asnCode.substring(2) : asnCode;
+            try {
+                blockedAsns.add(Integer.parseUnsignedInt(number.trim()));
+            } catch (NumberFormatException e) {
+                LogUtils.error("ASN '{}' is not valid and will be ignored.", asnCode);
+            }
+        }
+        this.blockedNetworks = blockedAsns.size() == 0 ? null
+                : new CompiledNetworks(barricade, "blocked ASNs",
+                geoDataProvider -> geoDataProvider.compileAsnNetworks(blockedAsns::contains));
     }
 
     @Override
     public Optional<Component> check(ConnectingUser connectingUser) {
-        Optional<String> asnCodeOptional = barricade.getGeoDataProvider()
-                        .getAsnCode(connectingUser.getInetAddress());
-        if (asnCodeOptional.isPresent()
-                && barricade.getConfig().asnBlockList().contains(asnCodeOptional.get())) {
+        if (blockedNetworks == null) return Optional.empty();
+        IntervalTable blockedTable = blockedNetworks.get();
+        if (blockedTable != null) {
+            return blockedTable.contains(connectingUser.getAddressKey())
+                    ? Optional.of(barricade.getConfig().asnBlocked()) : Optional.empty();
+        }
+        GeoData geoData = connectingUser.getGeoData(barricade.getGeoDataProvider());
+        if (geoData.isAsnKnown() && blockedAsns.contains(geoData.getAsn())) {
             return Optional.of(barricade.getConfig().asnBlocked());
         }
         return Optional.empty();
@@ -35,6 +35,10 @@ public abstract class AbstractCheck implements Comparable<AbstractCheck> {
         this.priority = priority;
     }
 
+    public int getPriority() {
+        return priority;
+    }
+
     public abstract Optional<Component> check(ConnectingUser connectingUser);
 
     @Override
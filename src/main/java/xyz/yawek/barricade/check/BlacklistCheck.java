@@ -32,8 +32,11 @@ public class BlacklistCheck extends AbstractCheck {
 
     @Override
     public Optional<Component> check(ConnectingUser connectingUser) {
-        if (!connectingUser.isBlacklisted()) return Optional.empty();
-        return Optional.of(barricade.getConfig().blacklisted());
+        if (connectingUser.isBlacklisted() || barricade.getAddressRangeManager()
+                .isBlacklisted(connectingUser.getInetAddress())) {
+            return Optional.of(barricade.getConfig().blacklisted());
+        }
+        return Optional.empty();
     }
 
 }
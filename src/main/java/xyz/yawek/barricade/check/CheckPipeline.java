@@ -0,0 +1,138 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.check;
+
+import net.kyori.adventure.text.Component;
+import xyz.yawek.barricade.Barricade;
+import xyz.yawek.barricade.user.ConnectingUser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs checks of connecting players, higher priority first.
+ * Checks with equal priority are reordered by their measured latency and
+ * rejection rate, so cheap checks which often deny players run earlier.
+ */
+public class CheckPipeline {
+
+    private static final int REORDER_INTERVAL = 1024;
+    private static final int MIN_SAMPLES = 100;
+    private static final double SMOOTHING = 0.05;
+
+    private final AtomicLong decisions = new AtomicLong();
+    private volatile CheckEntry[] order;
+
+    public CheckPipeline(Barricade barricade) {
+        List<AbstractCheck> checks = new ArrayList<>();
+        checks.add(new AddressRateLimitCheck(barricade));
+        checks.add(new RateLimitCheck(barricade));
+        checks.add(new BlacklistCheck(barricade));
+        checks.add(new AccountLimitCheck(barricade));
+        checks.add(new NicknameCheck(barricade));
+        checks.add(new GeoCheck(barricade));
+        checks.add(new ASNCheck(barricade));
+        this.order = checks.stream()
+                .sorted()
+                .map(CheckEntry::new)
+                .toArray(CheckEntry[]::new);
+    }
+
+    /**
+     * Runs checks until any of them denies the player.
+     *
+     * @param connectingUser ConnectingUser instance
+     * @return message of the check which denied the player, empty if all passed
+     */
+    public Optional<Component> run(ConnectingUser connectingUser) {
+        Optional<Component> result = Optional.empty();
+        for (CheckEntry entry : order) {
+            long start = System.nanoTime();
+            result = entry.check.check(connectingUser);
+            entry.record(System.nanoTime() - start, result.isPresent());
+            if (result.isPresent()) break;
+        }
+        if (decisions.incrementAndGet() % REORDER_INTERVAL == 0) reorder();
+        return result;
+    }
+
+    /**
+     * Sorts checks by priority, then checks with equal priority by the expected
+     * time spent per denial. Checks without enough samples run first to get them.
+     */
+    public synchronized void reorder() {
+        CheckEntry[] newOrder = order.clone();
+        Arrays.sort(newOrder, Comparator.<CheckEntry, AbstractCheck>comparing(entry -> entry.check)
+                .thenComparingDouble(CheckEntry::getRank));
+        order = newOrder;
+    }
+
+    public List<CheckEntry> getOrder() {
+        return List.of(order);
+    }
+
+    public static class CheckEntry {
+
+        private final AbstractCheck check;
+        private long samples;
+        private double latency;
+        private double rejectionRate;
+
+        private CheckEntry(AbstractCheck check) {
+            this.check = check;
+        }
+
+        private synchronized void record(long nanos, boolean rejected) {
+            if (samples++ == 0) {
+                latency = nanos;
+                rejectionRate = rejected ? 1 : 0;
+                return;
+            }
+            latency += (nanos - latency) * SMOOTHING;
+            rejectionRate += ((rejected ? 1 : 0) - rejectionRate) * SMOOTHING;
+        }
+
+        private synchronized double getRank() {
+            if (samples < MIN_SAMPLES) return 0;
+            return latency / Math.max(rejectionRate, 1e-6);
+        }
+
+        public int getPriority() {
+            return check.getPriority();
+        }
+
+        public String getName() {
+            return check.getClass().getSimpleName().replaceFirst("Check$", "");
+        }
+
+        public synchronized double getLatency() {
+            return latency;
+        }
+
+        public synchronized double getRejectionRate() {
+            return rejectionRate;
+        }
+
+    }
+
+}
@@ -19,26 +19,54 @@
 package xyz.yawek.barricade.check;
 
 import net.kyori.adventure.text.Component;
+import org.jetbrains.annotations.Nullable;
 import xyz.yawek.barricade.Barricade;
+import xyz.yawek.barricade.data.geo.CompiledNetworks;
+import xyz.yawek.barricade.data.geo.GeoData;
+import xyz.yawek.barricade.data.geo.IntervalTable;
 import xyz.yawek.barricade.user.ConnectingUser;
+import xyz.yawek.barricade.util.LogUtils;
 
+import java.util.BitSet;
 import java.util.Optional;
 
 public class GeoCheck extends AbstractCheck {
 
+    private final BitSet countries = new BitSet(26 * 26);
+    private final boolean blacklistMode;
+    // Networks of the configured countries
+    private final @Nullable CompiledNetworks countryNetworks;
+
     public GeoCheck(Barricade barricade) {
         super(barricade, barricade.getConfig().geoipPriority());
+
+        for (String isoCode : barricade.getConfig().geoipCountries()) {
+            int countryIndex = GeoData.countryIndex(isoCode);
+            if (countryIndex == -1) {
+                LogUtils.error("Country code '{}' is not valid and will be ignored.", isoCode);
+                continue;
+            }
+            countries.set(countryIndex);
+        }
+        this.blacklistMode = barricade.getConfig().geoipBlacklist();
+        this.countryNetworks = blacklistMode && countries.isEmpty() ? null
+                : new CompiledNetworks(barricade, "configured countries",
+                geoDataProvider -> geoDataProvider.compileCountryNetworks(countries::get));
     }
 
     @Override
     public Optional<Component> check(ConnectingUser connectingUser) {
-        Optional<String> countryCode =
-                barricade.getGeoDataProvider().getCountryCode(connectingUser.getInetAddress());
-        boolean configContainsCountry = countryCode.isPresent()
-                        && barricade.getConfig().geoipCountries().contains(countryCode.get());
-        if (barricade.getConfig().geoipBlacklist() && configContainsCountry) {
-            return Optional.of(barricade.getConfig().countryBlocked());
-        } else if (!barricade.getConfig().geoipBlacklist() && !configContainsCountry) {
+        if (countryNetworks == null) return Optional.empty();
+        boolean configContainsCountry;
+        IntervalTable countryTable = countryNetworks.get();
+        if (countryTable != null) {
+            configContainsCountry = countryTable.contains(connectingUser.getAddressKey());
+        } else {
+            int countryIndex = connectingUser.getGeoData(barricade.getGeoDataProvider())
+                    .getCountryIndex();
+            configContainsCountry = countryIndex != -1 && countries.get(countryIndex);
+        }
+        if (blacklistMode == configContainsCountry) {
             return Optional.of(barricade.getConfig().countryBlocked());
         }
         return Optional.empty();
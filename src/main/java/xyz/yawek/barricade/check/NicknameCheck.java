@@ -22,23 +22,46 @@ import net.kyori.adventure.text.Component;
 import xyz.yawek.barricade.Barricade;
 import xyz.yawek.barricade.config.Config;
 import xyz.yawek.barricade.user.ConnectingUser;
+import xyz.yawek.barricade.util.LogUtils;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 public class NicknameCheck extends AbstractCheck {
 
+    private final NicknameMatcher matcher;
+
     public NicknameCheck(Barricade barricade) {
         super(barricade, barricade.getConfig().nicknameBlockPriority());
+
+        Config config = barricade.getConfig();
+        this.matcher = new NicknameMatcher(config.restrictedNicknames(),
+                config.restrictedNicknamePrefixes(), config.restrictedNicknameSuffixes(),
+                compilePatterns(config.restrictedNicknamePatterns()),
+                config.nicknameLeetNormalize());
     }
 
     @Override
     public Optional<Component> check(ConnectingUser connectingUser) {
-        Config config = barricade.getConfig();
-        return config.restrictedNicknames()
-                .stream()
-                .anyMatch(s -> connectingUser.getNickname().toLowerCase()
-                        .contains(s.toLowerCase()))
-                ? Optional.of(config.restrictedNickname()) : Optional.empty();
+        return matcher.matches(connectingUser.getNickname())
+                ? Optional.of(barricade.getConfig().restrictedNickname()) : Optional.empty();
+    }
+
+    private Pattern compilePatterns(List<String> patterns) {
+        List<String> validPatterns = new ArrayList<>();
+        for (String pattern : patterns) {
+            try {
+                Pattern.compile(pattern);
+                validPatterns.add("(?:" + pattern + ")");
+            } catch (PatternSyntaxException e) {
+                LogUtils.error("Nickname pattern '{}' is not valid and will be ignored.", pattern);
+            }
+        }
+        if (validPatterns.isEmpty()) return null;
+        return Pattern.compile(String.join("|", validPatterns), Pattern.CASE_INSENSITIVE);
     }
 
 }
@@ -0,0 +1,212 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.check;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.regex.Pattern;
+
+/**
+ * Matches nicknames against blocked fragments, prefixes, suffixes and regular
+ * expressions. Fragments are compiled into an Aho-Corasick automaton, so a nickname
+ * is matched in a single pass regardless of the number of blocked fragments.
+ */
+public class NicknameMatcher {
+
+    private final Automaton containing;
+    private final Automaton starting;
+    private final Automaton ending;
+    private final @Nullable Pattern matching;
+    private final boolean leetNormalize;
+
+    /**
+     * @param containing blocked fragments found anywhere in nicknames
+     * @param starting blocked prefixes of nicknames
+     * @param ending blocked suffixes of nicknames
+     * @param matching compiled regular expression matching whole blocked nicknames, may be null
+     * @param leetNormalize whether digits and symbols resembling letters are read as those letters
+     */
+    public NicknameMatcher(Collection<String> containing, Collection<String> starting,
+                           Collection<String> ending, @Nullable Pattern matching,
+                           boolean leetNormalize) {
+        this.leetNormalize = leetNormalize;
+        this.containing = new Automaton(normalize(containing, false), false);
+        this.starting = new Automaton(normalize(starting, false), true);
+        this.ending = new Automaton(normalize(ending, true), true);
+        this.matching = matching;
+    }
+
+    public boolean matches(String nickname) {
+        char[] normalized = new char[nickname.length()];
+        for (int i = 0; i < normalized.length; i++) {
+            normalized[i] = normalize(nickname.charAt(i));
+        }
+        if (containing.matchesAnywhere(normalized)
+                || starting.matchesPrefix(normalized, false)
+                || ending.matchesPrefix(normalized, true)) return true;
+        return matching != null && matching.matcher(nickname).matches();
+    }
+
+    private List<char[]> normalize(Collection<String> strings, boolean reversed) {
+        return strings.stream()
+                .filter(string -> !string.isEmpty())
+                .map(string -> {
+                    char[] chars = new char[string.length()];
+                    for (int i = 0; i < chars.length; i++) {
+                        chars[reversed ? chars.length - i - 1 : i] = normalize(string.charAt(i));
+                    }
+                    return chars;
+                })
+                .toList();
+    }
+
+    private char normalize(char c) {
+        c = Character.toLowerCase(c);
+        if (!leetNormalize) return c;
+        return switch (c) {
+            case '0' -> 'o';
+            case '1', '!' -> 'i';
+            case '3' -> 'e';
+            case '4', '@' -> 'a';
+            case '5', '$' -> 's';
+            case '7' -> 't';
+            case '8' -> 'b';
+            default -> c;
+        };
+    }
+
+    /**
+     * Aho-Corasick automaton with a dense transition table over the characters
+     * used by the patterns, other characters move it back to the root state.
+     */
+    private static class Automaton {
+
+        private final int[] asciiIndexes = new int[128];
+        private final Map<Character, Integer> otherIndexes = new HashMap<>();
+        private final int alphabetSize;
+        private final int[] transitions;
+        private final boolean[] accepting;
+        private final boolean empty;
+
+        private Automaton(List<char[]> patterns, boolean anchored) {
+            Arrays.fill(asciiIndexes, -1);
+            int size = 0;
+            int maxStates = 1;
+            for (char[] pattern : patterns) {
+                maxStates += pattern.length;
+                for (char c : pattern) {
+                    if (index(c) != -1) continue;
+                    if (c < asciiIndexes.length) {
+                        asciiIndexes[c] = size++;
+                    } else {
+                        otherIndexes.put(c, size++);
+                    }
+                }
+            }
+            this.alphabetSize = Math.max(1, size);
+            this.empty = patterns.isEmpty();
+
+            int[] trie = new int[maxStates * alphabetSize];
+            Arrays.fill(trie, -1);
+            boolean[] terminal = new boolean[maxStates];
+            int states = 1;
+            for (char[] pattern : patterns) {
+                int state = 0;
+                for (char c : pattern) {
+                    int cell = state * alphabetSize + index(c);
+                    if (trie[cell] == -1) trie[cell] = states++;
+                    state = trie[cell];
+                }
+                terminal[state] = true;
+            }
+            this.accepting = Arrays.copyOf(terminal, states);
+            if (anchored) {
+                this.transitions = Arrays.copyOf(trie, states * alphabetSize);
+                return;
+            }
+
+            // Breadth-first pass turning the trie into a complete automaton through failure links
+            int[] failure = new int[states];
+            this.transitions = Arrays.copyOf(trie, states * alphabetSize);
+            Queue<Integer> queue = new ArrayDeque<>();
+            for (int symbol = 0; symbol < alphabetSize; symbol++) {
+                int next = transitions[symbol];
+                if (next == -1) {
+                    transitions[symbol] = 0;
+                } else {
+                    failure[next] = 0;
+                    queue.add(next);
+                }
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                accepting[state] |= accepting[failure[state]];
+                for (int symbol = 0; symbol < alphabetSize; symbol++) {
+                    int cell = state * alphabetSize + symbol;
+                    int next = transitions[cell];
+                    int fallback = transitions[failure[state] * alphabetSize + symbol];
+                    if (next == -1) {
+                        transitions[cell] = fallback;
+                    } else {
+                        failure[next] = fallback;
+                        queue.add(next);
+                    }
+                }
+            }
+        }
+
+        private boolean matchesAnywhere(char[] text) {
+            if (empty) return false;
+            int state = 0;
+            for (char c : text) {
+                int symbol = index(c);
+                state = symbol == -1 ? 0 : transitions[state * alphabetSize + symbol];
+                if (accepting[state]) return true;
+            }
+            return false;
+        }
+
+        private boolean matchesPrefix(char[] text, boolean reversed) {
+            if (empty) return false;
+            int state = 0;
+            for (int i = 0; i < text.length; i++) {
+                int symbol = index(text[reversed ? text.length - i - 1 : i]);
+                if (symbol == -1) return false;
+                state = transitions[state * alphabetSize + symbol];
+                if (state == -1) return false;
+                if (accepting[state]) return true;
+            }
+            return false;
+        }
+
+        private int index(char c) {
+            if (c < asciiIndexes.length) return asciiIndexes[c];
+            return otherIndexes.getOrDefault(c, -1);
+        }
+
+    }
+
+}
@@ -32,10 +32,7 @@ public class RateLimitCheck extends AbstractCheck {
 
     @Override
     public Optional<Component> check(ConnectingUser connectingUser) {
-        int connectionsCounter = barricade.getRateLimitManager().getCounter();
-        int maxConnectionsPerSecond = barricade.getConfig().connectionsPerSecond();
-        if (maxConnectionsPerSecond != -1
-                && connectionsCounter > maxConnectionsPerSecond) {
+        if (barricade.getRateLimitManager().isLimited()) {
             return Optional.of(barricade.getConfig().rateLimit());
         }
         return Optional.empty();
@@ -21,9 +21,13 @@ package xyz.yawek.barricade.command;
 import com.velocitypowered.api.command.CommandSource;
 import com.velocitypowered.api.command.SimpleCommand;
 import xyz.yawek.barricade.Barricade;
+import xyz.yawek.barricade.command.subcommand.AttackCommand;
 import xyz.yawek.barricade.command.subcommand.BlacklistCommand;
+import xyz.yawek.barricade.command.subcommand.ExportCommand;
+import xyz.yawek.barricade.command.subcommand.ImportCommand;
 import xyz.yawek.barricade.command.subcommand.InfoCommand;
 import xyz.yawek.barricade.command.subcommand.ReloadCommand;
+import xyz.yawek.barricade.command.subcommand.StatsCommand;
 import xyz.yawek.barricade.command.subcommand.WhitelistCommand;
 
 import java.util.*;
@@ -41,6 +45,10 @@ public class CommandHandler implements SimpleCommand {
         commandMap.put("blacklist", new BlacklistCommand(this.barricade));
         commandMap.put("info", new InfoCommand(this.barricade));
         commandMap.put("reload", new ReloadCommand(this.barricade));
+        commandMap.put("stats", new StatsCommand(this.barricade));
+        commandMap.put("attack", new AttackCommand(this.barricade));
+        commandMap.put("import", new ImportCommand(this.barricade));
+        commandMap.put("export", new ExportCommand(this.barricade));
     }
 
     @Override
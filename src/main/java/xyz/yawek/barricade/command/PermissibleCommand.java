@@ -21,9 +21,14 @@ package xyz.yawek.barricade.command;
 import com.velocitypowered.api.command.CommandSource;
 import org.jetbrains.annotations.NotNull;
 import xyz.yawek.barricade.Barricade;
+import xyz.yawek.barricade.user.StoredAddress;
+import xyz.yawek.barricade.user.StoredUser;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
 
 public abstract class PermissibleCommand implements ExecutableCommand {
 
@@ -54,6 +59,29 @@ public abstract class PermissibleCommand implements ExecutableCommand {
         return permission;
     }
 
+    /**
+     * Reads the stored address and the stored user matching the text on the database executor,
+     * so the command does not block the proxy's threads. The source is told if the reading fails.
+     *
+     * @param source source of the command
+     * @param text address or nickname to read
+     * @param consumer consumer of the stored address and the stored user
+     */
+    protected void readStored(CommandSource source, String text,
+                              BiConsumer<Optional<StoredAddress>, Optional<StoredUser>> consumer) {
+        CompletableFuture<Optional<StoredAddress>> storedAddress =
+                barricade.getAddressManager().getOptionalAsync(text);
+        CompletableFuture<Optional<StoredUser>> storedUser =
+                barricade.getStoredUserManager().getOptionalAsync(text);
+        CompletableFuture.allOf(storedAddress, storedUser).whenComplete((ignored, throwable) -> {
+            if (throwable != null) {
+                source.sendMessage(barricade.getConfig().databaseUnavailable(text));
+                return;
+            }
+            consumer.accept(storedAddress.join(), storedUser.join());
+        });
+    }
+
     protected abstract void handle(CommandSource source, String[] args);
 
     protected abstract @NotNull List<String> handleSuggestion(CommandSource source, String[] args);
@@ -0,0 +1,69 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.command.subcommand;
+
+import com.velocitypowered.api.command.CommandSource;
+import org.jetbrains.annotations.NotNull;
+import xyz.yawek.barricade.Barricade;
+import xyz.yawek.barricade.command.PermissibleCommand;
+import xyz.yawek.barricade.config.Config;
+import xyz.yawek.barricade.manager.AttackModeManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+public class AttackCommand extends PermissibleCommand {
+
+    public AttackCommand(Barricade barricade) {
+        super(barricade, "barricade.attack");
+    }
+
+    @Override
+    protected void handle(CommandSource source, String[] args) {
+        Config config = barricade.getConfig();
+        AttackModeManager attackModeManager = barricade.getAttackModeManager();
+        if (args.length == 0) {
+            source.sendMessage(config.attackModeStatus(attackModeManager.isActive(),
+                    attackModeManager.getMode().name().toLowerCase(Locale.ROOT),
+                    attackModeManager.getConnectionRate(),
+                    attackModeManager.getRejectedPercent()));
+            return;
+        }
+        for (AttackModeManager.Mode mode : AttackModeManager.Mode.values()) {
+            if (mode.name().equalsIgnoreCase(args[0])) {
+                attackModeManager.setMode(mode);
+                source.sendMessage(config.attackModeSet(mode.name().toLowerCase(Locale.ROOT)));
+                return;
+            }
+        }
+        source.sendMessage(config.attackUsage());
+    }
+
+    @Override
+    protected @NotNull List<String> handleSuggestion(CommandSource source, String[] args) {
+        if (args.length == 1) {
+            return new ArrayList<>(Arrays.asList("on", "off", "auto"));
+        }
+        return Collections.emptyList();
+    }
+
+}
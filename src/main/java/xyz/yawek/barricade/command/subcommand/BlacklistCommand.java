@@ -29,7 +29,10 @@ import xyz.yawek.barricade.Barricade;
 import xyz.yawek.barricade.command.PermissibleCommand;
 import xyz.yawek.barricade.config.Config;
 import xyz.yawek.barricade.manager.AddressManager;
+import xyz.yawek.barricade.manager.AddressRangeManager;
 import xyz.yawek.barricade.manager.StoredUserManager;
+import xyz.yawek.barricade.manager.snapshot.AddressRange;
+import xyz.yawek.barricade.manager.snapshot.ListKey;
 import xyz.yawek.barricade.user.StoredAddress;
 import xyz.yawek.barricade.user.StoredUser;
 import xyz.yawek.barricade.util.AddressUtil;
@@ -45,91 +48,134 @@ public class BlacklistCommand extends PermissibleCommand {
     protected void handle(CommandSource source, String[] args) {
         Config config = barricade.getConfig();
         if (args.length >= 2) {
-            AddressManager addressManager = barricade.getAddressManager();
-            StoredUserManager storedUserManager = barricade.getStoredUserManager();
-            if (args[0].equalsIgnoreCase("add")) {
-                Optional<StoredAddress> storedAddressOptional =
-                        barricade.getAddressManager().getOptional(args[1]);
-                if (storedAddressOptional.isPresent()) {
-                    StoredAddress storedAddress = storedAddressOptional.get();
-                    if (storedAddress.isBlacklisted()) {
-                        source.sendMessage(config.addressAlreadyBlacklisted(args[1]));
-                        return;
-                    }
-                    storedAddress.setBlacklisted(true);
-                    addressManager.update(storedAddress);
-                    source.sendMessage(config.addressBlacklisted(args[1]));
-
-                    barricade.getServer().getAllPlayers().stream()
-                            .filter(player -> player.getRemoteAddress()
-                                    .getHostName().equals(storedAddress.getAddress()))
-                            .forEach(player -> player.disconnect(config.blacklisted()));
+            if (args[0].equalsIgnoreCase("add") && args[1].contains("/")) {
+                AddressRange range = AddressRange.parse(args[1]);
+                if (range == null) {
+                    source.sendMessage(config.wrongRange(args[1]));
                     return;
                 }
-
-                Optional<StoredUser> storedUserOptional =
-                        barricade.getStoredUserManager().getOptional(args[1]);
-                if (storedUserOptional.isPresent()) {
-                    StoredUser storedUser = storedUserOptional.get();
-                    if (storedUser.isBlacklisted()) {
-                        source.sendMessage(config.playerAlreadyBlacklisted(args[1]));
-                        return;
-                    }
-                    storedUser.setBlacklisted(true);
-                    storedUserManager.update(storedUser);
-                    source.sendMessage(config.playerBlacklisted(args[1]));
-
-                    barricade.getServer().getPlayer(storedUser.getNickname())
-                            .ifPresent(player -> player.disconnect(config.blacklisted()));
+                AddressRangeManager addressRangeManager = barricade.getAddressRangeManager();
+                if (addressRangeManager.isRangeBlacklisted(range)) {
+                    source.sendMessage(config.rangeAlreadyBlacklisted(range.toString()));
                     return;
                 }
+                addressRangeManager.addBlacklistedRange(range);
+                source.sendMessage(config.rangeBlacklisted(range.toString()));
 
-                if (AddressUtil.isValidIpAddress(args[1])) {
-                    addressManager.addBlacklistedAddress(args[1]);
-                    source.sendMessage(config.addressBlacklisted(args[1]));
-                    return;
-                } else if (NicknameUtil.isValid(args[1])) {
-                    storedUserManager.addBlacklistedUser(args[1]);
-                    source.sendMessage(config.playerBlacklisted(args[1]));
-                    return;
-                }
-                source.sendMessage(config.wrongAddressPlayer(args[1]));
+                barricade.getServer().getAllPlayers().stream()
+                        .filter(player -> range.contains(
+                                ListKey.ofAddress(player.getRemoteAddress().getAddress())))
+                        .forEach(player -> player.disconnect(config.blacklisted()));
                 return;
-            } else if (args[0].equalsIgnoreCase("remove")) {
-                Optional<StoredAddress> storedAddressOptional =
-                        barricade.getAddressManager().getOptional(args[1]);
-                if (storedAddressOptional.isPresent()) {
-                    StoredAddress storedAddress = storedAddressOptional.get();
-                    if (!storedAddress.isBlacklisted()) {
-                        source.sendMessage(config.addressNotBlacklisted(args[1]));
-                        return;
-                    }
-                    storedAddress.setBlacklisted(false);
-                    addressManager.update(storedAddress);
-                    source.sendMessage(config.addressBlacklistRemoved(args[1]));
+            } else if (args[0].equalsIgnoreCase("remove") && args[1].contains("/")) {
+                AddressRange range = AddressRange.parse(args[1]);
+                if (range == null) {
+                    source.sendMessage(config.wrongRange(args[1]));
                     return;
                 }
-
-                Optional<StoredUser> storedUserOptional =
-                        barricade.getStoredUserManager().getOptional(args[1]);
-                if (storedUserOptional.isPresent()) {
-                    StoredUser storedUser = storedUserOptional.get();
-                    if (!storedUser.isBlacklisted()) {
-                        source.sendMessage(config.playerNotBlacklisted(args[1]));
-                        return;
-                    }
-                    storedUser.setBlacklisted(false);
-                    storedUserManager.update(storedUser);
-                    source.sendMessage(config.playerBlacklistRemoved(args[1]));
+                AddressRangeManager addressRangeManager = barricade.getAddressRangeManager();
+                if (!addressRangeManager.isRangeBlacklisted(range)) {
+                    source.sendMessage(config.rangeNotBlacklisted(range.toString()));
                     return;
                 }
-                source.sendMessage(config.wrongAddressPlayer(args[1]));
+                addressRangeManager.removeBlacklistedRange(range);
+                source.sendMessage(config.rangeBlacklistRemoved(range.toString()));
+                return;
+            } else if (args[0].equalsIgnoreCase("add")) {
+                readStored(source, args[1], (storedAddressOptional, storedUserOptional) ->
+                        addBlacklist(source, args[1], storedAddressOptional, storedUserOptional));
+                return;
+            } else if (args[0].equalsIgnoreCase("remove")) {
+                readStored(source, args[1], (storedAddressOptional, storedUserOptional) ->
+                        removeBlacklist(source, args[1], storedAddressOptional, storedUserOptional));
                 return;
             }
         }
         source.sendMessage(config.blacklistUsage());
     }
 
+    private void addBlacklist(CommandSource source, String text,
+                              Optional<StoredAddress> storedAddressOptional,
+                              Optional<StoredUser> storedUserOptional) {
+        Config config = barricade.getConfig();
+        AddressManager addressManager = barricade.getAddressManager();
+        StoredUserManager storedUserManager = barricade.getStoredUserManager();
+        if (storedAddressOptional.isPresent()) {
+            StoredAddress storedAddress = storedAddressOptional.get();
+            if (storedAddress.isBlacklisted()) {
+                source.sendMessage(config.addressAlreadyBlacklisted(text));
+                return;
+            }
+            storedAddress.setBlacklisted(true);
+            addressManager.update(storedAddress);
+            source.sendMessage(config.addressBlacklisted(text));
+
+            barricade.getServer().getAllPlayers().stream()
+                    .filter(player -> player.getRemoteAddress()
+                            .getHostName().equals(storedAddress.getAddress()))
+                    .forEach(player -> player.disconnect(config.blacklisted()));
+            return;
+        }
+
+        if (storedUserOptional.isPresent()) {
+            StoredUser storedUser = storedUserOptional.get();
+            if (storedUser.isBlacklisted()) {
+                source.sendMessage(config.playerAlreadyBlacklisted(text));
+                return;
+            }
+            storedUser.setBlacklisted(true);
+            storedUserManager.update(storedUser);
+            source.sendMessage(config.playerBlacklisted(text));
+
+            barricade.getServer().getPlayer(storedUser.getNickname())
+                    .ifPresent(player -> player.disconnect(config.blacklisted()));
+            return;
+        }
+
+        if (AddressUtil.isValidIpAddress(text)) {
+            addressManager.addBlacklistedAddress(text);
+            source.sendMessage(config.addressBlacklisted(text));
+            return;
+        } else if (NicknameUtil.isValid(text)) {
+            storedUserManager.addBlacklistedUser(text);
+            source.sendMessage(config.playerBlacklisted(text));
+            return;
+        }
+        source.sendMessage(config.wrongAddressPlayer(text));
+    }
+
+    private void removeBlacklist(CommandSource source, String text,
+                                 Optional<StoredAddress> storedAddressOptional,
+                                 Optional<StoredUser> storedUserOptional) {
+        Config config = barricade.getConfig();
+        AddressManager addressManager = barricade.getAddressManager();
+        StoredUserManager storedUserManager = barricade.getStoredUserManager();
+        if (storedAddressOptional.isPresent()) {
+            StoredAddress storedAddress = storedAddressOptional.get();
+            if (!storedAddress.isBlacklisted()) {
+                source.sendMessage(config.addressNotBlacklisted(text));
+                return;
+            }
+            storedAddress.setBlacklisted(false);
+            addressManager.update(storedAddress);
+            source.sendMessage(config.addressBlacklistRemoved(text));
+            return;
+        }
+
+        if (storedUserOptional.isPresent()) {
+            StoredUser storedUser = storedUserOptional.get();
+            if (!storedUser.isBlacklisted()) {
+                source.sendMessage(config.playerNotBlacklisted(text));
+                return;
+            }
+            storedUser.setBlacklisted(false);
+            storedUserManager.update(storedUser);
+            source.sendMessage(config.playerBlacklistRemoved(text));
+            return;
+        }
+        source.sendMessage(config.wrongAddressPlayer(text));
+    }
+
     @Override
     protected @NotNull List<String> handleSuggestion(CommandSource source, String[] args) {
         if (args.length == 1) {
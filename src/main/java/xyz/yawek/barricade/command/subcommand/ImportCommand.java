@@ -0,0 +1,113 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.command.subcommand;
+
+import com.velocitypowered.api.command.CommandSource;
+import com.velocitypowered.api.proxy.Player;
+import org.jetbrains.annotations.NotNull;
+import xyz.yawek.barricade.Barricade;
+import xyz.yawek.barricade.command.PermissibleCommand;
+import xyz.yawek.barricade.config.Config;
+import xyz.yawek.barricade.manager.ListSnapshotManager;
+import xyz.yawek.barricade.manager.ListTransferManager;
+import xyz.yawek.barricade.util.LogUtils;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class ImportCommand extends PermissibleCommand {
+
+    public ImportCommand(Barricade barricade) {
+        super(barricade, "barricade.import");
+    }
+
+    @Override
+    protected void handle(CommandSource source, String[] args) {
+        Config config = barricade.getConfig();
+        if (args.length < 2 || !(args[0].equalsIgnoreCase("whitelist")
+                || args[0].equalsIgnoreCase("blacklist"))) {
+            source.sendMessage(config.importUsage());
+            return;
+        }
+        boolean blacklist = args[0].equalsIgnoreCase("blacklist");
+        ListTransferManager listTransferManager = barricade.getListTransferManager();
+        Path file = listTransferManager.resolve(args[1]);
+        if (file == null || !Files.isRegularFile(file)) {
+            source.sendMessage(config.transferFileNotFound(args[1]));
+            return;
+        }
+        if (!listTransferManager.start()) {
+            source.sendMessage(config.transferRunning());
+            return;
+        }
+        source.sendMessage(config.importStarted(args[1]));
+        barricade.getServer().getScheduler().buildTask(barricade, () -> {
+            try {
+                ListTransferManager.TransferResult result = listTransferManager.importList(
+                        file, blacklist, count -> source.sendMessage(config.transferProgress(count)));
+                source.sendMessage(config.importFinished(result.entries(), result.skipped(),
+                        result.getSeconds(), result.getEntriesPerSecond()));
+                if (blacklist) disconnectBlacklisted();
+            } catch (IOException e) {
+                source.sendMessage(config.transferFailed(args[1]));
+                LogUtils.error("Unable to import file '{}'.", args[1]);
+                e.printStackTrace();
+            } finally {
+                listTransferManager.finish();
+            }
+        }).schedule();
+    }
+
+    @Override
+    protected @NotNull List<String> handleSuggestion(CommandSource source, String[] args) {
+        if (args.length == 1) {
+            return new ArrayList<>(Arrays.asList("whitelist", "blacklist"));
+        }
+        if (args.length == 2) {
+            try (Stream<Path> files = Files.list(barricade.getDataDirectory())) {
+                return files.map(path -> path.getFileName().toString())
+                        .filter(name -> name.endsWith(".txt") || name.endsWith(".csv"))
+                        .toList();
+            } catch (IOException e) {
+                return Collections.emptyList();
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    private void disconnectBlacklisted() {
+        ListSnapshotManager listSnapshotManager = barricade.getListSnapshotManager();
+        for (Player player : barricade.getServer().getAllPlayers()) {
+            InetAddress address = player.getRemoteAddress().getAddress();
+            boolean blacklisted = barricade.getAddressRangeManager().isBlacklisted(address)
+                    || listSnapshotManager.isLoaded()
+                    && (listSnapshotManager.getAddressFlags(address).isBlacklisted()
+                    || listSnapshotManager.getNicknameFlags(player.getUsername()).isBlacklisted());
+            if (blacklisted) player.disconnect(barricade.getConfig().blacklisted());
+        }
+    }
+
+}
@@ -23,12 +23,20 @@ import org.jetbrains.annotations.NotNull;
 import xyz.yawek.barricade.Barricade;
 import xyz.yawek.barricade.command.PermissibleCommand;
 import xyz.yawek.barricade.config.Config;
+import xyz.yawek.barricade.data.storage.activity.ActivityDataAccess;
+import xyz.yawek.barricade.manager.snapshot.AddressRange;
 import xyz.yawek.barricade.user.StoredAddress;
+import xyz.yawek.barricade.user.StoredLink;
 import xyz.yawek.barricade.user.StoredUser;
 
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 public class InfoCommand extends PermissibleCommand {
 
@@ -40,35 +48,101 @@ public class InfoCommand extends PermissibleCommand {
     public void handle(CommandSource source, String[] args) {
         Config config = barricade.getConfig();
         if (args.length >= 1) {
-            Optional<StoredAddress> storedAddressOptional =
-                    barricade.getAddressManager().getOptional(args[0]);
-            if (storedAddressOptional.isPresent()) {
-                StoredAddress storedAddress = storedAddressOptional.get();
-
-                source.sendMessage(config.addressInfo(
-                        storedAddress.getAddress(),
-                        storedAddress.isWhitelisted(),
-                        storedAddress.isBlacklisted(),
-                        storedAddress.getNicknames()));
+            int minutes = config.activityWindow();
+            if (args.length >= 2) {
+                try {
+                    minutes = Integer.parseInt(args[1]);
+                } catch (NumberFormatException e) {
+                    minutes = 0;
+                }
+                if (minutes <= 0) {
+                    source.sendMessage(config.infoUsage());
+                    return;
+                }
+            }
+            int window = minutes;
+            long since = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(minutes);
+            if (args[0].contains("/")) {
+                sendRangeInfo(source, args[0], window, since);
                 return;
             }
+            readStored(source, args[0], (storedAddressOptional, storedUserOptional) ->
+                    sendInfo(source, args[0], window, since, storedAddressOptional, storedUserOptional));
+            return;
+        }
+        source.sendMessage(config.infoUsage());
+    }
 
-            Optional<StoredUser> storedUserOptional =
-                    barricade.getStoredUserManager().getOptional(args[0]);
-            if (storedUserOptional.isPresent()) {
-                StoredUser storedUser = storedUserOptional.get();
-
-                source.sendMessage(config.playerInfo(
-                        storedUser.getNickname(),
-                        storedUser.isWhitelisted(),
-                        storedUser.isBlacklisted(),
-                        storedUser.getAddresses()));
+    private void sendRangeInfo(CommandSource source, String text, int window, long since) {
+        Config config = barricade.getConfig();
+        AddressRange range = AddressRange.parse(text);
+        if (range == null) {
+            source.sendMessage(config.wrongRange(text));
+            return;
+        }
+        int maxLinks = config.activityMaxLinks();
+        ActivityDataAccess activityDataAccess = barricade.getDataProvider().getActivityDataAccess();
+        // One more link is read to tell whether the limit has been reached
+        barricade.getDataProvider().getExecutor().supply(() ->
+                activityDataAccess.getRangeLinks(range, since, maxLinks + 1)).whenComplete((links, throwable) -> {
+            if (throwable != null) {
+                source.sendMessage(config.databaseUnavailable(text));
                 return;
             }
-            source.sendMessage(config.wrongAddressPlayer(args[0]));
+            Set<String> addresses = new HashSet<>();
+            Set<String> nicknames = new LinkedHashSet<>();
+            for (StoredLink link : links.subList(0, Math.min(links.size(), maxLinks))) {
+                addresses.add(link.address());
+                nicknames.add(link.nickname());
+            }
+            source.sendMessage(config.rangeActivity(range.toString(), window, addresses.size(), nicknames));
+            if (links.size() > maxLinks) source.sendMessage(config.rangeActivityLimited(maxLinks));
+        });
+    }
+
+    private void sendInfo(CommandSource source, String text, int window, long since,
+                          Optional<StoredAddress> storedAddressOptional,
+                          Optional<StoredUser> storedUserOptional) {
+        Config config = barricade.getConfig();
+        ActivityDataAccess activityDataAccess = barricade.getDataProvider().getActivityDataAccess();
+        if (storedAddressOptional.isPresent()) {
+            StoredAddress storedAddress = storedAddressOptional.get();
+
+            source.sendMessage(config.addressInfo(
+                    storedAddress.getAddress(),
+                    storedAddress.isWhitelisted(),
+                    storedAddress.isBlacklisted(),
+                    storedAddress.getNicknames()));
+            activityDataAccess.getAddressActivity(storedAddress.getAddress()).ifPresent(activity ->
+                    source.sendMessage(config.activityInfo(
+                            activity.firstSeen(), activity.lastSeen(), activity.connections())));
+            Set<String> nicknames = activityDataAccess.getAddressLinks(
+                            storedAddress.getAddress(), since, config.activityMaxLinks()).stream()
+                    .map(StoredLink::nickname)
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+            source.sendMessage(config.newLinksInfo(window, nicknames));
             return;
         }
-        source.sendMessage(config.infoUsage());
+
+        if (storedUserOptional.isPresent()) {
+            StoredUser storedUser = storedUserOptional.get();
+
+            source.sendMessage(config.playerInfo(
+                    storedUser.getNickname(),
+                    storedUser.isWhitelisted(),
+                    storedUser.isBlacklisted(),
+                    storedUser.getAddresses()));
+            activityDataAccess.getUserActivity(storedUser.getNickname()).ifPresent(activity ->
+                    source.sendMessage(config.activityInfo(
+                            activity.firstSeen(), activity.lastSeen(), activity.connections())));
+            Set<String> addresses = activityDataAccess.getUserLinks(
+                            storedUser.getNickname(), since, config.activityMaxLinks()).stream()
+                    .map(StoredLink::address)
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+            source.sendMessage(config.newLinksInfo(window, addresses));
+            return;
+        }
+        source.sendMessage(config.wrongAddressPlayer(text));
     }
 
     @Override
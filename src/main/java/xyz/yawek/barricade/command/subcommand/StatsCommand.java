@@ -0,0 +1,99 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.command.subcommand;
+
+import com.maxmind.db.Reader;
+import com.velocitypowered.api.command.CommandSource;
+import org.jetbrains.annotations.NotNull;
+import xyz.yawek.barricade.Barricade;
+import xyz.yawek.barricade.check.CheckPipeline;
+import xyz.yawek.barricade.command.PermissibleCommand;
+import xyz.yawek.barricade.config.Config;
+import xyz.yawek.barricade.data.geo.GeoDataProvider;
+import xyz.yawek.barricade.data.storage.ConnectionWriteBuffer;
+import xyz.yawek.barricade.data.storage.PoolMetrics;
+import xyz.yawek.barricade.manager.ListSnapshotManager;
+import xyz.yawek.barricade.manager.cache.ExpiringCache;
+import xyz.yawek.barricade.manager.snapshot.FlagSnapshot;
+
+import java.util.Collections;
+import java.util.List;
+
+public class StatsCommand extends PermissibleCommand {
+
+    public StatsCommand(Barricade barricade) {
+        super(barricade, "barricade.stats");
+    }
+
+    @Override
+    protected void handle(CommandSource source, String[] args) {
+        Config config = barricade.getConfig();
+        source.sendMessage(config.statsHeader());
+        ConnectionWriteBuffer writeBuffer = barricade.getDataProvider().getWriteBuffer();
+        source.sendMessage(config.writeBufferStats(writeBuffer.size(),
+                writeBuffer.getDrained(), writeBuffer.getMerged(), writeBuffer.getDropped()));
+        PoolMetrics poolMetrics = barricade.getDataProvider().getPoolMetrics();
+        if (poolMetrics != null) {
+            source.sendMessage(config.poolStats(poolMetrics.getActive(), poolMetrics.getMax(),
+                    poolMetrics.getIdle(), poolMetrics.getWaiting(), poolMetrics.getAverageAcquireTime(),
+                    poolMetrics.getMaxAcquireTime(), poolMetrics.getTimeouts()));
+        }
+        ListSnapshotManager listSnapshotManager = barricade.getListSnapshotManager();
+        FlagSnapshot addresses = listSnapshotManager.getAddresses();
+        FlagSnapshot nicknames = listSnapshotManager.getNicknames();
+        if (addresses != null && nicknames != null) {
+            source.sendMessage(config.snapshotStats(
+                    addresses.getWhitelistedSize() + nicknames.getWhitelistedSize(),
+                    addresses.getBlacklistedSize() + nicknames.getBlacklistedSize(),
+                    (System.currentTimeMillis() - listSnapshotManager.getLoadedAt()) / 1000));
+        } else {
+            source.sendMessage(config.snapshotNotLoaded());
+        }
+        GeoDataProvider geoDataProvider = barricade.getGeoDataProvider();
+        Reader.FileMode geoFileMode = geoDataProvider.getFileMode();
+        if (geoFileMode != null) {
+            source.sendMessage(config.geoipStats(geoFileMode.name(), geoDataProvider.getHeapSize(),
+                    geoDataProvider.getCountrySize(), geoDataProvider.getAsnSize()));
+        } else {
+            source.sendMessage(config.geoipNotLoaded());
+        }
+        source.sendMessage(config.checkOrderHeader());
+        int position = 1;
+        for (CheckPipeline.CheckEntry entry : barricade.getCheckPipeline().getOrder()) {
+            source.sendMessage(config.checkStats(position++, entry.getName(),
+                    entry.getPriority(), entry.getLatency() / 1000D, entry.getRejectionRate() * 100D));
+        }
+        sendCacheStats(source, "Nickname flags",
+                barricade.getStoredUserManager().getFlagsCache());
+        sendCacheStats(source, "Address flags",
+                barricade.getAddressManager().getFlagsCache());
+        sendCacheStats(source, "GeoIP", geoDataProvider.getCache());
+    }
+
+    @Override
+    protected @NotNull List<String> handleSuggestion(CommandSource source, String[] args) {
+        return Collections.emptyList();
+    }
+
+    private void sendCacheStats(CommandSource source, String name, ExpiringCache<?, ?> cache) {
+        source.sendMessage(barricade.getConfig().cacheStats(
+                name, cache.getHits(), cache.getMisses(), cache.size()));
+    }
+
+}
@@ -42,81 +42,91 @@ public class WhitelistCommand extends PermissibleCommand {
     public void handle(CommandSource source, String[] args) {
         Config config = barricade.getConfig();
         if (args.length >= 2) {
-            AddressManager addressManager = barricade.getAddressManager();
-            StoredUserManager storedUserManager = barricade.getStoredUserManager();
             if (args[0].equalsIgnoreCase("add")) {
-                Optional<StoredAddress> storedAddressOptional =
-                        barricade.getAddressManager().getOptional(args[1]);
-                if (storedAddressOptional.isPresent()) {
-                    StoredAddress storedAddress = storedAddressOptional.get();
-                    if (storedAddress.isWhitelisted()) {
-                        source.sendMessage(config.addressAlreadyWhitelisted(args[1]));
-                        return;
-                    }
-                    storedAddress.setWhitelisted(true);
-                    addressManager.update(storedAddress);
-                    source.sendMessage(config.addressWhitelisted(args[1]));
-                    return;
-                }
+                readStored(source, args[1], (storedAddressOptional, storedUserOptional) ->
+                        addWhitelist(source, args[1], storedAddressOptional, storedUserOptional));
+                return;
+            } else if (args[0].equalsIgnoreCase("remove")) {
+                readStored(source, args[1], (storedAddressOptional, storedUserOptional) ->
+                        removeWhitelist(source, args[1], storedAddressOptional, storedUserOptional));
+                return;
+            }
+        }
+        source.sendMessage(config.whitelistUsage());
+    }
 
-                Optional<StoredUser> storedUserOptional =
-                        barricade.getStoredUserManager().getOptional(args[1]);
-                if (storedUserOptional.isPresent()) {
-                    StoredUser storedUser = storedUserOptional.get();
-                    if (storedUser.isWhitelisted()) {
-                        source.sendMessage(config.playerAlreadyWhitelisted(args[1]));
-                        return;
-                    }
-                    storedUser.setWhitelisted(true);
-                    storedUserManager.update(storedUser);
-                    source.sendMessage(config.playerWhitelisted(args[1]));
-                    return;
-                }
+    private void addWhitelist(CommandSource source, String text,
+                              Optional<StoredAddress> storedAddressOptional,
+                              Optional<StoredUser> storedUserOptional) {
+        Config config = barricade.getConfig();
+        AddressManager addressManager = barricade.getAddressManager();
+        StoredUserManager storedUserManager = barricade.getStoredUserManager();
+        if (storedAddressOptional.isPresent()) {
+            StoredAddress storedAddress = storedAddressOptional.get();
+            if (storedAddress.isWhitelisted()) {
+                source.sendMessage(config.addressAlreadyWhitelisted(text));
+                return;
+            }
+            storedAddress.setWhitelisted(true);
+            addressManager.update(storedAddress);
+            source.sendMessage(config.addressWhitelisted(text));
+            return;
+        }
 
-                if (AddressUtil.isValidIpAddress(args[1])) {
-                    addressManager.addWhitelistedAddress(args[1]);
-                    source.sendMessage(config.addressWhitelisted(args[1]));
-                    return;
-                } else if (NicknameUtil.isValid(args[1])) {
-                    storedUserManager.addWhitelistedUser(args[1]);
-                    source.sendMessage(config.playerWhitelisted(args[1]));
-                    return;
-                }
-                source.sendMessage(config.wrongAddressPlayer(args[1]));
+        if (storedUserOptional.isPresent()) {
+            StoredUser storedUser = storedUserOptional.get();
+            if (storedUser.isWhitelisted()) {
+                source.sendMessage(config.playerAlreadyWhitelisted(text));
                 return;
-            } else if (args[0].equalsIgnoreCase("remove")) {
-                Optional<StoredAddress> storedAddressOptional =
-                        barricade.getAddressManager().getOptional(args[1]);
-                if (storedAddressOptional.isPresent()) {
-                    StoredAddress storedAddress = storedAddressOptional.get();
-                    if (!storedAddress.isWhitelisted()) {
-                        source.sendMessage(config.addressNotWhitelisted(args[1]));
-                        return;
-                    }
-                    storedAddress.setWhitelisted(false);
-                    addressManager.update(storedAddress);
-                    source.sendMessage(config.addressWhitelistRemoved(args[1]));
-                    return;
-                }
+            }
+            storedUser.setWhitelisted(true);
+            storedUserManager.update(storedUser);
+            source.sendMessage(config.playerWhitelisted(text));
+            return;
+        }
+
+        if (AddressUtil.isValidIpAddress(text)) {
+            addressManager.addWhitelistedAddress(text);
+            source.sendMessage(config.addressWhitelisted(text));
+            return;
+        } else if (NicknameUtil.isValid(text)) {
+            storedUserManager.addWhitelistedUser(text);
+            source.sendMessage(config.playerWhitelisted(text));
+            return;
+        }
+        source.sendMessage(config.wrongAddressPlayer(text));
+    }
 
-                Optional<StoredUser> storedUserOptional =
-                        barricade.getStoredUserManager().getOptional(args[1]);
-                if (storedUserOptional.isPresent()) {
-                    StoredUser storedUser = storedUserOptional.get();
-                    if (!storedUser.isWhitelisted()) {
-                        source.sendMessage(config.playerNotWhitelisted(args[1]));
-                        return;
-                    }
-                    storedUser.setWhitelisted(false);
-                    storedUserManager.update(storedUser);
-                    source.sendMessage(config.playerWhitelistRemoved(args[1]));
-                    return;
-                }
-                source.sendMessage(config.wrongAddressPlayer(args[1]));
+    private void removeWhitelist(CommandSource source, String text,
+                                 Optional<StoredAddress> storedAddressOptional,
+                                 Optional<StoredUser> storedUserOptional) {
+        Config config = barricade.getConfig();
+        AddressManager addressManager = barricade.getAddressManager();
+        StoredUserManager storedUserManager = barricade.getStoredUserManager();
+        if (storedAddressOptional.isPresent()) {
+            StoredAddress storedAddress = storedAddressOptional.get();
+            if (!storedAddress.isWhitelisted()) {
+                source.sendMessage(config.addressNotWhitelisted(text));
                 return;
             }
+            storedAddress.setWhitelisted(false);
+            addressManager.update(storedAddress);
+            source.sendMessage(config.addressWhitelistRemoved(text));
+            return;
         }
-        source.sendMessage(config.whitelistUsage());
+
+        if (storedUserOptional.isPresent()) {
+            StoredUser storedUser = storedUserOptional.get();
+            if (!storedUser.isWhitelisted()) {
+                source.sendMessage(config.playerNotWhitelisted(text));
+                return;
+            }
+            storedUser.setWhitelisted(false);
+            storedUserManager.update(storedUser);
+            source.sendMessage(config.playerWhitelistRemoved(text));
+            return;
+        }
+        source.sendMessage(config.wrongAddressPlayer(text));
     }
 
     @Override
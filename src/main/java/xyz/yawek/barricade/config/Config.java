@@ -20,10 +20,16 @@ package xyz.yawek.barricade.config;
 
 import net.kyori.adventure.text.Component;
 
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
 
 public class Config {
 
+    private static final DateTimeFormatter TIME_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
     private final ConfigProvider configProvider;
     private final ConfigUtils configUtils;
 
@@ -38,6 +44,11 @@ public class Config {
                 && configProvider.getString("data.database").equalsIgnoreCase("mysql");
     }
 
+    public boolean useEmbedded() {
+        return configProvider.getString("data.database") != null
+                && configProvider.getString("data.database").equalsIgnoreCase("embedded");
+    }
+
     public String databaseAddress() {
         return configProvider.getString("data.mysql.address");
     }
@@ -58,14 +69,195 @@ public class Config {
         return configProvider.getString("data.mysql.password");
     }
 
+    public int poolMaximumSize() {
+        return configProvider.getInt("data.mysql.pool.maximum-size");
+    }
+
+    public int poolMinimumIdle() {
+        return configProvider.getInt("data.mysql.pool.minimum-idle");
+    }
+
+    public int poolConnectionTimeout() {
+        return configProvider.getInt("data.mysql.pool.connection-timeout");
+    }
+
+    public int poolIdleTimeout() {
+        return configProvider.getInt("data.mysql.pool.idle-timeout");
+    }
+
+    public int poolMaxLifetime() {
+        return configProvider.getInt("data.mysql.pool.max-lifetime");
+    }
+
+    public int poolLeakDetectionThreshold() {
+        return configProvider.getInt("data.mysql.pool.leak-detection-threshold");
+    }
+
+    public boolean poolCacheStatements() {
+        return configProvider.getBoolean("data.mysql.pool.cache-statements");
+    }
+
+    public int poolStatementCacheSize() {
+        return configProvider.getInt("data.mysql.pool.statement-cache-size");
+    }
+
+    public int poolStatementCacheSqlLimit() {
+        return configProvider.getInt("data.mysql.pool.statement-cache-sql-limit");
+    }
+
+    public boolean poolServerStatements() {
+        return configProvider.getBoolean("data.mysql.pool.server-statements");
+    }
+
+    public boolean poolRewriteBatchedStatements() {
+        return configProvider.getBoolean("data.mysql.pool.rewrite-batched-statements");
+    }
+
+    public String sqliteSynchronous() {
+        return configProvider.getString("data.sqlite.synchronous");
+    }
+
+    public int sqliteMmapSize() {
+        return configProvider.getInt("data.sqlite.mmap-size");
+    }
+
+    public int sqliteCacheSize() {
+        return configProvider.getInt("data.sqlite.cache-size");
+    }
+
+    public int sqliteReaders() {
+        return configProvider.getInt("data.sqlite.readers");
+    }
+
+    public int sqliteBusyTimeout() {
+        return configProvider.getInt("data.sqlite.busy-timeout");
+    }
+
+    public int embeddedSegmentSize() {
+        return configProvider.getInt("data.embedded.segment-size");
+    }
+
+    public int embeddedCompactionThreshold() {
+        return configProvider.getInt("data.embedded.compaction-threshold");
+    }
+
+    public int databaseThreads() {
+        return configProvider.getInt("data.executor.threads");
+    }
+
+    public int databaseQueueSize() {
+        return configProvider.getInt("data.executor.queue-size");
+    }
+
+    public boolean clusterEnabled() {
+        return configProvider.getBoolean("cluster.enabled");
+    }
+
+    public int clusterSyncInterval() {
+        return configProvider.getInt("cluster.sync-interval");
+    }
+
+    public int clusterNodeTimeout() {
+        return configProvider.getInt("cluster.node-timeout");
+    }
+
+    public boolean retentionEnabled() {
+        return configProvider.getBoolean("data.retention.enabled");
+    }
+
+    public int retentionDays() {
+        return configProvider.getInt("data.retention.days");
+    }
+
+    public int retentionMaxLinks() {
+        return configProvider.getInt("data.retention.max-links");
+    }
+
+    public int retentionInterval() {
+        return configProvider.getInt("data.retention.interval");
+    }
+
+    public int retentionBatchSize() {
+        return configProvider.getInt("data.retention.batch-size");
+    }
+
+    public int retentionBatchDelay() {
+        return configProvider.getInt("data.retention.batch-delay");
+    }
+
+    public int activityWindow() {
+        return configProvider.getInt("data.activity.window");
+    }
+
+    public int activityMaxLinks() {
+        return configProvider.getInt("data.activity.max-links");
+    }
+
+    public int transferBatchSize() {
+        return configProvider.getInt("data.transfer.batch-size");
+    }
+
+    public int transferProgressInterval() {
+        return configProvider.getInt("data.transfer.progress-interval");
+    }
+
     public String geoipLicense() {
         return configProvider.getString("data.geoip-license-key");
     }
 
+    public String geoipFileMode() {
+        return configProvider.getString("data.geoip-file-mode");
+    }
+
+    public int geoipCacheMaxSize() {
+        return configProvider.getInt("data.geoip-cache.max-size");
+    }
+
+    public int geoipCacheExpireAfter() {
+        return configProvider.getInt("data.geoip-cache.expire-after");
+    }
+
     public int geoipReloadPeriod() {
         return configProvider.getInt("data.geoip-reload-period");
     }
 
+    public int flagsCacheMaxSize() {
+        return configProvider.getInt("data.cache.max-size");
+    }
+
+    public int flagsCacheExpireAfter() {
+        return configProvider.getInt("data.cache.expire-after");
+    }
+
+    public boolean listSnapshotEnabled() {
+        return configProvider.getBoolean("data.snapshot.enabled");
+    }
+
+    public int listSnapshotReconcilePeriod() {
+        return configProvider.getInt("data.snapshot.reconcile-period");
+    }
+
+    public int writeFlushPeriod() {
+        return configProvider.getInt("data.write-behind.flush-period");
+    }
+
+    public int writeBufferSize() {
+        return configProvider.getInt("data.write-behind.buffer-size");
+    }
+
+    public int writeBatchSize() {
+        return configProvider.getInt("data.write-behind.batch-size");
+    }
+
+    public String writeOverflowPolicy() {
+        String policy = configProvider.getString("data.write-behind.overflow-policy");
+        return policy != null ? policy : "drop";
+    }
+
+    public int writeBlockTimeout() {
+        return configProvider.getInt("data.write-behind.block-timeout");
+    }
+
     public int nicknameBlockPriority() {
         return configProvider.getInt("nickname-block.priority");
     }
@@ -77,6 +269,25 @@ public class Config {
                 ? blockedNicknames : Collections.emptyList();
     }
 
+    public List<String> restrictedNicknamePrefixes() {
+        List<String> prefixes = configProvider.getStringList("nickname-block.block-starting");
+        return prefixes != null ? prefixes : Collections.emptyList();
+    }
+
+    public List<String> restrictedNicknameSuffixes() {
+        List<String> suffixes = configProvider.getStringList("nickname-block.block-ending");
+        return suffixes != null ? suffixes : Collections.emptyList();
+    }
+
+    public List<String> restrictedNicknamePatterns() {
+        List<String> patterns = configProvider.getStringList("nickname-block.block-matching");
+        return patterns != null ? patterns : Collections.emptyList();
+    }
+
+    public boolean nicknameLeetNormalize() {
+        return configProvider.getBoolean("nickname-block.leet-normalize");
+    }
+
     public int accountLimitPriority() {
         return configProvider.getInt("account-limit.priority");
     }
@@ -119,6 +330,86 @@ public class Config {
         return configProvider.getInt("rate-limit.connections-per-second");
     }
 
+    public int rateLimitBurst() {
+        return configProvider.getInt("rate-limit.burst");
+    }
+
+    public int rateLimitWindow() {
+        return configProvider.getInt("rate-limit.window");
+    }
+
+    public int rateLimitResolution() {
+        return configProvider.getInt("rate-limit.resolution");
+    }
+
+    public int addressRateLimitPriority() {
+        return configProvider.getInt("address-rate-limit.priority");
+    }
+
+    public int addressRateLimitPerAddress() {
+        return configProvider.getInt("address-rate-limit.per-address");
+    }
+
+    public int addressRateLimitPerSubnetV4() {
+        return configProvider.getInt("address-rate-limit.per-subnet-v4");
+    }
+
+    public int addressRateLimitPerSubnetV6() {
+        return configProvider.getInt("address-rate-limit.per-subnet-v6");
+    }
+
+    public int addressRateLimitWindow() {
+        return configProvider.getInt("address-rate-limit.window");
+    }
+
+    public int addressRateLimitResolution() {
+        return configProvider.getInt("address-rate-limit.resolution");
+    }
+
+    public int addressRateLimitSketchWidth() {
+        return configProvider.getInt("address-rate-limit.sketch-width");
+    }
+
+    public int addressRateLimitSketchDepth() {
+        return configProvider.getInt("address-rate-limit.sketch-depth");
+    }
+
+    public int attackModeWindow() {
+        return configProvider.getInt("attack-mode.window");
+    }
+
+    public int attackModeEnterRate() {
+        return configProvider.getInt("attack-mode.enter-rate");
+    }
+
+    public int attackModeEnterRejectedPercent() {
+        return configProvider.getInt("attack-mode.enter-rejected-percent");
+    }
+
+    public int attackModeMinAttempts() {
+        return configProvider.getInt("attack-mode.min-attempts");
+    }
+
+    public int attackModeExitRate() {
+        return configProvider.getInt("attack-mode.exit-rate");
+    }
+
+    public int attackModeExitRejectedPercent() {
+        return configProvider.getInt("attack-mode.exit-rejected-percent");
+    }
+
+    public int attackModeExitDelay() {
+        return configProvider.getInt("attack-mode.exit-delay");
+    }
+
+    public boolean attackModeDenyUnseen() {
+        return configProvider.getBoolean("attack-mode.deny-unseen");
+    }
+
+    public int attackModeSeenCapacity() {
+        return configProvider.getInt("attack-mode.seen-capacity");
+    }
+
     public boolean antiSpamEnabled() {
         return configProvider.getBoolean("anti-spam.enabled");
     }
@@ -154,6 +445,18 @@ public class Config {
         return configUtils.noPrefixMessage("messages.kick.rate-limit");
     }
 
+    public Component addressRateLimit() {
+        return configUtils.noPrefixMessage("messages.kick.address-rate-limit");
+    }
+
+    public Component attackModeUnseen() {
+        return configUtils.noPrefixMessage("messages.kick.attack-mode-unseen");
+    }
+
+    public Component unverified() {
+        return configUtils.noPrefixMessage("messages.kick.unverified");
+    }
+
     public Component blacklisted() {
         return configUtils.noPrefixMessage("messages.kick.blacklisted");
     }
@@ -182,6 +485,18 @@ public class Config {
         return configUtils.listPrefixedMessage("messages.chat.blacklist-usage");
     }
 
+    public Component attackUsage() {
+        return configUtils.listPrefixedMessage("messages.chat.attack-usage");
+    }
+
+    public Component importUsage() {
+        return configUtils.listPrefixedMessage("messages.chat.import-usage");
+    }
+
+    public Component exportUsage() {
+        return configUtils.listPrefixedMessage("messages.chat.export-usage");
+    }
+
     public Component infoUsage() {
         return configUtils.listPrefixedMessage("messages.chat.info-usage");
     }
@@ -218,6 +533,26 @@ public class Config {
         return configUtils.prefixedMessage("messages.chat.player-whitelist-removed", nickname);
     }
 
+    public Component rangeAlreadyBlacklisted(String range) {
+        return configUtils.prefixedMessage("messages.chat.range-already-blacklisted", range);
+    }
+
+    public Component rangeBlacklisted(String range) {
+        return configUtils.prefixedMessage("messages.chat.range-blacklisted", range);
+    }
+
+    public Component rangeNotBlacklisted(String range) {
+        return configUtils.prefixedMessage("messages.chat.range-not-blacklisted", range);
+    }
+
+    public Component rangeBlacklistRemoved(String range) {
+        return configUtils.prefixedMessage("messages.chat.range-blacklist-removed", range);
+    }
+
+    public Component wrongRange(String range) {
+        return configUtils.prefixedMessage("messages.chat.wrong-range", range);
+    }
+
     public Component addressAlreadyBlacklisted(String address) {
         return configUtils.prefixedMessage("messages.chat.address-already-blacklisted", address);
     }
@@ -254,6 +589,10 @@ public class Config {
         return configUtils.prefixedMessage("messages.chat.wrong-address-player", text);
     }
 
+    public Component databaseUnavailable(String text) {
+        return configUtils.prefixedMessage("messages.chat.database-unavailable", text);
+    }
+
     public Component queuePosition(int position, String serverName) {
         return configUtils.prefixedMessage(
                 "messages.chat.queue-position", String.valueOf(position), serverName);
@@ -289,6 +628,141 @@ public class Config {
                 nickname, whitelistedString, blacklistedString, addressesString);
     }
 
+    public Component activityInfo(long firstSeen, long lastSeen, long connections) {
+        return configUtils.noPrefixMessage("messages.chat.activity-info",
+                formatTime(firstSeen), formatTime(lastSeen), String.valueOf(connections));
+    }
+
+    public Component newLinksInfo(int minutes, Set<String> links) {
+        String linksString = !links.isEmpty() ? String.join(", ", links)
+                : configProvider.getString("messages.chat.none-in-message");
+        return configUtils.noPrefixMessage("messages.chat.new-links-info",
+                String.valueOf(minutes), linksString);
+    }
+
+    public Component rangeActivity(String range, int minutes, int addresses, Set<String> nicknames) {
+        String nicknamesString = !nicknames.isEmpty() ? String.join(", ", nicknames)
+                : configProvider.getString("messages.chat.none-in-message");
+        return configUtils.prefixedMessage("messages.chat.range-activity", String.valueOf(nicknames.size()),
+                String.valueOf(addresses), range, String.valueOf(minutes), nicknamesString);
+    }
+
+    public Component rangeActivityLimited(int links) {
+        return configUtils.noPrefixMessage("messages.chat.range-activity-limited", String.valueOf(links));
+    }
+
+    private String formatTime(long time) {
+        if (time == 0) return configProvider.getString("messages.chat.unknown-in-message");
+        return TIME_FORMATTER.format(Instant.ofEpochMilli(time));
+    }
+
+    public Component transferFileNotFound(String file) {
+        return configUtils.prefixedMessage("messages.chat.transfer-file-not-found", file);
+    }
+
+    public Component transferRunning() {
+        return configUtils.prefixedMessage("messages.chat.transfer-running");
+    }
+
+    public Component transferFailed(String file) {
+        return configUtils.prefixedMessage("messages.chat.transfer-failed", file);
+    }
+
+    public Component transferProgress(long entries) {
+        return configUtils.prefixedMessage("messages.chat.transfer-progress", String.valueOf(entries));
+    }
+
+    public Component importStarted(String file) {
+        return configUtils.prefixedMessage("messages.chat.import-started", file);
+    }
+
+    public Component importFinished(long entries, long skipped, double seconds, long entriesPerSecond) {
+        return configUtils.prefixedMessage("messages.chat.import-finished",
+                String.valueOf(entries), String.valueOf(skipped),
+                String.format(Locale.ROOT, "%.1f", seconds), String.valueOf(entriesPerSecond));
+    }
+
+    public Component exportStarted(String file) {
+        return configUtils.prefixedMessage("messages.chat.export-started", file);
+    }
+
+    public Component exportFinished(long entries, double seconds, long entriesPerSecond) {
+        return configUtils.prefixedMessage("messages.chat.export-finished",
+                String.valueOf(entries), String.format(Locale.ROOT, "%.1f", seconds),
+                String.valueOf(entriesPerSecond));
+    }
+
+    public Component statsHeader() {
+        return configUtils.prefixedMessage("messages.chat.stats-header");
+    }
+
+    public Component cacheStats(String cacheName, long hits, long misses, int size) {
+        long lookups = hits + misses;
+        String hitRate = String.format(Locale.ROOT, "%.1f",
+                lookups > 0 ? hits * 100D / lookups : 0D);
+        return configUtils.noPrefixMessage("messages.chat.stats-cache", cacheName,
+                String.valueOf(hits), String.valueOf(misses), hitRate, String.valueOf(size));
+    }
+
+    public Component attackModeStatus(boolean active, String mode,
+                                      double connectionRate, int rejectedPercent) {
+        String activeString = configProvider.getString(active
+                ? "messages.chat.yes-in-message" : "messages.chat.no-in-message");
+        return configUtils.prefixedMessage("messages.chat.attack-mode-status", activeString, mode,
+                String.format(Locale.ROOT, "%.1f", connectionRate), String.valueOf(rejectedPercent));
+    }
+
+    public Component attackModeSet(String mode) {
+        return configUtils.prefixedMessage("messages.chat.attack-mode-set", mode);
+    }
+
+    public Component checkOrderHeader() {
+        return configUtils.noPrefixMessage("messages.chat.stats-check-order");
+    }
+
+    public Component checkStats(int position, String name, int priority,
+                                double latencyMicros, double rejectedPercent) {
+        return configUtils.noPrefixMessage("messages.chat.stats-check", String.valueOf(position),
+                name, String.valueOf(priority), String.format(Locale.ROOT, "%.1f", latencyMicros),
+                String.format(Locale.ROOT, "%.1f", rejectedPercent));
+    }
+
+    public Component snapshotStats(int whitelisted, int blacklisted, long age) {
+        return configUtils.noPrefixMessage("messages.chat.stats-snapshot",
+                String.valueOf(whitelisted), String.valueOf(blacklisted), String.valueOf(age));
+    }
+
+    public Component poolStats(int active, int max, int idle, int waiting,
+                               double averageAcquire, double maxAcquire, long timeouts) {
+        return configUtils.noPrefixMessage("messages.chat.stats-pool",
+                String.valueOf(active), String.valueOf(max), String.valueOf(idle),
+                String.valueOf(waiting), String.format(Locale.ROOT, "%.1f", averageAcquire),
+                String.format(Locale.ROOT, "%.1f", maxAcquire), String.valueOf(timeouts));
+    }
+
+    public Component geoipStats(String mode, long heapBytes, long countryBytes, long asnBytes) {
+        return configUtils.noPrefixMessage("messages.chat.stats-geoip", mode,
+                formatMegabytes(heapBytes), formatMegabytes(countryBytes), formatMegabytes(asnBytes));
+    }
+
+    public Component geoipNotLoaded() {
+        return configUtils.noPrefixMessage("messages.chat.stats-geoip-not-loaded");
+    }
+
+    private String formatMegabytes(long bytes) {
+        return String.format(Locale.ROOT, "%.1f", bytes / (1024D * 1024D));
+    }
+
+    public Component snapshotNotLoaded() {
+        return configUtils.noPrefixMessage("messages.chat.stats-snapshot-not-loaded");
+    }
+
+    public Component writeBufferStats(int pending, long saved, long merged, long dropped) {
+        return configUtils.noPrefixMessage("messages.chat.stats-write-buffer",
+                String.valueOf(pending), String.valueOf(saved),
+                String.valueOf(merged), String.valueOf(dropped));
+    }
+
     public Component configReloaded() {
         return configUtils.prefixedMessage("messages.chat.config-reloaded");
     }
@@ -53,6 +53,15 @@ public class ConfigUtils {
         return ColorUtils.decorate(Component.text(message));
     }
 
+    public Component noPrefixMessage(String key, String... arguments) {
+        String message = configProvider.getString(key);
+        if (message == null) return null;
+        for (String arg : arguments) {
+            message = message.replaceFirst("\\{}", arg);
+        }
+        return ColorUtils.decorate(Component.text(message));
+    }
+
     public Component listPrefixedMessage(String key) {
         return ColorUtils.decorate(Component.text(
                 configProvider.getString("messages.chat.prefix")
@@ -0,0 +1,100 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.data.geo;
+
+import org.jetbrains.annotations.Nullable;
+import xyz.yawek.barricade.Barricade;
+import xyz.yawek.barricade.util.LogUtils;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Networks compiled from the loaded GeoIP databases for a check.
+ * They are compiled in the background whenever the databases are replaced,
+ * the check has to look addresses up in the meantime.
+ */
+public class CompiledNetworks {
+
+    private final Barricade barricade;
+    private final String name;
+    private final Compiler compiler;
+    private final AtomicBoolean compiling = new AtomicBoolean();
+    private volatile Compiled compiled = new Compiled(0, null);
+
+    /**
+     * Creates networks and starts compiling them if the databases are loaded.
+     *
+     * @param barricade Barricade instance
+     * @param name name of the networks used in logs
+     * @param compiler function compiling the networks from the databases
+     */
+    public CompiledNetworks(Barricade barricade, String name, Compiler compiler) {
+        this.barricade = barricade;
+        this.name = name;
+        this.compiler = compiler;
+        get();
+    }
+
+    /**
+     * Gets the networks compiled from the loaded databases, starting their compilation
+     * if they are not compiled yet.
+     *
+     * @return compiled networks, null if they are not compiled yet or could not be compiled
+     */
+    public @Nullable IntervalTable get() {
+        GeoDataProvider geoDataProvider = barricade.getGeoDataProvider();
+        long generation = geoDataProvider.getGeneration();
+        Compiled current = compiled;
+        if (current.generation() == generation) return current.table();
+        if (generation != 0 && compiling.compareAndSet(false, true)) {
+            barricade.getServer().getScheduler()
+                    .buildTask(barricade, () -> compile(geoDataProvider, generation))
+                    .schedule();
+        }
+        return null;
+    }
+
+    private void compile(GeoDataProvider geoDataProvider, long generation) {
+        IntervalTable table = null;
+        try {
+            long start = System.currentTimeMillis();
+            table = compiler.compile(geoDataProvider);
+            LogUtils.info("Compiled {} intervals of {} in {}ms.", String.valueOf(table.size()),
+                    name, String.valueOf(System.currentTimeMillis() - start));
+        } catch (IOException | RuntimeException e) {
+            LogUtils.error("GeoIP networks of {} could not be compiled.", name);
+            e.printStackTrace();
+        } finally {
+            // Failed compilations are not retried until the databases are replaced
+            compiled = new Compiled(generation, table);
+            compiling.set(false);
+        }
+    }
+
+    @FunctionalInterface
+    public interface Compiler {
+
+        IntervalTable compile(GeoDataProvider geoDataProvider) throws IOException;
+
+    }
+
+    private record Compiled(long generation, @Nullable IntervalTable table) {}
+
+}
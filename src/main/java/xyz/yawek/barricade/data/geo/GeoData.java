@@ -0,0 +1,74 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.data.geo;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Country and ASN of an address, resolved once per connection.
+ */
+public class GeoData {
+
+    public static final GeoData UNKNOWN = new GeoData(-1, 0, false);
+
+    private final int countryIndex;
+    private final int asn;
+    private final boolean asnKnown;
+
+    public GeoData(int countryIndex, int asn, boolean asnKnown) {
+        this.countryIndex = countryIndex;
+        this.asn = asn;
+        this.asnKnown = asnKnown;
+    }
+
+    /**
+     * Converts an ISO 3166-1 alpha-2 country code to a number between 0 and 675.
+     *
+     * @param isoCode country code
+     * @return index of the country, -1 if the code is not two latin letters
+     */
+    public static int countryIndex(@Nullable String isoCode) {
+        if (isoCode == null || isoCode.length() != 2) return -1;
+        int first = Character.toUpperCase(isoCode.charAt(0)) - 'A';
+        int second = Character.toUpperCase(isoCode.charAt(1)) - 'A';
+        if (first < 0 || first >= 26 || second < 0 || second >= 26) return -1;
+        return first * 26 + second;
+    }
+
+    /**
+     * Gets index of the country as returned by {@link #countryIndex(String)}.
+     *
+     * @return index of the country, -1 if it is not known
+     */
+    public int getCountryIndex() {
+        return countryIndex;
+    }
+
+    /**
+     * Gets the autonomous system number, stored as unsigned.
+     */
+    public int getAsn() {
+        return asn;
+    }
+
+    public boolean isAsnKnown() {
+        return asnKnown;
+    }
+
+}
@@ -18,145 +18,386 @@
 
 package xyz.yawek.barricade.data.geo;
 
-import com.maxmind.db.CHMCache;
+import com.maxmind.db.DatabaseRecord;
+import com.maxmind.db.InvalidNetworkException;
+import com.maxmind.db.Network;
+import com.maxmind.db.Networks;
+import com.maxmind.db.NetworksIterationException;
 import com.maxmind.db.Reader;
 import com.maxmind.geoip2.DatabaseReader;
 import com.maxmind.geoip2.exception.GeoIp2Exception;
+import com.maxmind.geoip2.model.AsnResponse;
+import com.maxmind.geoip2.model.CountryResponse;
+import org.jetbrains.annotations.Nullable;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.net.Inet4Address;
 import java.net.InetAddress;
-import java.net.URL;
-import java.nio.channels.Channels;
-import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Locale;
 import java.util.Optional;
-import java.util.zip.GZIPInputStream;
-import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
-import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
-import org.apache.commons.compress.utils.IOUtils;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
 import xyz.yawek.barricade.Barricade;
+import xyz.yawek.barricade.config.Config;
+import xyz.yawek.barricade.manager.cache.ExpiringCache;
+import xyz.yawek.barricade.manager.snapshot.AddressRange;
+import xyz.yawek.barricade.manager.snapshot.ListKey;
 import xyz.yawek.barricade.util.LogUtils;
 
 public class GeoDataProvider {
 
+    private static final byte[] SAMPLE_ADDRESS = {1, 1, 1, 1};
+    // Results of networks at least this large are cached for the whole /24 or /48 of the address
+    private static final int IPV4_CACHED_PREFIX = 96 + 24;
+    private static final int IPV6_CACHED_PREFIX = 48;
+    private static final int IPV4_MAPPED_BITS = 96;
+    // Copies of the saved databases which readers are loaded from, numbered by their generation
+    private static final Pattern LOADED_COPY = Pattern.compile("GeoLite2-(Country|ASN)\\.\\d+\\.mmdb");
+
     private final Barricade barricade;
-    private DatabaseReader countryReader;
-    private DatabaseReader asnReader;
+    private final AtomicReference<GeoDatabases> databases = new AtomicReference<>();
+    private final AtomicLong generations = new AtomicLong();
+    private final ExpiringCache<AddressRange, GeoData> cache;
+    private final GeoDownloader downloader = new GeoDownloader();
+    private final File dataFolder;
+    private final File countryFile;
+    private final File asnFile;
 
     public GeoDataProvider(Barricade barricade) {
         this.barricade = barricade;
+        Config config = barricade.getConfig();
+        this.cache = new ExpiringCache<>(config.geoipCacheMaxSize(),
+                Duration.ofSeconds(config.geoipCacheExpireAfter()));
+        this.dataFolder = barricade.getDataDirectory().toFile();
+        this.countryFile = new File(dataFolder, "GeoLite2-Country.mmdb");
+        this.asnFile = new File(dataFolder, "GeoLite2-ASN.mmdb");
 
-        loadDatabases();
+        deleteLoadedCopies();
+        // Saved databases are used right away, so startup does not wait for a download
+        if (countryFile.exists() && asnFile.exists()) {
+            LogUtils.info("Loading GeoIP databases...");
+            publishDatabases(null, null);
+        }
+        if (!countryFile.exists() || !asnFile.exists() || isOutdated(countryFile) || isOutdated(asnFile)) {
+            barricade.getServer().getScheduler().buildTask(barricade, this::loadDatabases).schedule();
+        }
     }
 
-    public void loadDatabases() {
-        try {
-            String licenseKey = barricade.getConfig().geoipLicense();
-            if (licenseKey.equalsIgnoreCase("license_key")) {
-                logWarnNoSetup();
-                return;
-            }
-            File dataFolder = barricade.getDataDirectory().toFile();
-            File countryFile = new File(dataFolder, "GeoLite2-Country.mmdb");
-            File countryArchiveFile = new File(dataFolder, "GeoLite2-Country.tar.gz");
-            File asnFile = new File(dataFolder, "GeoLite2-ASN.mmdb");
-            File asnArchiveFile = new File(dataFolder, "GeoLite2-ASN.tar.gz");
+    /**
+     * Downloads the databases if they were updated and replaces the loaded ones.
+     * Lookups keep using the previous databases until the new ones are loaded and checked,
+     * which are kept if any of that fails.
+     */
+    public synchronized void loadDatabases() {
+        String licenseKey = barricade.getConfig().geoipLicense();
+        if (licenseKey.equalsIgnoreCase("license_key")) {
+            logWarnNoSetup();
+            return;
+        }
+        LogUtils.info("Checking for GeoIP database updates...");
+        File countryDownload = downloadDBFile(countryFile, "GeoLite2-Country", licenseKey);
+        File asnDownload = downloadDBFile(asnFile, "GeoLite2-ASN", licenseKey);
+        if (countryDownload == null && asnDownload == null && databases.get() != null) {
+            LogUtils.info("GeoIP databases are up to date.");
+            return;
+        }
+        publishDatabases(countryDownload, asnDownload);
+    }
 
-            LogUtils.info("Loading GeoIP databases...");
-            if (countryReader != null) countryReader.close();
-            boolean shouldDownloadGeoFiles = !countryFile.exists() || !asnFile.exists();
-            if (!shouldDownloadGeoFiles) {
-                shouldDownloadGeoFiles = Duration.between(
-                    Files.getLastModifiedTime(countryFile.toPath()).toInstant(), Instant.now())
-                    .toSeconds() >= barricade.getConfig().geoipReloadPeriod();
+    /**
+     * Resolves country and ASN of the address with one lookup in each database.
+     * Results are cached for the networks they apply to, so other addresses
+     * of the network are resolved without reading the databases.
+     *
+     * @param inetAddress address to resolve
+     * @return country and ASN of the address, {@link GeoData#UNKNOWN} if databases are not loaded
+     */
+    public GeoData lookup(InetAddress inetAddress) {
+        ListKey key = ListKey.ofAddress(inetAddress);
+        AddressRange block = AddressRange.of(key,
+                key.isMappedIpv4() ? IPV4_CACHED_PREFIX : IPV6_CACHED_PREFIX);
+        Optional<GeoData> cached = cache.getIfPresent(block);
+        if (cached.isPresent()) return cached.get();
+        AddressRange address = AddressRange.of(key, 128);
+        cached = cache.getIfPresent(address);
+        if (cached.isPresent()) return cached.get();
+
+        long invalidationsBefore = cache.getInvalidations();
+        GeoDatabases current = acquireDatabases();
+        if (current == null) {
+            logWarnNoSetup();
+            return GeoData.UNKNOWN;
+        }
+        int countryIndex = -1;
+        int asn = 0;
+        boolean asnKnown = false;
+        // Without a record, the network it would apply to is not known
+        int countryPrefix = 128;
+        int asnPrefix = 128;
+        try {
+            Optional<CountryResponse> country = current.getCountryReader().tryCountry(inetAddress);
+            if (country.isPresent()) {
+                countryIndex = GeoData.countryIndex(country.get().getCountry().getIsoCode());
+                countryPrefix = prefixLength(country.get().getTraits().getNetwork());
             }
-            if (shouldDownloadGeoFiles) {
-                downloadDBFile(countryFile, countryArchiveFile,
-                    "https://download.maxmind.com/app/geoip_download" +
-                        "?edition_id=GeoLite2-Country&license_key=" +
-                        licenseKey +
-                        "&suffix=tar.gz");
+            Optional<AsnResponse> asnResponse = current.getAsnReader().tryAsn(inetAddress);
+            if (asnResponse.isPresent()) {
+                asnPrefix = prefixLength(asnResponse.get().getNetwork());
+                if (asnResponse.get().getAutonomousSystemNumber() != null) {
+                    asn = asnResponse.get().getAutonomousSystemNumber().intValue();
+                    asnKnown = true;
+                }
             }
-            if (asnReader != null) asnReader.close();
-            if (shouldDownloadGeoFiles) {
-                downloadDBFile(asnFile, asnArchiveFile,
-                    "https://download.maxmind.com/app/geoip_download" +
-                        "?edition_id=GeoLite2-ASN&license_key=" +
-                        licenseKey +
-                        "&suffix=tar.gz");
+        } catch (IOException | GeoIp2Exception e) {
+            return new GeoData(countryIndex, asn, asnKnown);
+        } finally {
+            current.release();
+        }
+        GeoData geoData = new GeoData(countryIndex, asn, asnKnown);
+        // The result applies to the smaller one of the country and ASN networks
+        cache.putLoaded(Math.max(countryPrefix, asnPrefix) <= block.prefixLength() ? block : address,
+                geoData, invalidationsBefore);
+        return geoData;
+    }
+
+    /**
+     * Walks the loaded ASN database once, collecting networks of the matching ASNs.
+     *
+     * @param asnFilter filter of autonomous system numbers
+     * @return networks of the matching ASNs
+     * @throws IOException if the database could not be read
+     */
+    public IntervalTable compileAsnNetworks(IntPredicate asnFilter) throws IOException {
+        return compileNetworks(GeoDatabases::getAsnFile, AsnResponse.class, response ->
+                response.getAutonomousSystemNumber() != null
+                        && asnFilter.test(response.getAutonomousSystemNumber().intValue()));
+    }
+
+    /**
+     * Walks the loaded country database once, collecting networks of the matching countries.
+     *
+     * @param countryFilter filter of country indexes, see {@link GeoData#countryIndex(String)}
+     * @return networks of the matching countries
+     * @throws IOException if the database could not be read
+     */
+    public IntervalTable compileCountryNetworks(IntPredicate countryFilter) throws IOException {
+        return compileNetworks(GeoDatabases::getCountryFile, CountryResponse.class, response -> {
+            int countryIndex = GeoData.countryIndex(response.getCountry().getIsoCode());
+            return countryIndex != -1 && countryFilter.test(countryIndex);
+        });
+    }
+
+    /**
+     * Gets the number of the loaded databases, which changes every time they are replaced.
+     *
+     * @return generation of the loaded databases, 0 if they are not loaded
+     */
+    public long getGeneration() {
+        GeoDatabases current = databases.get();
+        return current != null ? current.getGeneration() : 0;
+    }
+
+    public ExpiringCache<AddressRange, GeoData> getCache() {
+        return cache;
+    }
+
+    /**
+     * Gets how the databases are read, {@link Reader.FileMode#MEMORY} copies them
+     * onto the heap and {@link Reader.FileMode#MEMORY_MAPPED} reads them from the page cache.
+     *
+     * @return mode of the loaded databases, null if they are not loaded
+     */
+    public @Nullable Reader.FileMode getFileMode() {
+        GeoDatabases current = databases.get();
+        return current != null ? current.getFileMode() : null;
+    }
+
+    /**
+     * Gets the size in bytes of the loaded country database.
+     */
+    public long getCountrySize() {
+        GeoDatabases current = databases.get();
+        return current != null ? current.getCountrySize() : 0;
+    }
+
+    /**
+     * Gets the size in bytes of the loaded ASN database.
+     */
+    public long getAsnSize() {
+        GeoDatabases current = databases.get();
+        return current != null ? current.getAsnSize() : 0;
+    }
+
+    /**
+     * Gets the number of bytes of the loaded databases held on the heap.
+     */
+    public long getHeapSize() {
+        GeoDatabases current = databases.get();
+        if (current == null || current.getFileMode() != Reader.FileMode.MEMORY) return 0;
+        return current.getCountrySize() + current.getAsnSize();
+    }
+
+    private static int prefixLength(@Nullable Network network) {
+        if (network == null) return 128;
+        return network.getNetworkAddress() instanceof Inet4Address
+                ? network.getPrefixLength() + IPV4_MAPPED_BITS : network.getPrefixLength();
+    }
+
+    private <T> IntervalTable compileNetworks(Function<GeoDatabases, File> file, Class<T> recordClass,
+                                              Predicate<T> filter) throws IOException {
+        // The databases are held during the walk, so their files are not deleted in the meantime
+        GeoDatabases current = acquireDatabases();
+        if (current == null) throw new IOException("GeoIP databases are not loaded.");
+        IntervalTable.Builder builder = new IntervalTable.Builder();
+        // Mapped only for the walk, so it does not copy the database onto the heap
+        try (Reader reader = new Reader(file.apply(current), Reader.FileMode.MEMORY_MAPPED)) {
+            // IPv4 networks aliased into 6to4 and Teredo ranges are left out
+            Networks<T> networks = reader.networks(false, recordClass);
+            while (networks.hasNext()) {
+                DatabaseRecord<T> record = networks.next();
+                if (record.getData() == null || !filter.test(record.getData())) continue;
+                Network network = record.getNetwork();
+                builder.add(ListKey.ofAddress(network.getNetworkAddress()), prefixLength(network));
             }
-            countryReader = loadReader("GeoLite2-Country.mmdb");
-            asnReader = loadReader("GeoLite2-ASN.mmdb");
-        } catch (IOException e) {
-            LogUtils.error("GeoIP files could not be loaded.");
-            e.printStackTrace();
+        } catch (InvalidNetworkException | NetworksIterationException e) {
+            throw new IOException(e);
+        } finally {
+            current.release();
         }
+        return builder.build();
     }
 
-    public Optional<String> getCountryCode(InetAddress inetAddress) {
-        if (countryReader == null) {
-            logWarnNoSetup();
-            return Optional.empty();
+    private @Nullable GeoDatabases acquireDatabases() {
+        while (true) {
+            GeoDatabases current = databases.get();
+            // Retired databases are already replaced, so the next read gets the new ones
+            if (current == null || current.acquire()) return current;
         }
-        try {
-            return Optional.of(countryReader.country(inetAddress).getCountry().getIsoCode());
-        } catch (IOException | GeoIp2Exception ignored) {}
-        return Optional.empty();
     }
 
-    public Optional<String> getAsnCode(InetAddress inetAddress) {
-        if (countryReader == null) {
-            logWarnNoSetup();
-            return Optional.empty();
+    /**
+     * Loads readers from copies of the files, so the saved files are never open
+     * and can be replaced on every system while the readers are used.
+     */
+    private GeoDatabases openDatabases(File countrySource, File asnSource) throws IOException, GeoIp2Exception {
+        Reader.FileMode fileMode = readFileMode();
+        long generation = generations.incrementAndGet();
+        File countryCopy = new File(dataFolder, "GeoLite2-Country." + generation + ".mmdb");
+        File asnCopy = new File(dataFolder, "GeoLite2-ASN." + generation + ".mmdb");
+        DatabaseReader countryReader = null;
+        DatabaseReader asnReader = null;
+        try {
+            Files.copy(countrySource.toPath(), countryCopy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Files.copy(asnSource.toPath(), asnCopy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            countryReader = loadReader(countryCopy, fileMode);
+            asnReader = loadReader(asnCopy, fileMode);
+            InetAddress sampleAddress = InetAddress.getByAddress(SAMPLE_ADDRESS);
+            countryReader.tryCountry(sampleAddress);
+            asnReader.tryAsn(sampleAddress);
+        } catch (IOException | GeoIp2Exception | RuntimeException e) {
+            if (countryReader != null) countryReader.close();
+            if (asnReader != null) asnReader.close();
+            countryCopy.delete();
+            asnCopy.delete();
+            throw e;
         }
+        return new GeoDatabases(countryReader, asnReader, countryCopy, asnCopy, fileMode,
+                countryCopy.length(), asnCopy.length(), generation);
+    }
+
+    /**
+     * Loads the downloaded databases, or the saved ones if they were not downloaded,
+     * and publishes them together for lookups.
+     */
+    private void publishDatabases(@Nullable File countryDownload, @Nullable File asnDownload) {
+        GeoDatabases loaded;
         try {
-            return Optional.of("AS" + asnReader.asn(inetAddress).getAutonomousSystemNumber());
-        } catch (IOException | GeoIp2Exception ignored) {}
-        return Optional.empty();
+            loaded = openDatabases(
+                    countryDownload != null ? countryDownload : countryFile,
+                    asnDownload != null ? asnDownload : asnFile);
+        } catch (IOException | GeoIp2Exception e) {
+            LogUtils.error("GeoIP files could not be loaded.");
+            e.printStackTrace();
+            if (countryDownload != null) countryDownload.delete();
+            if (asnDownload != null) asnDownload.delete();
+            return;
+        }
+        // A database which could not be saved stays outdated, so it is downloaded again on the next check
+        if (countryDownload != null) moveDownload(countryDownload, countryFile);
+        if (asnDownload != null) moveDownload(asnDownload, asnFile);
+        GeoDatabases previous = databases.getAndSet(loaded);
+        cache.invalidateAll();
+        if (previous != null) previous.retire();
     }
 
-    private void downloadDBFile(File targetFile, File archive, String urlString) {
+    /**
+     * Downloads a database next to the saved one, without replacing it.
+     *
+     * @return verified database, null if it was not updated or could not be downloaded
+     */
+    private @Nullable File downloadDBFile(File targetFile, String edition, String licenseKey) {
         try {
-            ReadableByteChannel readableByteChannel = Channels.newChannel(new URL(urlString).openStream());
-            FileOutputStream fileOutputStream = new FileOutputStream(archive);
-            fileOutputStream.getChannel()
-                    .transferFrom(readableByteChannel, 0, Long.MAX_VALUE);
-            fileOutputStream.close();
-
-            TarArchiveInputStream tarInput =
-                    new TarArchiveInputStream(new GZIPInputStream(new FileInputStream(archive)));
-            TarArchiveEntry entry = tarInput.getNextTarEntry();
-            while (entry != null) {
-                String[] entriesNames = entry.getName().split("/");
-                if (entriesNames[entriesNames.length - 1].equals(targetFile.getName())) {
-                    FileOutputStream outputStream = new FileOutputStream(targetFile);
-                    IOUtils.copy(tarInput, outputStream);
-                    outputStream.close();
-                }
-                entry = tarInput.getNextTarEntry();
+            File download = downloader.download("https://download.maxmind.com/app/geoip_download" +
+                    "?edition_id=" + edition + "&license_key=" + licenseKey + "&suffix=tar.gz", targetFile);
+            if (download != null) {
+                LogUtils.info("GeoIP {} database has been downloaded successfully!", targetFile.getName());
             }
-            tarInput.close();
-            LogUtils.info("GeoIP {} database has been downloaded successfully!", targetFile.getName());
+            return download;
         } catch (IOException e) {
             LogUtils.error("GeoIP {} file could not be downloaded.", targetFile.getName());
             e.printStackTrace();
-        } finally {
-            archive.delete();
+        }
+        return null;
+    }
+
+    private boolean isOutdated(File file) {
+        return Duration.between(Instant.ofEpochMilli(file.lastModified()), Instant.now())
+                .toSeconds() >= barricade.getConfig().geoipReloadPeriod();
+    }
+
+    private void moveDownload(File download, File targetFile) {
+        try {
+            Files.move(download.toPath(), targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            LogUtils.error("GeoIP {} database could not be saved, the loaded one is used until restart.",
+                    targetFile.getName());
+            e.printStackTrace();
+            download.delete();
+        }
+    }
+
+    private void deleteLoadedCopies() {
+        File[] copies = dataFolder.listFiles((folder, name) -> LOADED_COPY.matcher(name).matches());
+        if (copies == null) return;
+        for (File copy : copies) {
+            copy.delete();
         }
     }
 
-    private DatabaseReader loadReader(String fileName) throws IOException {
-        return new DatabaseReader.Builder(
-                new File(barricade.getDataDirectory().toFile(), fileName))
-                .withCache(new CHMCache())
-                .fileMode(Reader.FileMode.MEMORY)
+    private DatabaseReader loadReader(File file, Reader.FileMode fileMode) throws IOException {
+        return new DatabaseReader.Builder(file)
+                .fileMode(fileMode)
                 .build();
     }
 
+    private Reader.FileMode readFileMode() {
+        String mode = barricade.getConfig().geoipFileMode();
+        try {
+            return Reader.FileMode.valueOf(mode.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            LogUtils.warn("Unknown GeoIP file mode '{}', using MEMORY_MAPPED.", mode);
+            return Reader.FileMode.MEMORY_MAPPED;
+        }
+    }
+
     private void logWarnNoSetup() {
         LogUtils.warn("You have not set the GeoIP license key. " +
             "Setting valid license key is necessary for plugin to work.");
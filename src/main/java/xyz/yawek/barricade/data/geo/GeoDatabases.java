@@ -0,0 +1,137 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.data.geo;
+
+import com.maxmind.db.Reader;
+import com.maxmind.geoip2.DatabaseReader;
+import xyz.yawek.barricade.util.LogUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Country and ASN readers published together, so lookups always use databases
+ * loaded at the same time. Retired readers are closed after the last lookup using them finishes,
+ * and their files are deleted then.
+ */
+final class GeoDatabases {
+
+    private static final int RETIRED = Integer.MIN_VALUE;
+
+    private final DatabaseReader countryReader;
+    private final DatabaseReader asnReader;
+    private final File countryFile;
+    private final File asnFile;
+    private final Reader.FileMode fileMode;
+    private final long countrySize;
+    private final long asnSize;
+    private final long generation;
+    // Number of running lookups, offset by RETIRED once the readers are replaced
+    private final AtomicInteger users = new AtomicInteger();
+
+    GeoDatabases(DatabaseReader countryReader, DatabaseReader asnReader, File countryFile, File asnFile,
+                 Reader.FileMode fileMode, long countrySize, long asnSize, long generation) {
+        this.countryReader = countryReader;
+        this.asnReader = asnReader;
+        this.countryFile = countryFile;
+        this.asnFile = asnFile;
+        this.fileMode = fileMode;
+        this.countrySize = countrySize;
+        this.asnSize = asnSize;
+        this.generation = generation;
+    }
+
+    /**
+     * Marks the readers as used by a lookup, which must call {@link #release()} when it finishes.
+     *
+     * @return false if the readers are retired and must not be used
+     */
+    boolean acquire() {
+        int current;
+        do {
+            current = users.get();
+            if (current < 0) return false;
+        } while (!users.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    void release() {
+        if (users.decrementAndGet() == RETIRED) close();
+    }
+
+    /**
+     * Stops new lookups from using the readers and closes them when no lookup uses them.
+     */
+    void retire() {
+        if (users.addAndGet(RETIRED) == RETIRED) close();
+    }
+
+    DatabaseReader getCountryReader() {
+        return countryReader;
+    }
+
+    DatabaseReader getAsnReader() {
+        return asnReader;
+    }
+
+    /**
+     * Gets the file the country reader was loaded from.
+     */
+    File getCountryFile() {
+        return countryFile;
+    }
+
+    /**
+     * Gets the file the ASN reader was loaded from.
+     */
+    File getAsnFile() {
+        return asnFile;
+    }
+
+    Reader.FileMode getFileMode() {
+        return fileMode;
+    }
+
+    long getCountrySize() {
+        return countrySize;
+    }
+
+    long getAsnSize() {
+        return asnSize;
+    }
+
+    long getGeneration() {
+        return generation;
+    }
+
+    private void close() {
+        try {
+            countryReader.close();
+            asnReader.close();
+        } catch (IOException e) {
+            LogUtils.error("GeoIP databases could not be closed.");
+            e.printStackTrace();
+        }
+        // Files still mapped on Windows cannot be deleted yet, they are deleted on the next start
+        countryFile.delete();
+        asnFile.delete();
+    }
+
+}
@@ -0,0 +1,155 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.data.geo;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Downloads a database from a tar.gz archive in a single pass, extracting it while
+ * the SHA-256 checksum of the archive is computed, without saving the archive.
+ */
+public class GeoDownloader {
+
+    private static final int CONNECT_TIMEOUT = 10_000;
+    private static final int READ_TIMEOUT = 60_000;
+
+    /**
+     * Downloads the database if the archive was modified since the target file was last modified.
+     * The checksum of the archive is read from the same URL with ".sha256" appended,
+     * as published by MaxMind.
+     *
+     * @param url URL of the tar.gz archive
+     * @param targetFile database file to extract from the archive, which is not replaced
+     * @return verified database next to the target file, or null if the archive was not modified
+     * @throws IOException if the download fails or the checksum does not match
+     */
+    public @Nullable File download(String url, File targetFile) throws IOException {
+        HttpURLConnection connection = open(url);
+        try {
+            if (targetFile.exists()) connection.setIfModifiedSince(targetFile.lastModified());
+            int status = connection.getResponseCode();
+            if (status != HttpURLConnection.HTTP_OK && status != HttpURLConnection.HTTP_NOT_MODIFIED) {
+                throw new IOException("Server responded with status " + status + ".");
+            }
+            long lastModified = connection.getLastModified();
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED
+                    || (lastModified != 0 && targetFile.exists() && lastModified <= targetFile.lastModified())) {
+                // The target file stays the latest one, so it is marked as checked now
+                targetFile.setLastModified(System.currentTimeMillis());
+                return null;
+            }
+            String checksum = readChecksum(url + ".sha256");
+
+            File extractedFile = new File(targetFile.getParentFile(), targetFile.getName() + ".tmp");
+            try {
+                String actualChecksum = extract(connection.getInputStream(), targetFile.getName(), extractedFile);
+                if (!actualChecksum.equals(checksum)) {
+                    throw new IOException("Checksum " + actualChecksum + " of the archive does not match "
+                            + checksum + ".");
+                }
+                return extractedFile;
+            } catch (IOException | RuntimeException e) {
+                extractedFile.delete();
+                throw e;
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private String readChecksum(String url) throws IOException {
+        HttpURLConnection connection = open(url);
+        try {
+            int status = connection.getResponseCode();
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Server responded with status " + status + " to the checksum request.");
+            }
+            String content;
+            try (InputStream inputStream = connection.getInputStream()) {
+                content = new String(inputStream.readNBytes(1024), StandardCharsets.US_ASCII).trim();
+            }
+            // The checksum is followed by the name of the archive
+            String checksum = content.split("\\s+")[0].toLowerCase(Locale.ROOT);
+            if (checksum.length() != 64) throw new IOException("Checksum '" + content + "' is not valid.");
+            return checksum;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Extracts the file from the archive stream, reading the stream to its end.
+     *
+     * @return hex SHA-256 checksum of the whole archive
+     */
+    private String extract(InputStream archiveStream, String fileName, File extractedFile) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        boolean extracted = false;
+        try (DigestInputStream digestStream = new DigestInputStream(
+                new BufferedInputStream(archiveStream), digest);
+             GZIPInputStream gzipStream = new GZIPInputStream(digestStream);
+             TarArchiveInputStream tarStream = new TarArchiveInputStream(gzipStream)) {
+            TarArchiveEntry entry;
+            while ((entry = tarStream.getNextEntry()) != null) {
+                String[] entryNames = entry.getName().split("/");
+                if (!extracted && entryNames[entryNames.length - 1].equals(fileName)) {
+                    Files.copy(tarStream, extractedFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                    extracted = true;
+                }
+            }
+            // Bytes after the end of the tar are a part of the checksum too
+            gzipStream.transferTo(OutputStream.nullOutputStream());
+            digestStream.transferTo(OutputStream.nullOutputStream());
+        }
+        if (!extracted) throw new IOException("File " + fileName + " was not found in the archive.");
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private HttpURLConnection open(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT);
+        connection.setReadTimeout(READ_TIMEOUT);
+        return connection;
+    }
+
+}
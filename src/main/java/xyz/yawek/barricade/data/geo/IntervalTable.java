@@ -0,0 +1,144 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.data.geo;
+
+import xyz.yawek.barricade.manager.snapshot.ListKey;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sorted, disjoint intervals of addresses, stored in primitive arrays of the upper
+ * and lower 64 bits of their first and last addresses. IPv4 addresses are mapped into IPv6,
+ * like in {@link ListKey#ofAddress(java.net.InetAddress)}.
+ */
+public final class IntervalTable {
+
+    private final long[] startHigh;
+    private final long[] startLow;
+    private final long[] endHigh;
+    private final long[] endLow;
+
+    private IntervalTable(long[] startHigh, long[] startLow, long[] endHigh, long[] endLow) {
+        this.startHigh = startHigh;
+        this.startLow = startLow;
+        this.endHigh = endHigh;
+        this.endLow = endLow;
+    }
+
+    /**
+     * Checks if the address is in any of the intervals with a binary search.
+     *
+     * @param key key of the address
+     * @return true if an interval contains the address
+     */
+    public boolean contains(ListKey key) {
+        long high = key.high();
+        long low = key.low();
+        // Finds the last interval starting at or before the address
+        int from = 0;
+        int to = startHigh.length - 1;
+        int found = -1;
+        while (from <= to) {
+            int middle = (from + to) >>> 1;
+            if (compare(startHigh[middle], startLow[middle], high, low) <= 0) {
+                found = middle;
+                from = middle + 1;
+            } else {
+                to = middle - 1;
+            }
+        }
+        return found != -1 && compare(high, low, endHigh[found], endLow[found]) <= 0;
+    }
+
+    public int size() {
+        return startHigh.length;
+    }
+
+    private static int compare(long firstHigh, long firstLow, long secondHigh, long secondLow) {
+        int result = Long.compareUnsigned(firstHigh, secondHigh);
+        return result != 0 ? result : Long.compareUnsigned(firstLow, secondLow);
+    }
+
+    public static class Builder {
+
+        private final List<long[]> intervals = new ArrayList<>();
+
+        /**
+         * Adds all addresses of the network.
+         *
+         * @param network first address of the network
+         * @param prefixLength number of leading bits shared by addresses in the network, 0 to 128
+         * @return this builder
+         */
+        public Builder add(ListKey network, int prefixLength) {
+            long highHost = prefixLength >= 64 ? 0 : -1L >>> prefixLength;
+            long lowHost = prefixLength <= 64 ? -1L : prefixLength >= 128 ? 0 : -1L >>> (prefixLength - 64);
+            intervals.add(new long[]{network.high() & ~highHost, network.low() & ~lowHost,
+                    network.high() | highHost, network.low() | lowHost});
+            return this;
+        }
+
+        /**
+         * Sorts the added intervals and merges the overlapping and adjacent ones.
+         */
+        public IntervalTable build() {
+            intervals.sort((first, second) -> compare(first[0], first[1], second[0], second[1]));
+            List<long[]> merged = new ArrayList<>();
+            for (long[] interval : intervals) {
+                long[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+                if (last != null && follows(last, interval)) {
+                    if (compare(interval[2], interval[3], last[2], last[3]) > 0) {
+                        last[2] = interval[2];
+                        last[3] = interval[3];
+                    }
+                } else {
+                    merged.add(interval.clone());
+                }
+            }
+            int size = merged.size();
+            long[] startHigh = new long[size];
+            long[] startLow = new long[size];
+            long[] endHigh = new long[size];
+            long[] endLow = new long[size];
+            for (int i = 0; i < size; i++) {
+                long[] interval = merged.get(i);
+                startHigh[i] = interval[0];
+                startLow[i] = interval[1];
+                endHigh[i] = interval[2];
+                endLow[i] = interval[3];
+            }
+            return new IntervalTable(startHigh, startLow, endHigh, endLow);
+        }
+
+        /**
+         * Checks if the interval starts inside the previous one or right after its end.
+         */
+        private static boolean follows(long[] previous, long[] interval) {
+            if (compare(interval[0], interval[1], previous[2], previous[3]) <= 0) return true;
+            // The address after the end of the previous interval, unless it is the last address
+            long nextLow = previous[3] + 1;
+            long nextHigh = nextLow == 0 ? previous[2] + 1 : previous[2];
+            if (nextLow == 0 && nextHigh == 0) return false;
+            return interval[0] == nextHigh && interval[1] == nextLow;
+        }
+
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.data.storage;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded buffer of nickname and address pairs waiting to be saved to the database.
+ * Pairs already waiting in the buffer are merged instead of being buffered again,
+ * counting the connections of each pair.
+ */
+public class ConnectionWriteBuffer {
+
+    private final Map<ConnectionRecord, Integer> pending = new ConcurrentHashMap<>();
+    private final Semaphore freeSlots;
+    private final boolean blockOnOverflow;
+    private final long blockTimeoutMillis;
+    private final LongAdder merged = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder drained = new LongAdder();
+
+    /**
+     * @param capacity maximum number of distinct pairs in the buffer
+     * @param blockOnOverflow whether to wait for a free slot when the buffer is full
+     * @param blockTimeoutMillis maximum time in milliseconds to wait for a free slot
+     */
+    public ConnectionWriteBuffer(int capacity, boolean blockOnOverflow, long blockTimeoutMillis) {
+        this.freeSlots = new Semaphore(Math.max(1, capacity));
+        this.blockOnOverflow = blockOnOverflow;
+        this.blockTimeoutMillis = blockTimeoutMillis;
+    }
+
+    /**
+     * Adds the pair to the buffer.
+     *
+     * @param nickname nickname of the connecting player
+     * @param address address of the connecting player
+     * @return false if the pair has been dropped because the buffer is full
+     */
+    public boolean offer(String nickname, String address) {
+        ConnectionRecord record = new ConnectionRecord(nickname, address);
+        if (pending.computeIfPresent(record, (key, connections) -> connections + 1) != null) {
+            merged.increment();
+            return true;
+        }
+        if (!acquireSlot()) {
+            dropped.increment();
+            return false;
+        }
+        if (pending.merge(record, 1, Integer::sum) > 1) {
+            freeSlots.release();
+            merged.increment();
+        }
+        return true;
+    }
+
+    /**
+     * Removes all buffered pairs from the buffer.
+     *
+     * @return removed pairs with their numbers of connections
+     */
+    public synchronized Map<ConnectionRecord, Integer> drain() {
+        Map<ConnectionRecord, Integer> records = new LinkedHashMap<>();
+        Iterator<ConnectionRecord> iterator = pending.keySet().iterator();
+        while (iterator.hasNext()) {
+            ConnectionRecord record = iterator.next();
+            // Removing reads the final count, merges after it buffer the pair again
+            Integer connections = pending.remove(record);
+            if (connections == null) continue;
+            records.put(record, connections);
+            freeSlots.release();
+        }
+        drained.add(records.size());
+        return records;
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    public long getMerged() {
+        return merged.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getDrained() {
+        return drained.sum();
+    }
+
+    private boolean acquireSlot() {
+        if (!blockOnOverflow) return freeSlots.tryAcquire();
+        try {
+            return freeSlots.tryAcquire(blockTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public record ConnectionRecord(String nickname, String address) {}
+
+}
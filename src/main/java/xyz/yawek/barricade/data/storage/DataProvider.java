@@ -18,13 +18,33 @@
 
 package xyz.yawek.barricade.data.storage;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import org.jetbrains.annotations.Nullable;
 import xyz.yawek.barricade.Barricade;
+import xyz.yawek.barricade.config.Config;
+import xyz.yawek.barricade.data.storage.ConnectionWriteBuffer.ConnectionRecord;
+import xyz.yawek.barricade.data.storage.activity.ActivityDataAccess;
 import xyz.yawek.barricade.data.storage.address.AddressDataAccess;
+import xyz.yawek.barricade.data.storage.address.AsyncAddressDataAccess;
+import xyz.yawek.barricade.data.storage.cluster.ClusterBackend;
+import xyz.yawek.barricade.data.storage.flags.FlagsDataAccess;
+import xyz.yawek.barricade.data.storage.range.RangeDataAccess;
+import xyz.yawek.barricade.data.storage.retention.RetentionDataAccess;
+import xyz.yawek.barricade.data.storage.user.AsyncUserDataAccess;
 import xyz.yawek.barricade.data.storage.user.UserDataAccess;
 import xyz.yawek.barricade.user.ConnectingUser;
+import xyz.yawek.barricade.user.ConnectionFlags;
 import xyz.yawek.barricade.user.StoredAddress;
+import xyz.yawek.barricade.user.StoredFlags;
 import xyz.yawek.barricade.user.StoredUser;
 
 public class DataProvider {
@@ -32,30 +52,99 @@ public class DataProvider {
     private final DatabaseConnector databaseConnector;
     private final AddressDataAccess addressDataAccess;
     private final UserDataAccess userDataAccess;
+    private final RangeDataAccess rangeDataAccess;
+    private final FlagsDataAccess flagsDataAccess;
+    private final RetentionDataAccess retentionDataAccess;
+    private final ActivityDataAccess activityDataAccess;
+    private final DatabaseExecutor executor;
+    private final AsyncAddressDataAccess asyncAddressDataAccess;
+    private final AsyncUserDataAccess asyncUserDataAccess;
+    private final ConnectionWriteBuffer writeBuffer;
+    private final Set<String> joinedNicknames = ConcurrentHashMap.newKeySet();
+    private final int writeBatchSize;
 
     public DataProvider(Barricade barricade) {
         this.databaseConnector = new DatabaseConnector(barricade);
         this.addressDataAccess = databaseConnector.getAddressDataAccess();
         this.userDataAccess = databaseConnector.getUserDataAccess();
+        this.rangeDataAccess = databaseConnector.getRangeDataAccess();
+        this.flagsDataAccess = databaseConnector.getFlagsDataAccess();
+        this.retentionDataAccess = databaseConnector.getRetentionDataAccess();
+        this.activityDataAccess = databaseConnector.getActivityDataAccess();
+
+        Config config = barricade.getConfig();
+        this.executor = new DatabaseExecutor(Math.max(1, config.databaseThreads()),
+                Math.max(1, config.databaseQueueSize()));
+        this.asyncAddressDataAccess = new AsyncAddressDataAccess(addressDataAccess, executor);
+        this.asyncUserDataAccess = new AsyncUserDataAccess(userDataAccess, executor);
+        this.writeBuffer = new ConnectionWriteBuffer(config.writeBufferSize(),
+                config.writeOverflowPolicy().equalsIgnoreCase("block"),
+                config.writeBlockTimeout());
+        this.writeBatchSize = Math.max(1, config.writeBatchSize());
     }
 
     public void shutdown() {
+        executor.shutdown();
+        flushConnectingUsers();
         databaseConnector.closeConnection();
     }
 
+    /**
+     * Buffers the connecting user's nickname and address,
+     * they are saved by the next {@link #flushConnectingUsers()}.
+     *
+     * @param connectingUser ConnectingUser instance
+     */
     public void updateConnectingUser(ConnectingUser connectingUser) {
-        String address = connectingUser.getStringAddress();
-        String nickname = connectingUser.getNickname();
-        Optional<StoredAddress> addressOptional = addressDataAccess.getAddress(address);
-        addressOptional.ifPresentOrElse(
-            sAddress -> addressDataAccess.addNickname(
-                sAddress.getAddress(), nickname, sAddress.isWhitelisted(),
-                sAddress.isBlacklisted()),
-            () -> addressDataAccess.addNickname(address, nickname, false, false));
-        Optional<StoredUser> userOptional = userDataAccess.getUser(nickname);
-        userOptional.ifPresentOrElse(sUser -> userDataAccess.addAddress(
-                sUser.getNickname(), address, sUser.isWhitelisted(), sUser.isBlacklisted()),
-            () -> userDataAccess.addAddress(nickname, address, false, false));
+        writeBuffer.offer(connectingUser.getNickname(), connectingUser.getStringAddress());
+    }
+
+    /**
+     * Buffers the nickname of a player who completed login,
+     * it is marked as joined by the next {@link #flushConnectingUsers()}.
+     *
+     * @param nickname nickname of the player
+     */
+    public void markJoined(String nickname) {
+        joinedNicknames.add(nickname);
+    }
+
+    /**
+     * Saves all buffered nicknames and addresses with batched upserts.
+     */
+    public synchronized void flushConnectingUsers() {
+        List<String> joined = new ArrayList<>(joinedNicknames);
+        joined.forEach(joinedNicknames::remove);
+        List<Map.Entry<ConnectionRecord, Integer>> records = new ArrayList<>(writeBuffer.drain().entrySet());
+        for (int from = 0; from < records.size(); from += writeBatchSize) {
+            List<Map.Entry<ConnectionRecord, Integer>> batch =
+                    records.subList(from, Math.min(records.size(), from + writeBatchSize));
+            Map<String, Map<String, Integer>> connectionsByAddress = new HashMap<>();
+            Map<String, Integer> connectionsByNickname = new HashMap<>();
+            for (Map.Entry<ConnectionRecord, Integer> entry : batch) {
+                ConnectionRecord record = entry.getKey();
+                connectionsByAddress.computeIfAbsent(record.address(), s -> new HashMap<>())
+                        .put(record.nickname(), entry.getValue());
+                connectionsByNickname.merge(record.nickname(), entry.getValue(), Integer::sum);
+            }
+            userDataAccess.addUsers(connectionsByNickname);
+            addressDataAccess.addNicknames(connectionsByAddress);
+        }
+        for (int from = 0; from < joined.size(); from += writeBatchSize) {
+            userDataAccess.setJoined(joined.subList(from, Math.min(joined.size(), from + writeBatchSize)));
+        }
+    }
+
+    public @Nullable PoolMetrics getPoolMetrics() {
+        return databaseConnector.getPoolMetrics();
+    }
+
+    public @Nullable ClusterBackend getClusterBackend() {
+        return databaseConnector.getClusterBackend();
+    }
+
+    public ConnectionWriteBuffer getWriteBuffer() {
+        return writeBuffer;
     }
 
     public boolean isWhitelisted(ConnectingUser connectingUser) {
@@ -67,6 +156,53 @@ public class DataProvider {
         return userDataAccess.isWhitelisted(storedUser.getNickname());
     }
 
+    public boolean forEachFlaggedAddress(BiConsumer<String, StoredFlags> consumer) {
+        return addressDataAccess.forEachFlagged(consumer);
+    }
+
+    public boolean forEachFlaggedUser(BiConsumer<String, StoredFlags> consumer) {
+        return userDataAccess.forEachFlagged(consumer);
+    }
+
+    public boolean forEachJoinedNickname(Consumer<String> consumer) {
+        return userDataAccess.forEachJoinedNickname(consumer);
+    }
+
+    public boolean forEachBlacklistedRange(Consumer<String> consumer) {
+        return rangeDataAccess.forEachBlacklistedRange(consumer);
+    }
+
+    public void addBlacklistedRange(String cidr) {
+        rangeDataAccess.addBlacklistedRange(cidr);
+    }
+
+    public boolean addBlacklistedRanges(List<String> cidrs) {
+        return rangeDataAccess.addBlacklistedRanges(cidrs);
+    }
+
+    public void removeBlacklistedRange(String cidr) {
+        rangeDataAccess.removeBlacklistedRange(cidr);
+    }
+
+    public boolean setAddressesListed(List<String> addresses, boolean blacklist) {
+        return addressDataAccess.setListed(addresses, blacklist);
+    }
+
+    public boolean setNicknamesListed(List<String> nicknames, boolean blacklist) {
+        return userDataAccess.setListed(nicknames, blacklist);
+    }
+
+    /**
+     * Reads flags of the connecting user's nickname and address in one database round trip.
+     *
+     * @param nickname nickname of the user
+     * @param address address of the user
+     * @return flags of the nickname and the address or null if reading failed
+     */
+    public @Nullable ConnectionFlags getConnectionFlags(String nickname, String address) {
+        return flagsDataAccess.getFlags(nickname, address);
+    }
+
     public Optional<StoredAddress> getStoredAddress(String address) {
         return addressDataAccess.getAddress(address);
     }
@@ -75,6 +211,26 @@ public class DataProvider {
         return userDataAccess.getUser(nickname);
     }
 
+    public CompletableFuture<Optional<StoredAddress>> getStoredAddressAsync(String address) {
+        return asyncAddressDataAccess.getAddress(address);
+    }
+
+    public CompletableFuture<Optional<StoredUser>> getStoredUserAsync(String nickname) {
+        return asyncUserDataAccess.getUser(nickname);
+    }
+
+    public RetentionDataAccess getRetentionDataAccess() {
+        return retentionDataAccess;
+    }
+
+    public ActivityDataAccess getActivityDataAccess() {
+        return activityDataAccess;
+    }
+
+    public DatabaseExecutor getExecutor() {
+        return executor;
+    }
+
     public void addUser(@Nullable String nickname, @Nullable String address,
         boolean whitelisted, boolean blacklisted) {
         if (address != null) {
@@ -21,16 +21,36 @@ package xyz.yawek.barricade.data.storage;
 import com.zaxxer.hikari.HikariDataSource;
 import java.io.File;
 import java.io.IOException;
-import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import org.flywaydb.core.Flyway;
 import org.flywaydb.core.api.FlywayException;
+import org.jetbrains.annotations.Nullable;
 import xyz.yawek.barricade.Barricade;
 import xyz.yawek.barricade.config.Config;
+import xyz.yawek.barricade.data.storage.activity.ActivityDataAccess;
+import xyz.yawek.barricade.data.storage.activity.EmbeddedActivityDataAccess;
+import xyz.yawek.barricade.data.storage.activity.MySQLActivityDataAccess;
+import xyz.yawek.barricade.data.storage.activity.SQLiteActivityDataAccess;
 import xyz.yawek.barricade.data.storage.address.AddressDataAccess;
+import xyz.yawek.barricade.data.storage.address.EmbeddedAddressDataAccess;
 import xyz.yawek.barricade.data.storage.address.MySQLAddressDataAccess;
 import xyz.yawek.barricade.data.storage.address.SQLiteAddressDataAccess;
+import xyz.yawek.barricade.data.storage.cluster.ClusterBackend;
+import xyz.yawek.barricade.data.storage.cluster.MySQLClusterBackend;
+import xyz.yawek.barricade.data.storage.flags.EmbeddedFlagsDataAccess;
+import xyz.yawek.barricade.data.storage.flags.FlagsDataAccess;
+import xyz.yawek.barricade.data.storage.flags.MySQLFlagsDataAccess;
+import xyz.yawek.barricade.data.storage.flags.SQLiteFlagsDataAccess;
+import xyz.yawek.barricade.data.storage.migration.UserAddressLinksMigration;
+import xyz.yawek.barricade.data.storage.range.EmbeddedRangeDataAccess;
+import xyz.yawek.barricade.data.storage.range.MySQLRangeDataAccess;
+import xyz.yawek.barricade.data.storage.range.RangeDataAccess;
+import xyz.yawek.barricade.data.storage.range.SQLiteRangeDataAccess;
+import xyz.yawek.barricade.data.storage.retention.EmbeddedRetentionDataAccess;
+import xyz.yawek.barricade.data.storage.retention.MySQLRetentionDataAccess;
+import xyz.yawek.barricade.data.storage.retention.RetentionDataAccess;
+import xyz.yawek.barricade.data.storage.retention.SQLiteRetentionDataAccess;
+import xyz.yawek.barricade.data.storage.user.EmbeddedUserDataAccess;
 import xyz.yawek.barricade.data.storage.user.MySQLUserDataAccess;
 import xyz.yawek.barricade.data.storage.user.SQLiteUserDataAccess;
 import xyz.yawek.barricade.data.storage.user.UserDataAccess;
@@ -41,8 +61,15 @@ public class DatabaseConnector {
     private final Barricade barricade;
     private final AddressDataAccess addressDataAccess;
     private final UserDataAccess userDataAccess;
-    private Connection connection;
+    private final RangeDataAccess rangeDataAccess;
+    private final FlagsDataAccess flagsDataAccess;
+    private final RetentionDataAccess retentionDataAccess;
+    private final ActivityDataAccess activityDataAccess;
+    private final @Nullable ClusterBackend clusterBackend;
+    private SQLiteDatabase sqlite;
+    private LogStore logStore;
     private HikariDataSource hikari;
+    private PoolMetrics poolMetrics;
 
     public DatabaseConnector(Barricade barricade) {
         this.barricade = barricade;
@@ -51,10 +78,30 @@ public class DatabaseConnector {
             openMySQLConnection();
             this.addressDataAccess = new MySQLAddressDataAccess(hikari);
             this.userDataAccess = new MySQLUserDataAccess(hikari);
+            this.rangeDataAccess = new MySQLRangeDataAccess(hikari);
+            this.flagsDataAccess = new MySQLFlagsDataAccess(hikari);
+            this.retentionDataAccess = new MySQLRetentionDataAccess(hikari);
+            this.activityDataAccess = new MySQLActivityDataAccess(hikari);
+            this.clusterBackend = new MySQLClusterBackend(hikari,
+                    barricade.getConfig().clusterNodeTimeout());
+        } else if (barricade.getConfig().useEmbedded()) {
+            openLogStore();
+            this.addressDataAccess = new EmbeddedAddressDataAccess(logStore);
+            this.userDataAccess = new EmbeddedUserDataAccess(logStore);
+            this.rangeDataAccess = new EmbeddedRangeDataAccess(logStore);
+            this.flagsDataAccess = new EmbeddedFlagsDataAccess(logStore);
+            this.retentionDataAccess = new EmbeddedRetentionDataAccess(logStore);
+            this.activityDataAccess = new EmbeddedActivityDataAccess(logStore);
+            this.clusterBackend = null;
         } else {
             openSQLiteConnection();
-            this.addressDataAccess = new SQLiteAddressDataAccess(connection);
-            this.userDataAccess = new SQLiteUserDataAccess(connection);
+            this.addressDataAccess = new SQLiteAddressDataAccess(sqlite);
+            this.userDataAccess = new SQLiteUserDataAccess(sqlite);
+            this.rangeDataAccess = new SQLiteRangeDataAccess(sqlite);
+            this.flagsDataAccess = new SQLiteFlagsDataAccess(sqlite);
+            this.retentionDataAccess = new SQLiteRetentionDataAccess(sqlite);
+            this.activityDataAccess = new SQLiteActivityDataAccess(sqlite);
+            this.clusterBackend = null;
         }
     }
 
@@ -69,11 +116,26 @@ public class DatabaseConnector {
         hikari.addDataSourceProperty("user", config.databaseUser());
         hikari.addDataSourceProperty("password", config.databasePassword());
         hikari.setPoolName("barricade-hikari");
+        hikari.setMaximumPoolSize(config.poolMaximumSize());
+        hikari.setMinimumIdle(Math.min(config.poolMinimumIdle(), config.poolMaximumSize()));
+        hikari.setConnectionTimeout(config.poolConnectionTimeout());
+        hikari.setIdleTimeout(config.poolIdleTimeout());
+        hikari.setMaxLifetime(config.poolMaxLifetime());
+        hikari.setLeakDetectionThreshold(config.poolLeakDetectionThreshold());
+        // Statements closed by the data access are kept open by the driver and reused
+        hikari.addDataSourceProperty("cachePrepStmts", config.poolCacheStatements());
+        hikari.addDataSourceProperty("prepStmtCacheSize", config.poolStatementCacheSize());
+        hikari.addDataSourceProperty("prepStmtCacheSqlLimit", config.poolStatementCacheSqlLimit());
+        hikari.addDataSourceProperty("useServerPrepStmts", config.poolServerStatements());
+        hikari.addDataSourceProperty("rewriteBatchedStatements", config.poolRewriteBatchedStatements());
+        poolMetrics = new PoolMetrics();
+        hikari.setMetricsTrackerFactory(poolMetrics);
 
         try {
             Flyway.configure(barricade.getClass().getClassLoader())
                 .dataSource(hikari)
                 .locations("classpath:db/migration-mysql")
+                .javaMigrations(new UserAddressLinksMigration(true))
                 .baselineOnMigrate(true)
                 .load()
                 .migrate();
@@ -100,15 +162,16 @@ public class DatabaseConnector {
 
         try {
             Class.forName("org.sqlite.JDBC");
-            connection = DriverManager.getConnection("jdbc:sqlite:" + databaseFile);
+            String url = "jdbc:sqlite:" + databaseFile.getAbsolutePath();
 
             Flyway.configure(barricade.getClass().getClassLoader())
-                .dataSource("jdbc:sqlite:"
-                    + databaseFile.getAbsolutePath(), null, null)
+                .dataSource(url, null, null)
                 .locations("classpath:db/migration-sqlite")
+                .javaMigrations(new UserAddressLinksMigration(false))
                 .baselineOnMigrate(true)
                 .load()
                 .migrate();
+            sqlite = new SQLiteDatabase(url, barricade.getConfig());
             LogUtils.infoDataAccess("Database connection has been initialized successfully.");
         } catch (ClassNotFoundException | SQLException | FlywayException e) {
             LogUtils.errorDataAccess("Database connection could not be initialized.");
@@ -116,13 +179,36 @@ public class DatabaseConnector {
         }
     }
 
+    private void openLogStore() {
+        Config config = barricade.getConfig();
+        // Segments are mapped as a whole, so they have to fit into an int
+        int segmentSize = Math.max(1, Math.min(config.embeddedSegmentSize(), 1024)) * 1024 * 1024;
+        try {
+            logStore = new LogStore(barricade.getDataDirectory().resolve("embedded"),
+                    segmentSize, config.embeddedCompactionThreshold());
+            LogUtils.infoDataAccess("Database connection has been initialized successfully.");
+        } catch (IOException e) {
+            LogUtils.errorDataAccess("Database connection could not be initialized.");
+            e.printStackTrace();
+        }
+    }
+
     public void closeConnection() {
         if (barricade.getConfig().useMySQL()) {
             hikari.close();
             LogUtils.infoDataAccess("Database connection has been closed.");
+        } else if (barricade.getConfig().useEmbedded()) {
+            try {
+                logStore.close();
+                LogUtils.infoDataAccess("Database connection has been closed.");
+            } catch (IOException e) {
+                LogUtils.errorDataAccess("An error occurred while trying " +
+                        "to close database connection.");
+                e.printStackTrace();
+            }
         } else {
             try {
-                connection.close();
+                sqlite.close();
                 LogUtils.infoDataAccess("Database connection has been closed.");
             } catch (SQLException e) {
                 LogUtils.errorDataAccess("An error occurred while trying " +
@@ -132,6 +218,15 @@ public class DatabaseConnector {
         }
     }
 
+    /**
+     * Gets metrics of the connection pool.
+     *
+     * @return metrics or null if MySQL is not used
+     */
+    public @Nullable PoolMetrics getPoolMetrics() {
+        return poolMetrics;
+    }
+
     public AddressDataAccess getAddressDataAccess() {
         return addressDataAccess;
     }
@@ -140,4 +235,29 @@ public class DatabaseConnector {
         return userDataAccess;
     }
 
+    public RangeDataAccess getRangeDataAccess() {
+        return rangeDataAccess;
+    }
+
+    public FlagsDataAccess getFlagsDataAccess() {
+        return flagsDataAccess;
+    }
+
+    public RetentionDataAccess getRetentionDataAccess() {
+        return retentionDataAccess;
+    }
+
+    public ActivityDataAccess getActivityDataAccess() {
+        return activityDataAccess;
+    }
+
+    /**
+     * Gets the backend of cluster counters.
+     *
+     * @return backend or null if MySQL is not used
+     */
+    public @Nullable ClusterBackend getClusterBackend() {
+        return clusterBackend;
+    }
+
 }
@@ -0,0 +1,364 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.data.storage;
+
+import org.jetbrains.annotations.Nullable;
+import xyz.yawek.barricade.user.StoredFlags;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Base of the data access to the {@link LogStore}. Users and addresses are stored in fixed-size
+ * entries, and so is every link between them, so recording a connection appends records of
+ * the same size however many links there are. Linked nicknames and addresses are listed in
+ * pages of at most {@value #LINK_PAGE_SIZE} keys, which are only written when a link is added
+ * or removed.
+ */
+public abstract class EmbeddedDataAccess {
+
+    protected static final String USER = "user:";
+    protected static final String ADDRESS = "address:";
+    protected static final String RANGE = "range:";
+    // Addresses never contain a slash, so it separates them from nicknames in the keys of links
+    private static final String LINK = "link:";
+    private static final String LINK_PAGE = "links:";
+    private static final int LINK_PAGE_SIZE = 64;
+
+    protected final LogStore store;
+
+    protected EmbeddedDataAccess(LogStore store) {
+        this.store = store;
+    }
+
+    protected @Nullable Entry getEntry(String key) {
+        byte[] value = store.get(key);
+        return value != null ? Entry.decode(value) : null;
+    }
+
+    /**
+     * Atomically replaces a stored entry.
+     *
+     * @param key key of the entry
+     * @param function function of the current entry, or null if it is not stored,
+     *                 returning the new entry, or null to delete it
+     * @throws IOException if the entry cannot be written
+     */
+    protected void updateEntry(String key, UnaryOperator<@Nullable Entry> function) throws IOException {
+        store.update(key, value -> {
+            Entry entry = function.apply(value != null ? Entry.decode(value) : null);
+            return entry != null ? entry.encode() : null;
+        });
+    }
+
+    /**
+     * Reads all entries of one kind.
+     *
+     * @param prefix prefix of the keys of the entries
+     * @param consumer consumer of the keys without the prefix and the entries
+     */
+    protected void forEachEntry(String prefix, BiConsumer<String, Entry> consumer) {
+        forEachEntryWhile(prefix, (key, entry) -> {
+            consumer.accept(key, entry);
+            return true;
+        });
+    }
+
+    /**
+     * Reads entries of one kind until the consumer returns false.
+     *
+     * @param prefix prefix of the keys of the entries
+     * @param consumer consumer of the keys without the prefix and the entries,
+     *                 returning false to stop reading
+     */
+    protected void forEachEntryWhile(String prefix, BiPredicate<String, Entry> consumer) {
+        store.forEachWhile(prefix, (key, value) ->
+                consumer.test(key.substring(prefix.length()), Entry.decode(value)));
+    }
+
+    protected @Nullable Link getLink(String nickname, String address) {
+        byte[] value = store.get(linkKey(nickname, address));
+        return value != null ? Link.decode(value) : null;
+    }
+
+    /**
+     * Gets the nicknames linked to an address or the addresses linked to a nickname.
+     *
+     * @param prefix prefix of the entry, {@link #USER} or {@link #ADDRESS}
+     * @param key nickname or address of the entry
+     * @param entry stored entry of the key
+     * @return linked addresses or nicknames
+     */
+    protected List<String> getLinked(String prefix, String key, Entry entry) {
+        List<String> linked = new ArrayList<>(entry.linkCount());
+        for (int page = 0; page < pageCount(entry.linkCount()); page++) {
+            linked.addAll(readPage(prefix, key, page));
+        }
+        return linked;
+    }
+
+    /**
+     * Gets activity of the links of an entry.
+     *
+     * @param prefix prefix of the entry, {@link #USER} or {@link #ADDRESS}
+     * @param key nickname or address of the entry
+     * @param entry stored entry of the key
+     * @return activity by the linked addresses or nicknames
+     */
+    protected Map<String, Link> getLinks(String prefix, String key, Entry entry) {
+        Map<String, Link> links = new LinkedHashMap<>();
+        for (String linked : getLinked(prefix, key, entry)) {
+            Link link = USER.equals(prefix) ? getLink(key, linked) : getLink(linked, key);
+            if (link != null) links.put(linked, link);
+        }
+        return links;
+    }
+
+    /**
+     * Links the nickname and the address if they are not linked yet.
+     *
+     * @throws IOException if the link cannot be written
+     */
+    protected void link(String nickname, String address) throws IOException {
+        boolean[] added = new boolean[1];
+        store.update(linkKey(nickname, address), value -> {
+            if (value != null) return value;
+            added[0] = true;
+            return Link.UNSEEN.encode();
+        });
+        if (added[0]) addLinked(nickname, address);
+    }
+
+    /**
+     * Records connections of the nickname from the address, linking them if needed.
+     *
+     * @throws IOException if the link cannot be written
+     */
+    protected void seenLink(String nickname, String address, int connections, long seenAt) throws IOException {
+        boolean[] added = new boolean[1];
+        store.update(linkKey(nickname, address), value -> {
+            added[0] = value == null;
+            Link link = value != null ? Link.decode(value) : Link.UNSEEN;
+            return link.seen(connections, seenAt).encode();
+        });
+        if (added[0]) addLinked(nickname, address);
+    }
+
+    /**
+     * Removes the link between the nickname and the address.
+     *
+     * @throws IOException if the link cannot be removed
+     */
+    protected void unlink(String nickname, String address) throws IOException {
+        boolean[] removed = new boolean[1];
+        store.update(linkKey(nickname, address), value -> {
+            removed[0] = value != null;
+            return null;
+        });
+        if (!removed[0]) return;
+        removeLinked(USER, nickname, address);
+        removeLinked(ADDRESS, address, nickname);
+    }
+
+    /**
+     * Deletes pages listing the links of a removed entry.
+     *
+     * @throws IOException if the pages cannot be deleted
+     */
+    protected void deleteLinked(String prefix, String key, Entry entry) throws IOException {
+        for (int page = 0; page < pageCount(entry.linkCount()); page++) {
+            store.delete(pageKey(prefix, key, page));
+        }
+    }
+
+    private void addLinked(String nickname, String address) throws IOException {
+        // Pages and the counts in entries are changed together, links are added rarely
+        synchronized (store) {
+            appendLinked(USER, nickname, address);
+            appendLinked(ADDRESS, address, nickname);
+        }
+    }
+
+    private void appendLinked(String prefix, String key, String linked) throws IOException {
+        int[] count = new int[1];
+        updateEntry(prefix + key, entry -> {
+            Entry stored = Entry.orEmpty(entry);
+            count[0] = stored.linkCount();
+            return stored.withLinkCount(count[0] + 1);
+        });
+        List<String> page = readPage(prefix, key, count[0] / LINK_PAGE_SIZE);
+        page.add(linked);
+        writePage(prefix, key, count[0] / LINK_PAGE_SIZE, page);
+    }
+
+    private void removeLinked(String prefix, String key, String linked) throws IOException {
+        synchronized (store) {
+            Entry entry = getEntry(prefix + key);
+            if (entry == null || entry.linkCount() == 0) return;
+            int lastPage = pageCount(entry.linkCount()) - 1;
+            for (int page = 0; page <= lastPage; page++) {
+                List<String> keys = readPage(prefix, key, page);
+                int index = keys.indexOf(linked);
+                if (index == -1) continue;
+                // The last linked key takes place of the removed one, so all pages but the last stay full
+                List<String> lastKeys = page == lastPage ? keys : readPage(prefix, key, lastPage);
+                String moved = lastKeys.remove(lastKeys.size() - 1);
+                if (index < keys.size()) keys.set(index, moved);
+                if (page != lastPage) writePage(prefix, key, page, keys);
+                writePage(prefix, key, lastPage, lastKeys);
+                updateEntry(prefix + key, stored -> stored != null
+                        ? stored.withLinkCount(Math.max(0, stored.linkCount() - 1)) : null);
+                return;
+            }
+        }
+    }
+
+    private List<String> readPage(String prefix, String key, int page) {
+        byte[] value = store.get(pageKey(prefix, key, page));
+        List<String> keys = new ArrayList<>();
+        if (value == null) return keys;
+        ByteBuffer buffer = ByteBuffer.wrap(value);
+        while (buffer.hasRemaining()) {
+            byte[] linked = new byte[buffer.getShort() & 0xffff];
+            buffer.get(linked);
+            keys.add(new String(linked, StandardCharsets.UTF_8));
+        }
+        return keys;
+    }
+
+    private void writePage(String prefix, String key, int page, List<String> keys) throws IOException {
+        if (keys.isEmpty()) {
+            store.delete(pageKey(prefix, key, page));
+            return;
+        }
+        byte[][] encodedKeys = keys.stream()
+                .map(linked -> linked.getBytes(StandardCharsets.UTF_8))
+                .toArray(byte[][]::new);
+        int length = 0;
+        for (byte[] encodedKey : encodedKeys) {
+            length += 2 + encodedKey.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        for (byte[] encodedKey : encodedKeys) {
+            buffer.putShort((short) encodedKey.length).put(encodedKey);
+        }
+        store.put(pageKey(prefix, key, page), buffer.array());
+    }
+
+    private static int pageCount(int linkCount) {
+        return (linkCount + LINK_PAGE_SIZE - 1) / LINK_PAGE_SIZE;
+    }
+
+    private static String linkKey(String nickname, String address) {
+        return LINK + address + "/" + nickname;
+    }
+
+    private static String pageKey(String prefix, String key, int page) {
+        return LINK_PAGE + prefix + page + ":" + key;
+    }
+
+    /**
+     * Flags and activity of a user or an address with the number of linked
+     * addresses or nicknames. Joined is only set for users which completed login.
+     */
+    protected record Entry(boolean whitelisted, boolean blacklisted, boolean joined,
+                           long firstSeen, long lastSeen, long connections, int linkCount) {
+
+        public static final Entry EMPTY = new Entry(false, false, false, 0, 0, 0, 0);
+
+        public static Entry orEmpty(@Nullable Entry entry) {
+            return entry != null ? entry : EMPTY;
+        }
+
+        public Entry withFlags(boolean whitelisted, boolean blacklisted) {
+            return new Entry(whitelisted, blacklisted, joined, firstSeen, lastSeen, connections, linkCount);
+        }
+
+        public Entry withJoined() {
+            if (joined) return this;
+            return new Entry(whitelisted, blacklisted, true, firstSeen, lastSeen, connections, linkCount);
+        }
+
+        public Entry withLinkCount(int linkCount) {
+            return new Entry(whitelisted, blacklisted, joined, firstSeen, lastSeen, connections, linkCount);
+        }
+
+        /**
+         * Records connections of the entry.
+         *
+         * @param seenConnections connections of the entry
+         * @param seenAt time of the connections in milliseconds
+         */
+        public Entry seen(int seenConnections, long seenAt) {
+            return new Entry(whitelisted, blacklisted, joined, firstSeen != 0 ? firstSeen : seenAt,
+                    seenAt, connections + seenConnections, linkCount);
+        }
+
+        public StoredFlags flags() {
+            return StoredFlags.of(whitelisted, blacklisted);
+        }
+
+        private byte[] encode() {
+            return ByteBuffer.allocate(29)
+                    .put((byte) ((whitelisted ? 1 : 0) | (blacklisted ? 2 : 0) | (joined ? 4 : 0)))
+                    .putLong(firstSeen).putLong(lastSeen).putLong(connections)
+                    .putInt(linkCount)
+                    .array();
+        }
+
+        private static Entry decode(byte[] value) {
+            ByteBuffer buffer = ByteBuffer.wrap(value);
+            byte flags = buffer.get();
+            return new Entry((flags & 1) != 0, (flags & 2) != 0, (flags & 4) != 0,
+                    buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getInt());
+        }
+
+    }
+
+    /**
+     * Activity of a link between a user and an address.
+     */
+    protected record Link(long firstSeen, long lastSeen, long connections) {
+
+        public static final Link UNSEEN = new Link(0, 0, 0);
+
+        public Link seen(int seenConnections, long seenAt) {
+            return new Link(firstSeen != 0 ? firstSeen : seenAt, seenAt, connections + seenConnections);
+        }
+
+        private byte[] encode() {
+            return ByteBuffer.allocate(24).putLong(firstSeen).putLong(lastSeen).putLong(connections).array();
+        }
+
+        private static Link decode(byte[] value) {
+            ByteBuffer buffer = ByteBuffer.wrap(value);
+            return new Link(buffer.getLong(), buffer.getLong(), buffer.getLong());
+        }
+
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.data.storage;
+
+/**
+ * Open addressing hash table from keys of the log to positions of their records.
+ * Only 64-bit hashes and record positions are kept in memory, keys are compared
+ * against the log when hashes are equal. Not thread-safe.
+ */
+class LogIndex {
+
+    private static final long EMPTY = 0;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final float LOAD_FACTOR = 0.7f;
+
+    private long[] hashes = new long[INITIAL_CAPACITY];
+    private long[] positions = new long[INITIAL_CAPACITY];
+    private int size;
+
+    interface KeyMatcher {
+
+        boolean matches(long position, byte[] key);
+
+    }
+
+    static long hash(byte[] key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == EMPTY ? 1 : hash;
+    }
+
+    long get(long hash, byte[] key, KeyMatcher matcher) {
+        int slot = find(hash, key, matcher);
+        return hashes[slot] == EMPTY ? -1 : positions[slot];
+    }
+
+    /**
+     * Associates the key with a position.
+     *
+     * @return previous position of the key or -1 if it was not indexed
+     */
+    long put(long hash, byte[] key, long position, KeyMatcher matcher) {
+        int slot = find(hash, key, matcher);
+        if (hashes[slot] != EMPTY) {
+            long previous = positions[slot];
+            positions[slot] = position;
+            return previous;
+        }
+        hashes[slot] = hash;
+        positions[slot] = position;
+        if (++size > hashes.length * LOAD_FACTOR) resize();
+        return -1;
+    }
+
+    /**
+     * Moves the key to a new position if it is still at the expected one.
+     *
+     * @return true if the key was moved
+     */
+    boolean replace(long hash, byte[] key, long expected, long position, KeyMatcher matcher) {
+        int slot = find(hash, key, matcher);
+        if (hashes[slot] == EMPTY || positions[slot] != expected) return false;
+        positions[slot] = position;
+        return true;
+    }
+
+    /**
+     * Removes the key.
+     *
+     * @return removed position of the key or -1 if it was not indexed
+     */
+    long remove(long hash, byte[] key, KeyMatcher matcher) {
+        int slot = find(hash, key, matcher);
+        if (hashes[slot] == EMPTY) return -1;
+        long previous = positions[slot];
+        int mask = hashes.length - 1;
+        // Shift following entries back, so probing does not stop at the freed slot
+        int free = slot;
+        int next = (free + 1) & mask;
+        while (hashes[next] != EMPTY) {
+            int home = (int) hashes[next] & mask;
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                hashes[free] = hashes[next];
+                positions[free] = positions[next];
+                free = next;
+            }
+            next = (next + 1) & mask;
+        }
+        hashes[free] = EMPTY;
+        positions[free] = 0;
+        size--;
+        return previous;
+    }
+
+    private int find(long hash, byte[] key, KeyMatcher matcher) {
+        int mask = hashes.length - 1;
+        int slot = (int) hash & mask;
+        while (hashes[slot] != EMPTY) {
+            if (hashes[slot] == hash && matcher.matches(positions[slot], key)) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize() {
+        long[] oldHashes = hashes;
+        long[] oldPositions = positions;
+        hashes = new long[oldHashes.length * 2];
+        positions = new long[oldHashes.length * 2];
+        int mask = hashes.length - 1;
+        for (int i = 0; i < oldHashes.length; i++) {
+            if (oldHashes[i] == EMPTY) continue;
+            int slot = (int) oldHashes[i] & mask;
+            while (hashes[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            hashes[slot] = oldHashes[i];
+            positions[slot] = oldPositions[i];
+        }
+    }
+
+}
@@ -0,0 +1,477 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.data.storage;
+
+import org.jetbrains.annotations.Nullable;
+import xyz.yawek.barricade.util.LogUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.UnaryOperator;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only key-value log split into memory-mapped segment files. Every write appends
+ * a record to the active segment and points the in-memory index at it. Overwritten
+ * records are garbage, which is dropped by compacting sealed segments in the background.
+ * Records are written to the page cache, so they survive a crash of the proxy,
+ * but the last ones may be lost on a crash of the system.
+ */
+public class LogStore implements AutoCloseable {
+
+    // CRC (4), key length (4), value length (4, -1 for a deletion), sequence (8)
+    private static final int HEADER_SIZE = 20;
+    private static final String EXTENSION = ".log";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int compactionThreshold;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Segment> segments = new ConcurrentHashMap<>();
+    private final LogIndex index = new LogIndex();
+    private final LogIndex.KeyMatcher matcher = this::keyMatches;
+    private final ExecutorService compactor;
+    private final AtomicBoolean compactionQueued = new AtomicBoolean();
+    private Segment active;
+    private long sequence;
+
+    /**
+     * Opens the log, replaying existing segments to build the index.
+     *
+     * @param directory directory of the segment files
+     * @param segmentSize size in bytes of a segment file
+     * @param compactionThreshold percentage of garbage at which a segment is compacted
+     * @throws IOException if the segments cannot be opened
+     */
+    public LogStore(Path directory, int segmentSize, int compactionThreshold) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.compactionThreshold = compactionThreshold;
+        Files.createDirectories(directory);
+
+        List<Integer> ids = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                try {
+                    ids.add(Integer.parseInt(name.substring(0, name.length() - EXTENSION.length())));
+                } catch (NumberFormatException ignored) {}
+            }
+        }
+        Collections.sort(ids);
+        Map<String, Long> deletions = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            int id = ids.get(i);
+            // The last segment stays active and is mapped in full for appending
+            Segment segment = new Segment(id, path(id), i == ids.size() - 1 ? segmentSize : 0);
+            segments.put(id, segment);
+            replay(segment, deletions);
+        }
+        active = ids.isEmpty() ? createSegment(1, segmentSize) : segments.get(ids.get(ids.size() - 1));
+
+        compactor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "barricade-log-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduleCompaction();
+    }
+
+    /**
+     * Gets the value of a key.
+     *
+     * @param key key to get the value of
+     * @return value or null if the key is not stored
+     */
+    public byte @Nullable [] get(String key) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        long hash = LogIndex.hash(keyBytes);
+        lock.readLock().lock();
+        try {
+            long position = index.get(hash, keyBytes, matcher);
+            return position == -1 ? null : readValue(position);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void put(String key, byte[] value) throws IOException {
+        update(key, current -> value);
+    }
+
+    public void delete(String key) throws IOException {
+        update(key, current -> null);
+    }
+
+    /**
+     * Atomically replaces the value of a key. Nothing is appended if the value does not change.
+     *
+     * @param key key to update
+     * @param function function of the current value, or null if the key is not stored,
+     *                 returning the new value, or null to delete the key
+     * @throws IOException if a new segment cannot be created
+     */
+    public void update(String key, UnaryOperator<byte @Nullable []> function) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        long hash = LogIndex.hash(keyBytes);
+        lock.writeLock().lock();
+        try {
+            long current = index.get(hash, keyBytes, matcher);
+            byte[] currentValue = current == -1 ? null : readValue(current);
+            byte[] value = function.apply(currentValue);
+            if (Arrays.equals(value, currentValue)) return;
+
+            long position = append(keyBytes, value, ++sequence);
+            if (current != -1) markGarbage(current);
+            if (value != null) {
+                index.put(hash, keyBytes, position, matcher);
+            } else {
+                index.remove(hash, keyBytes, matcher);
+                markGarbage(position);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reads all keys starting with the prefix, segment by segment, without blocking writes.
+     * Keys written during the iteration may be skipped, and keys moved by compaction
+     * during the iteration may be read twice.
+     *
+     * @param prefix prefix of the keys
+     * @param consumer consumer of the keys and their values
+     */
+    public void forEach(String prefix, BiConsumer<String, byte[]> consumer) {
+        forEachWhile(prefix, (key, value) -> {
+            consumer.accept(key, value);
+            return true;
+        });
+    }
+
+    /**
+     * Reads keys starting with the prefix like {@link #forEach(String, BiConsumer)},
+     * until the consumer returns false. The consumer may write to the log.
+     *
+     * @param prefix prefix of the keys
+     * @param consumer consumer of the keys and their values, returning false to stop reading
+     */
+    public void forEachWhile(String prefix, BiPredicate<String, byte[]> consumer) {
+        byte[] prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+        int scanned = 0;
+        while (true) {
+            int lastScanned = scanned;
+            List<Segment> pending = segments.values().stream()
+                    .filter(segment -> segment.id > lastScanned)
+                    .sorted(Comparator.comparingInt(segment -> segment.id))
+                    .toList();
+            if (pending.isEmpty()) return;
+            for (Segment segment : pending) {
+                if (!scan(segment, prefixBytes, consumer)) return;
+                scanned = segment.id;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.writeLock().lock();
+        try {
+            active.buffer.force();
+            for (Segment segment : segments.values()) {
+                segment.channel.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void replay(Segment segment, Map<String, Long> deletions) {
+        int offset = 0;
+        int length;
+        while ((length = validLength(segment, offset)) != -1) {
+            long position = position(segment.id, offset);
+            byte[] key = readKey(segment, offset);
+            long hash = LogIndex.hash(key);
+            long recordSequence = segment.buffer.getLong(offset + 12);
+            sequence = Math.max(sequence, recordSequence);
+
+            // Compaction moves records forward, so the newest record is the one with the highest sequence
+            long current = index.get(hash, key, matcher);
+            long newest = current != -1 ? sequenceAt(current)
+                    : deletions.getOrDefault(new String(key, StandardCharsets.UTF_8), -1L);
+            if (recordSequence <= newest) {
+                segment.garbage += length;
+            } else {
+                if (current != -1) markGarbage(current);
+                if (segment.buffer.getInt(offset + 8) >= 0) {
+                    index.put(hash, key, position, matcher);
+                } else {
+                    index.remove(hash, key, matcher);
+                    deletions.put(new String(key, StandardCharsets.UTF_8), recordSequence);
+                    segment.garbage += length;
+                }
+            }
+            offset += length;
+        }
+        // Anything after the last valid record is an interrupted write and gets overwritten
+        segment.size = offset;
+    }
+
+    private int validLength(Segment segment, int offset) {
+        if (offset + HEADER_SIZE > segment.capacity) return -1;
+        int keyLength = segment.buffer.getInt(offset + 4);
+        int valueLength = segment.buffer.getInt(offset + 8);
+        if (keyLength <= 0 || valueLength < -1) return -1;
+        long length = (long) HEADER_SIZE + keyLength + Math.max(0, valueLength);
+        if (offset + length > segment.capacity) return -1;
+        CRC32C crc = new CRC32C();
+        crc.update(segment.buffer.slice(offset + 4, (int) length - 4));
+        return (int) crc.getValue() == segment.buffer.getInt(offset) ? (int) length : -1;
+    }
+
+    private long append(byte[] key, byte @Nullable [] value, long recordSequence) throws IOException {
+        int valueLength = value != null ? value.length : -1;
+        int length = HEADER_SIZE + key.length + Math.max(0, valueLength);
+        if (active.size + length > active.capacity) {
+            active.buffer.force();
+            active = createSegment(active.id + 1, Math.max(segmentSize, length));
+            scheduleCompaction();
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(length);
+        record.putInt(0).putInt(key.length).putInt(valueLength).putLong(recordSequence).put(key);
+        if (value != null) record.put(value);
+        CRC32C crc = new CRC32C();
+        crc.update(record.array(), 4, length - 4);
+        record.putInt(0, (int) crc.getValue());
+
+        active.buffer.put(active.size, record.array());
+        long position = position(active.id, active.size);
+        active.size += length;
+        return position;
+    }
+
+    private boolean scan(Segment segment, byte[] prefix, BiPredicate<String, byte[]> consumer) {
+        int offset = 0;
+        while (offset < segment.size) {
+            int length = recordLength(segment, offset);
+            if (segment.buffer.getInt(offset + 8) >= 0 && hasPrefix(segment, offset, prefix)) {
+                byte[] key = readKey(segment, offset);
+                long hash = LogIndex.hash(key);
+                byte[] value = null;
+                lock.readLock().lock();
+                try {
+                    long position = position(segment.id, offset);
+                    if (index.get(hash, key, matcher) == position) value = readValue(position);
+                } finally {
+                    lock.readLock().unlock();
+                }
+                if (value != null && !consumer.test(new String(key, StandardCharsets.UTF_8), value)) {
+                    return false;
+                }
+            }
+            offset += length;
+        }
+        return true;
+    }
+
+    private void scheduleCompaction() {
+        if (!compactionQueued.compareAndSet(false, true)) return;
+        compactor.execute(() -> {
+            compactionQueued.set(false);
+            List<Segment> candidates;
+            lock.readLock().lock();
+            try {
+                candidates = segments.values().stream()
+                        .filter(segment -> segment != active)
+                        .filter(segment -> segment.garbage * 100 >= (long) segment.size * compactionThreshold)
+                        .sorted(Comparator.comparingInt(segment -> segment.id))
+                        .toList();
+            } finally {
+                lock.readLock().unlock();
+            }
+            for (Segment segment : candidates) {
+                try {
+                    compact(segment);
+                } catch (IOException e) {
+                    LogUtils.errorDataAccess("Unable to compact log segment '{}'.",
+                            segment.path.getFileName().toString());
+                    e.printStackTrace();
+                    return;
+                }
+            }
+        });
+    }
+
+    /**
+     * Moves live records of a sealed segment to the active one and deletes the segment.
+     */
+    private void compact(Segment segment) throws IOException {
+        // Older records of deleted keys can only be in this or older segments
+        boolean oldest = segments.keySet().stream().allMatch(id -> id >= segment.id);
+        int offset = 0;
+        while (offset < segment.size) {
+            int length = recordLength(segment, offset);
+            byte[] key = readKey(segment, offset);
+            long hash = LogIndex.hash(key);
+            long position = position(segment.id, offset);
+            lock.writeLock().lock();
+            try {
+                if (segment.buffer.getInt(offset + 8) >= 0) {
+                    if (index.get(hash, key, matcher) == position) {
+                        long moved = append(key, readValue(position), sequenceAt(position));
+                        index.replace(hash, key, position, moved, matcher);
+                    }
+                } else if (!oldest && index.get(hash, key, matcher) == -1) {
+                    markGarbage(append(key, null, sequenceAt(position)));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            offset += length;
+        }
+
+        lock.writeLock().lock();
+        try {
+            segments.remove(segment.id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        segment.channel.close();
+        try {
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            // Mapped files cannot be deleted on some systems, records left in it are garbage on replay
+            segment.path.toFile().deleteOnExit();
+        }
+    }
+
+    private Segment createSegment(int id, int capacity) throws IOException {
+        Segment segment = new Segment(id, path(id), capacity);
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private Path path(int id) {
+        return directory.resolve(String.format("%010d", id) + EXTENSION);
+    }
+
+    private boolean keyMatches(long position, byte[] key) {
+        Segment segment = segments.get((int) (position >>> 32));
+        int offset = (int) position;
+        if (segment.buffer.getInt(offset + 4) != key.length) return false;
+        for (int i = 0; i < key.length; i++) {
+            if (segment.buffer.get(offset + HEADER_SIZE + i) != key[i]) return false;
+        }
+        return true;
+    }
+
+    private boolean hasPrefix(Segment segment, int offset, byte[] prefix) {
+        if (segment.buffer.getInt(offset + 4) < prefix.length) return false;
+        for (int i = 0; i < prefix.length; i++) {
+            if (segment.buffer.get(offset + HEADER_SIZE + i) != prefix[i]) return false;
+        }
+        return true;
+    }
+
+    private byte[] readKey(Segment segment, int offset) {
+        byte[] key = new byte[segment.buffer.getInt(offset + 4)];
+        segment.buffer.get(offset + HEADER_SIZE, key);
+        return key;
+    }
+
+    private byte[] readValue(long position) {
+        Segment segment = segments.get((int) (position >>> 32));
+        int offset = (int) position;
+        byte[] value = new byte[segment.buffer.getInt(offset + 8)];
+        segment.buffer.get(offset + HEADER_SIZE + segment.buffer.getInt(offset + 4), value);
+        return value;
+    }
+
+    private long sequenceAt(long position) {
+        return segments.get((int) (position >>> 32)).buffer.getLong((int) position + 12);
+    }
+
+    private void markGarbage(long position) {
+        Segment segment = segments.get((int) (position >>> 32));
+        segment.garbage += recordLength(segment, (int) position);
+    }
+
+    private static int recordLength(Segment segment, int offset) {
+        return HEADER_SIZE + segment.buffer.getInt(offset + 4)
+                + Math.max(0, segment.buffer.getInt(offset + 8));
+    }
+
+    private static long position(int id, int offset) {
+        return (long) id << 32 | offset;
+    }
+
+    private static final class Segment {
+
+        private final int id;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final int capacity;
+        // Written under the write lock, read by iterations without it
+        private volatile int size;
+        private long garbage;
+
+        private Segment(int id, Path path, int minimumCapacity) throws IOException {
+            this.id = id;
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    Math.max(channel.size(), minimumCapacity));
+            this.capacity = buffer.capacity();
+        }
+
+    }
+
+}
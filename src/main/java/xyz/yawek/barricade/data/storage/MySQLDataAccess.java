@@ -20,6 +20,13 @@ package xyz.yawek.barricade.data.storage;
 
 import com.zaxxer.hikari.HikariDataSource;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 public abstract class MySQLDataAccess {
 
     protected final HikariDataSource hikari;
@@ -28,4 +35,94 @@ public abstract class MySQLDataAccess {
         this.hikari = hikari;
     }
 
+    /**
+     * Inserts many rows with one batch of a single-row statement, skipping rows which already exist.
+     * The driver rewrites the batch into multi-row statements, while the statement text stays
+     * the same for any number of rows, so it is prepared only once per connection.
+     *
+     * @param connection connection to use
+     * @param table name of the table
+     * @param columns names of the inserted columns
+     * @param rows values of the inserted rows, in the order of columns
+     * @throws SQLException if the statement fails
+     */
+    protected void insertIgnore(Connection connection, String table,
+                                List<String> columns, List<String[]> rows) throws SQLException {
+        if (rows.isEmpty()) return;
+        try (PreparedStatement preparedStatement = connection.prepareStatement(
+                "INSERT IGNORE INTO " + table + " (" + String.join(", ", columns) + ") VALUES ("
+                + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")")) {
+            for (String[] values : rows) {
+                for (int i = 0; i < values.length; i++) {
+                    preparedStatement.setString(i + 1, values[i]);
+                }
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+        }
+    }
+
+    /**
+     * Inserts many rows with one batch of a single-row statement, updating the time
+     * rows which already exist were last seen and adding their new connections.
+     *
+     * @param connection connection to use
+     * @param table name of the table
+     * @param columns names of the key columns
+     * @param rows values of the key columns of the rows, mapped to their numbers of new connections
+     * @param seenAt time in milliseconds the rows were seen
+     * @throws SQLException if the statement fails
+     */
+    protected void upsertSeen(Connection connection, String table, List<String> columns,
+                              Map<List<String>, Integer> rows, long seenAt) throws SQLException {
+        if (rows.isEmpty()) return;
+        try (PreparedStatement preparedStatement = connection.prepareStatement(
+                "INSERT INTO " + table + " (" + String.join(", ", columns)
+                + ", first_seen, last_seen, connection_count) VALUES ("
+                + String.join(", ", Collections.nCopies(columns.size() + 3, "?")) + ")"
+                + " ON DUPLICATE KEY UPDATE"
+                + " first_seen = IF(first_seen = 0, VALUES(first_seen), first_seen),"
+                + " last_seen = VALUES(last_seen),"
+                + " connection_count = connection_count + VALUES(connection_count)")) {
+            for (Map.Entry<List<String>, Integer> row : rows.entrySet()) {
+                List<String> values = row.getKey();
+                for (int i = 0; i < values.size(); i++) {
+                    preparedStatement.setString(i + 1, values.get(i));
+                }
+                preparedStatement.setLong(values.size() + 1, seenAt);
+                preparedStatement.setLong(values.size() + 2, seenAt);
+                preparedStatement.setInt(values.size() + 3, row.getValue());
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+        }
+    }
+
+    /**
+     * Runs the action in one transaction, rolling it back if the action fails.
+     *
+     * @param connection connection to use
+     * @param action action to run
+     * @throws SQLException if the action or the commit fails
+     */
+    protected void transaction(Connection connection, SQLAction action) throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            action.run();
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    @FunctionalInterface
+    protected interface SQLAction {
+
+        void run() throws SQLException;
+
+    }
+
 }
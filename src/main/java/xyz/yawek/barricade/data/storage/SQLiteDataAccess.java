@@ -18,14 +18,77 @@
 
 package xyz.yawek.barricade.data.storage;
 
-import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 public abstract class SQLiteDataAccess {
 
-    protected final Connection connection;
+    protected final SQLiteDatabase database;
 
-    protected SQLiteDataAccess(Connection connection) {
-        this.connection = connection;
+    protected SQLiteDataAccess(SQLiteDatabase database) {
+        this.database = database;
+    }
+
+    /**
+     * Inserts many rows with one batch of a cached statement, skipping rows which already exist.
+     *
+     * @param statements statements of the connection to use
+     * @param table name of the table
+     * @param columns names of the inserted columns
+     * @param rows values of the inserted rows, in the order of columns
+     * @throws SQLException if the statement fails
+     */
+    protected void insertIgnore(StatementCache statements, String table,
+                                List<String> columns, List<String[]> rows) throws SQLException {
+        if (rows.isEmpty()) return;
+        PreparedStatement preparedStatement = statements.prepare(
+                "INSERT OR IGNORE INTO " + table + " (" + String.join(", ", columns) + ") VALUES ("
+                + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")");
+        for (String[] values : rows) {
+            for (int i = 0; i < values.length; i++) {
+                preparedStatement.setString(i + 1, values[i]);
+            }
+            preparedStatement.addBatch();
+        }
+        preparedStatement.executeBatch();
+    }
+
+    /**
+     * Inserts many rows with one batch of a cached statement, updating the time
+     * rows which already exist were last seen and adding their new connections.
+     *
+     * @param statements statements of the connection to use
+     * @param table name of the table
+     * @param columns names of the key columns
+     * @param rows values of the key columns of the rows, mapped to their numbers of new connections
+     * @param seenAt time in milliseconds the rows were seen
+     * @throws SQLException if the statement fails
+     */
+    protected void upsertSeen(StatementCache statements, String table, List<String> columns,
+                              Map<List<String>, Integer> rows, long seenAt) throws SQLException {
+        if (rows.isEmpty()) return;
+        PreparedStatement preparedStatement = statements.prepare(
+                "INSERT INTO " + table + " (" + String.join(", ", columns)
+                + ", first_seen, last_seen, connection_count) VALUES ("
+                + String.join(", ", Collections.nCopies(columns.size() + 3, "?")) + ")"
+                + " ON CONFLICT(" + String.join(", ", columns) + ") DO UPDATE SET"
+                + " first_seen = CASE WHEN first_seen = 0 THEN excluded.first_seen ELSE first_seen END,"
+                + " last_seen = excluded.last_seen,"
+                + " connection_count = connection_count + excluded.connection_count");
+        for (Map.Entry<List<String>, Integer> row : rows.entrySet()) {
+            List<String> values = row.getKey();
+            for (int i = 0; i < values.size(); i++) {
+                preparedStatement.setString(i + 1, values.get(i));
+            }
+            preparedStatement.setLong(values.size() + 1, seenAt);
+            preparedStatement.setLong(values.size() + 2, seenAt);
+            preparedStatement.setInt(values.size() + 3, row.getValue());
+            preparedStatement.addBatch();
+        }
+        preparedStatement.executeBatch();
     }
 
 }
@@ -0,0 +1,231 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.data.storage;
+
+import org.sqlite.SQLiteConfig;
+import xyz.yawek.barricade.config.Config;
+import xyz.yawek.barricade.util.LogUtils;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * SQLite database in WAL mode. Writes are run by a single writer thread,
+ * which commits all writes queued in the meantime in one transaction.
+ * Reads are run concurrently on a pool of read-only connections.
+ */
+public class SQLiteDatabase {
+
+    private static final int MAX_WRITE_BATCH = 256;
+
+    private final StatementCache writer;
+    private final BlockingQueue<StatementCache> readers;
+    private final List<StatementCache> allReaders = new ArrayList<>();
+    private final BlockingQueue<WriteTask<?>> writes = new LinkedBlockingQueue<>();
+    private final WriteTask<?> shutdownTask = new WriteTask<>(statements -> null);
+    private final Thread writerThread;
+
+    public SQLiteDatabase(String url, Config config) throws SQLException {
+        SQLiteConfig writerConfig = createConfig(config);
+        writerConfig.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        Connection writerConnection = DriverManager.getConnection(url, writerConfig.toProperties());
+        writerConnection.setAutoCommit(false);
+        this.writer = new StatementCache(writerConnection);
+
+        int readerCount = Math.max(1, config.sqliteReaders());
+        this.readers = new LinkedBlockingQueue<>(readerCount);
+        SQLiteConfig readerConfig = createConfig(config);
+        readerConfig.setReadOnly(true);
+        for (int i = 0; i < readerCount; i++) {
+            StatementCache reader = new StatementCache(
+                    DriverManager.getConnection(url, readerConfig.toProperties()));
+            allReaders.add(reader);
+            readers.add(reader);
+        }
+
+        this.writerThread = new Thread(this::runWriter, "barricade-sqlite-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Runs the task on a read-only connection, waiting for a free one if needed.
+     *
+     * @param task task to run
+     * @return result of the task
+     * @throws SQLException if the task fails
+     */
+    public <T> T read(SQLiteTask<T> task) throws SQLException {
+        StatementCache reader;
+        try {
+            reader = readers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection.", e);
+        }
+        try {
+            return task.run(reader);
+        } finally {
+            readers.add(reader);
+        }
+    }
+
+    /**
+     * Queues the task for the writer thread and waits until its transaction is committed.
+     * Changes of a failed task are rolled back without affecting other queued tasks.
+     *
+     * @param task task to run
+     * @return result of the task
+     * @throws SQLException if the task or the commit fails
+     */
+    public <T> T write(SQLiteTask<T> task) throws SQLException {
+        if (Thread.currentThread() == writerThread) return task.run(writer);
+        WriteTask<T> writeTask = new WriteTask<>(task);
+        writes.add(writeTask);
+        try {
+            return writeTask.result.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sqlException) throw sqlException;
+            throw new SQLException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a write.", e);
+        }
+    }
+
+    /**
+     * Runs the remaining queued writes and closes all connections.
+     */
+    public void close() throws SQLException {
+        writes.add(shutdownTask);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer.close();
+        for (StatementCache reader : allReaders) {
+            reader.close();
+        }
+    }
+
+    private void runWriter() {
+        List<WriteTask<?>> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(writes.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            writes.drainTo(batch, MAX_WRITE_BATCH - 1);
+            boolean shutdown = batch.remove(shutdownTask);
+            if (!batch.isEmpty()) runBatch(batch);
+            batch.clear();
+            if (shutdown) {
+                // Writes queued together with the shutdown have already been run
+                if (writes.isEmpty()) return;
+                writes.add(shutdownTask);
+            }
+        }
+    }
+
+    private void runBatch(List<WriteTask<?>> batch) {
+        Connection connection = writer.getConnection();
+        List<Runnable> completions = new ArrayList<>(batch.size());
+        try {
+            for (WriteTask<?> writeTask : batch) {
+                Savepoint savepoint = connection.setSavepoint();
+                try {
+                    completions.add(writeTask.run(writer));
+                    connection.releaseSavepoint(savepoint);
+                } catch (SQLException | RuntimeException e) {
+                    // A failing task must not end the writer thread, or later writes would wait forever
+                    connection.rollback(savepoint);
+                    writeTask.result.completeExceptionally(e);
+                }
+            }
+            connection.commit();
+            completions.forEach(Runnable::run);
+        } catch (SQLException | RuntimeException e) {
+            LogUtils.errorDataAccess("Unable to commit {} writes.", String.valueOf(batch.size()));
+            e.printStackTrace();
+            try {
+                connection.rollback();
+            } catch (SQLException ignored) {}
+            batch.forEach(writeTask -> writeTask.result.completeExceptionally(e));
+        }
+    }
+
+    private static SQLiteConfig createConfig(Config config) {
+        SQLiteConfig sqliteConfig = new SQLiteConfig();
+        sqliteConfig.setSynchronous(readSynchronousMode(config));
+        // Negative cache size is in kibibytes instead of pages
+        sqliteConfig.setCacheSize(-config.sqliteCacheSize());
+        sqliteConfig.setPragma(SQLiteConfig.Pragma.MMAP_SIZE,
+                String.valueOf(config.sqliteMmapSize() * 1024L * 1024L));
+        sqliteConfig.setBusyTimeout(config.sqliteBusyTimeout());
+        return sqliteConfig;
+    }
+
+    private static SQLiteConfig.SynchronousMode readSynchronousMode(Config config) {
+        String mode = config.sqliteSynchronous();
+        try {
+            return SQLiteConfig.SynchronousMode.valueOf(mode.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            LogUtils.warn("Unknown SQLite synchronous mode '{}', using NORMAL.", mode);
+            return SQLiteConfig.SynchronousMode.NORMAL;
+        }
+    }
+
+    @FunctionalInterface
+    public interface SQLiteTask<T> {
+
+        T run(StatementCache statements) throws SQLException;
+
+    }
+
+    private static class WriteTask<T> {
+
+        private final SQLiteTask<T> task;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private WriteTask(SQLiteTask<T> task) {
+            this.task = task;
+        }
+
+        /**
+         * Runs the task, returning completion of its result to call after the commit.
+         */
+        private Runnable run(StatementCache statements) throws SQLException {
+            T value = task.run(statements);
+            return () -> result.complete(value);
+        }
+
+    }
+
+}
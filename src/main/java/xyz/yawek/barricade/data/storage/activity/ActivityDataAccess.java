@@ -0,0 +1,68 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.data.storage.activity;
+
+import xyz.yawek.barricade.manager.snapshot.AddressRange;
+import xyz.yawek.barricade.user.StoredActivity;
+import xyz.yawek.barricade.user.StoredLink;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Reads when nicknames and addresses were seen, to find out what happened in a recent time window.
+ */
+public interface ActivityDataAccess {
+
+    Optional<StoredActivity> getUserActivity(String nickname);
+
+    Optional<StoredActivity> getAddressActivity(String address);
+
+    /**
+     * Gets addresses the nickname has first connected from since the time.
+     *
+     * @param nickname nickname of the links
+     * @param since time in milliseconds from which the links were first seen
+     * @param limit maximum number of returned links
+     * @return links ordered from the most recently first seen, empty if reading failed
+     */
+    List<StoredLink> getUserLinks(String nickname, long since, int limit);
+
+    /**
+     * Gets nicknames which have first connected from the address since the time.
+     *
+     * @param address address of the links
+     * @param since time in milliseconds from which the links were first seen
+     * @param limit maximum number of returned links
+     * @return links ordered from the most recently first seen, empty if reading failed
+     */
+    List<StoredLink> getAddressLinks(String address, long since, int limit);
+
+    /**
+     * Gets nicknames which have first connected from addresses of the range since the time.
+     * Addresses outside the range are skipped before the limit is applied.
+     *
+     * @param range range of the addresses
+     * @param since time in milliseconds from which the links were first seen
+     * @param limit maximum number of returned links
+     * @return links ordered from the most recently first seen, empty if reading failed
+     */
+    List<StoredLink> getRangeLinks(AddressRange range, long since, int limit);
+
+}
@@ -0,0 +1,100 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.data.storage.activity;
+
+import xyz.yawek.barricade.data.storage.EmbeddedDataAccess;
+import xyz.yawek.barricade.data.storage.LogStore;
+import xyz.yawek.barricade.manager.snapshot.AddressRange;
+import xyz.yawek.barricade.manager.snapshot.ListKey;
+import xyz.yawek.barricade.user.StoredActivity;
+import xyz.yawek.barricade.user.StoredLink;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+public class EmbeddedActivityDataAccess extends EmbeddedDataAccess implements ActivityDataAccess {
+
+    private static final Comparator<StoredLink> RECENTLY_FIRST_SEEN =
+            Comparator.comparingLong(StoredLink::firstSeen).reversed();
+
+    public EmbeddedActivityDataAccess(LogStore store) {
+        super(store);
+    }
+
+    @Override
+    public Optional<StoredActivity> getUserActivity(String nickname) {
+        return getActivity(USER + nickname);
+    }
+
+    @Override
+    public Optional<StoredActivity> getAddressActivity(String address) {
+        return getActivity(ADDRESS + address);
+    }
+
+    @Override
+    public List<StoredLink> getUserLinks(String nickname, long since, int limit) {
+        Entry entry = getEntry(USER + nickname);
+        if (entry == null) return List.of();
+        List<StoredLink> links = new ArrayList<>();
+        getLinks(USER, nickname, entry).forEach((address, link) -> {
+            if (link.firstSeen() >= since) links.add(new StoredLink(nickname, address,
+                    link.firstSeen(), link.lastSeen(), link.connections()));
+        });
+        return links.stream().sorted(RECENTLY_FIRST_SEEN).limit(limit).toList();
+    }
+
+    @Override
+    public List<StoredLink> getAddressLinks(String address, long since, int limit) {
+        Entry entry = getEntry(ADDRESS + address);
+        if (entry == null) return List.of();
+        List<StoredLink> links = new ArrayList<>();
+        getLinks(ADDRESS, address, entry).forEach((nickname, link) -> {
+            if (link.firstSeen() >= since) links.add(new StoredLink(nickname, address,
+                    link.firstSeen(), link.lastSeen(), link.connections()));
+        });
+        return links.stream().sorted(RECENTLY_FIRST_SEEN).limit(limit).toList();
+    }
+
+    @Override
+    public List<StoredLink> getRangeLinks(AddressRange range, long since, int limit) {
+        // Addresses are not stored in order, so all of them starting with the prefix are read
+        String addressPrefix = range.textPrefix();
+        List<StoredLink> links = new ArrayList<>();
+        forEachEntry(ADDRESS + addressPrefix, (suffix, entry) -> {
+            if (entry.lastSeen() < since) return;
+            String address = addressPrefix + suffix;
+            ListKey key = ListKey.ofAddress(address);
+            if (key == null || !range.contains(key)) return;
+            getLinks(ADDRESS, address, entry).forEach((nickname, link) -> {
+                if (link.firstSeen() >= since) links.add(new StoredLink(nickname, address,
+                        link.firstSeen(), link.lastSeen(), link.connections()));
+            });
+        });
+        return links.stream().sorted(RECENTLY_FIRST_SEEN).limit(limit).toList();
+    }
+
+    private Optional<StoredActivity> getActivity(String key) {
+        Entry entry = getEntry(key);
+        if (entry == null) return Optional.empty();
+        return Optional.of(new StoredActivity(entry.firstSeen(), entry.lastSeen(), entry.connections()));
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.data.storage.activity;
+
+import org.jetbrains.annotations.Nullable;
+import xyz.yawek.barricade.data.storage.SQLiteDataAccess;
+import xyz.yawek.barricade.data.storage.SQLiteDatabase;
+import xyz.yawek.barricade.manager.snapshot.AddressRange;
+import xyz.yawek.barricade.manager.snapshot.ListKey;
+import xyz.yawek.barricade.user.StoredActivity;
+import xyz.yawek.barricade.user.StoredLink;
+import xyz.yawek.barricade.util.LogUtils;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+public class SQLiteActivityDataAccess extends SQLiteDataAccess implements ActivityDataAccess {
+
+    public SQLiteActivityDataAccess(SQLiteDatabase database) {
+        super(database);
+    }
+
+    @Override
+    public Optional<StoredActivity> getUserActivity(String nickname) {
+        return getActivity("users", "nickname", nickname);
+    }
+
+    @Override
+    public Optional<StoredActivity> getAddressActivity(String address) {
+        return getActivity("addresses", "address", address);
+    }
+
+    @Override
+    public List<StoredLink> getUserLinks(String nickname, long since, int limit) {
+        return getLinks("nickname = ?", nickname, since, limit, null);
+    }
+
+    @Override
+    public List<StoredLink> getAddressLinks(String address, long since, int limit) {
+        return getLinks("address = ?", address, since, limit, null);
+    }
+
+    @Override
+    public List<StoredLink> getRangeLinks(AddressRange range, long since, int limit) {
+        // Unlike LIKE, GLOB is case sensitive, so it can use the index on addresses
+        return getLinks("address GLOB ?", range.textPrefix() + "*", since, limit, range);
+    }
+
+    private Optional<StoredActivity> getActivity(String table, String column, String key) {
+        try {
+            return database.read(statements -> {
+                PreparedStatement preparedStatement = statements.prepare(
+                        "SELECT first_seen, last_seen, connection_count FROM " + table
+                        + " WHERE " + column + " = ?");
+                preparedStatement.setString(1, key);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    if (!resultSet.next()) return Optional.empty();
+                    return Optional.of(new StoredActivity(
+                            resultSet.getLong(1), resultSet.getLong(2), resultSet.getLong(3)));
+                }
+            });
+        } catch (SQLException e) {
+            LogUtils.errorDataAccess("Unable to get activity of '{}'.", key);
+            e.printStackTrace();
+        }
+        return Optional.empty();
+    }
+
+    private List<StoredLink> getLinks(String condition, String key, long since, int limit,
+                                      @Nullable AddressRange range) {
+        try {
+            return database.read(statements -> {
+                PreparedStatement preparedStatement = statements.prepare(
+                        "SELECT nickname, address, first_seen, last_seen, connection_count"
+                        + " FROM user_address WHERE " + condition + " AND first_seen >= ?"
+                        + " ORDER BY first_seen DESC" + (range == null ? " LIMIT ?" : ""));
+                preparedStatement.setString(1, key);
+                preparedStatement.setLong(2, since);
+                if (range == null) preparedStatement.setInt(3, limit);
+                List<StoredLink> links = new ArrayList<>();
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    // Addresses sharing the prefix may be outside the range, so they are skipped here
+                    while (links.size() < limit && resultSet.next()) {
+                        if (range != null && !contains(range, resultSet.getString(2))) continue;
+                        links.add(new StoredLink(resultSet.getString(1), resultSet.getString(2),
+                                resultSet.getLong(3), resultSet.getLong(4), resultSet.getLong(5)));
+                    }
+                }
+                return links;
+            });
+        } catch (SQLException e) {
+            LogUtils.errorDataAccess("Unable to get links of '{}'.", key);
+            e.printStackTrace();
+        }
+        return List.of();
+    }
+
+    private static boolean contains(AddressRange range, String address) {
+        ListKey key = ListKey.ofAddress(address);
+        return key != null && range.contains(key);
+    }
+
+}
@@ -18,10 +18,14 @@
 
 package xyz.yawek.barricade.data.storage.address;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.BiConsumer;
 import org.jetbrains.annotations.Nullable;
 import xyz.yawek.barricade.user.StoredAddress;
+import xyz.yawek.barricade.user.StoredFlags;
 
 public interface AddressDataAccess {
 
@@ -32,6 +36,33 @@ public interface AddressDataAccess {
     void addNickname(String address, @Nullable String nickname,
         boolean whitelisted, boolean blacklisted);
 
+    /**
+     * Adds nicknames to many addresses at once, keeping their flags unchanged.
+     * Addresses which are not stored yet are added without flags. The time the addresses
+     * and their links to the nicknames were last seen is updated and their connections are counted.
+     *
+     * @param connectionsByAddress numbers of new connections of the nicknames, grouped by address
+     */
+    void addNicknames(Map<String, Map<String, Integer>> connectionsByAddress);
+
+    /**
+     * Reads all whitelisted or blacklisted addresses row by row.
+     *
+     * @param consumer consumer of the addresses and their flags
+     * @return true if all addresses were read, false if reading failed
+     */
+    boolean forEachFlagged(BiConsumer<String, StoredFlags> consumer);
+
+    /**
+     * Whitelists or blacklists many addresses in one transaction, adding addresses which are not stored yet.
+     * The other flag of stored addresses is kept unchanged.
+     *
+     * @param addresses addresses to add to the list
+     * @param blacklist true to blacklist the addresses, false to whitelist them
+     * @return true if the addresses were saved, false if saving failed
+     */
+    boolean setListed(List<String> addresses, boolean blacklist);
+
     boolean isWhitelisted(String address);
 
     void setWhitelisted(String address, boolean whitelisted);
@@ -0,0 +1,44 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.data.storage.address;
+
+import xyz.yawek.barricade.data.storage.DatabaseExecutor;
+import xyz.yawek.barricade.user.StoredAddress;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Variant of {@link AddressDataAccess} running on the {@link DatabaseExecutor}.
+ */
+public class AsyncAddressDataAccess {
+
+    private final AddressDataAccess addressDataAccess;
+    private final DatabaseExecutor executor;
+
+    public AsyncAddressDataAccess(AddressDataAccess addressDataAccess, DatabaseExecutor executor) {
+        this.addressDataAccess = addressDataAccess;
+        this.executor = executor;
+    }
+
+    public CompletableFuture<Optional<StoredAddress>> getAddress(String address) {
+        return executor.supply(() -> addressDataAccess.getAddress(address));
+    }
+
+}
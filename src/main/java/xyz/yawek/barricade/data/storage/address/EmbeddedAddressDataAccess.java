@@ -0,0 +1,155 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.data.storage.address;
+
+import org.jetbrains.annotations.Nullable;
+import xyz.yawek.barricade.data.storage.EmbeddedDataAccess;
+import xyz.yawek.barricade.data.storage.LogStore;
+import xyz.yawek.barricade.user.StoredAddress;
+import xyz.yawek.barricade.user.StoredFlags;
+import xyz.yawek.barricade.util.LogUtils;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+public class EmbeddedAddressDataAccess extends EmbeddedDataAccess implements AddressDataAccess {
+
+    public EmbeddedAddressDataAccess(LogStore store) {
+        super(store);
+    }
+
+    @Override
+    public Optional<StoredAddress> getAddress(String address) {
+        Entry entry = getEntry(ADDRESS + address);
+        if (entry == null) return Optional.empty();
+        return Optional.of(new StoredAddress(address, new HashSet<>(getLinked(ADDRESS, address, entry)),
+                entry.whitelisted(), entry.blacklisted()));
+    }
+
+    @Override
+    public Optional<Set<String>> getNicknames(String address) {
+        Entry entry = getEntry(ADDRESS + address);
+        if (entry == null || entry.linkCount() == 0) return Optional.empty();
+        return Optional.of(new HashSet<>(getLinked(ADDRESS, address, entry)));
+    }
+
+    @Override
+    public void addNickname(String address, @Nullable String nickname,
+                            boolean whitelisted, boolean blacklisted) {
+        try {
+            updateEntry(ADDRESS + address, entry -> Entry.orEmpty(entry)
+                    .withFlags(whitelisted, blacklisted));
+            if (nickname != null) link(nickname, address);
+        } catch (IOException e) {
+            LogUtils.errorDataAccess("Unable to add nickname '{}' " +
+                    "for address '{}'.", nickname, address);
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void addNicknames(Map<String, Map<String, Integer>> connectionsByAddress) {
+        long seenAt = System.currentTimeMillis();
+        try {
+            for (Map.Entry<String, Map<String, Integer>> addressEntry : connectionsByAddress.entrySet()) {
+                String address = addressEntry.getKey();
+                Map<String, Integer> connectionsByNickname = addressEntry.getValue();
+                int connections = connectionsByNickname.values().stream().mapToInt(Integer::intValue).sum();
+                updateEntry(ADDRESS + address, entry -> Entry.orEmpty(entry).seen(connections, seenAt));
+                for (Map.Entry<String, Integer> nicknameEntry : connectionsByNickname.entrySet()) {
+                    String nickname = nicknameEntry.getKey();
+                    updateEntry(USER + nickname, entry -> Entry.orEmpty(entry).seen(0, seenAt));
+                    seenLink(nickname, address, nicknameEntry.getValue(), seenAt);
+                }
+            }
+        } catch (IOException e) {
+            LogUtils.errorDataAccess("Unable to add nicknames " +
+                    "for {} addresses.", String.valueOf(connectionsByAddress.size()));
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public boolean forEachFlagged(BiConsumer<String, StoredFlags> consumer) {
+        forEachEntry(ADDRESS, (address, entry) -> {
+            if (entry.whitelisted() || entry.blacklisted()) consumer.accept(address, entry.flags());
+        });
+        return true;
+    }
+
+    @Override
+    public boolean setListed(List<String> addresses, boolean blacklist) {
+        try {
+            for (String address : addresses) {
+                updateEntry(ADDRESS + address, entry -> {
+                    Entry stored = Entry.orEmpty(entry);
+                    return stored.withFlags(stored.whitelisted() || !blacklist, stored.blacklisted() || blacklist);
+                });
+            }
+            return true;
+        } catch (IOException e) {
+            LogUtils.errorDataAccess("Unable to add {} addresses to the {}.",
+                    String.valueOf(addresses.size()), blacklist ? "blacklist" : "whitelist");
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isWhitelisted(String address) {
+        Entry entry = getEntry(ADDRESS + address);
+        return entry != null && entry.whitelisted();
+    }
+
+    @Override
+    public void setWhitelisted(String address, boolean whitelisted) {
+        try {
+            updateEntry(ADDRESS + address, entry -> entry != null
+                    ? entry.withFlags(whitelisted, entry.blacklisted()) : null);
+        } catch (IOException e) {
+            LogUtils.errorDataAccess("Unable to set whitelisted '{}' " +
+                    "for address '{}'.", String.valueOf(whitelisted), address);
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public boolean isBlacklisted(String address) {
+        Entry entry = getEntry(ADDRESS + address);
+        return entry != null && entry.blacklisted();
+    }
+
+    @Override
+    public void setBlacklisted(String address, boolean blacklisted) {
+        try {
+            updateEntry(ADDRESS + address, entry -> entry != null
+                    ? entry.withFlags(entry.whitelisted(), blacklisted) : null);
+        } catch (IOException e) {
+            LogUtils.errorDataAccess("Unable to set blacklisted '{}' " +
+                    "for address '{}'.", String.valueOf(blacklisted), address);
+            e.printStackTrace();
+        }
+    }
+
+}
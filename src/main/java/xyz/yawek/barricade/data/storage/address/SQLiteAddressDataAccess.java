@@ -18,47 +18,52 @@
 
 package xyz.yawek.barricade.data.storage.address;
 
-import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.Arrays;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.function.BiConsumer;
 import org.jetbrains.annotations.Nullable;
 import xyz.yawek.barricade.data.storage.SQLiteDataAccess;
+import xyz.yawek.barricade.data.storage.SQLiteDatabase;
 import xyz.yawek.barricade.user.StoredAddress;
+import xyz.yawek.barricade.user.StoredFlags;
 import xyz.yawek.barricade.util.LogUtils;
 
 public class SQLiteAddressDataAccess extends SQLiteDataAccess implements AddressDataAccess {
 
-    public SQLiteAddressDataAccess(Connection connection) {
-        super(connection);
+    public SQLiteAddressDataAccess(SQLiteDatabase database) {
+        super(database);
     }
 
     @Override
     public Optional<StoredAddress> getAddress(String address) {
-        try (PreparedStatement preparedStatement = connection.prepareStatement("""
-                          SELECT address, nicknames, whitelisted, blacklisted FROM addresses
-                          WHERE address = ?
-                        """)) {
-            preparedStatement.setString(1, address);
-            ResultSet resultSet = preparedStatement.executeQuery();
-            String nicknamesString = resultSet.getString(2);
-            if (resultSet.next()) {
-                return Optional.of(
-                    new StoredAddress(
-                        resultSet.getString(1),
-                        nicknamesString != null ? Arrays.stream(nicknamesString.split(","))
-                            .collect(Collectors.toSet()) : Collections.emptySet(),
-                        resultSet.getBoolean(3),
-                        resultSet.getBoolean(4)
-                    )
-                );
-            }
+        try {
+            return database.read(statements -> {
+                PreparedStatement preparedStatement = statements.prepare("""
+                              SELECT addresses.address, addresses.whitelisted, addresses.blacklisted, user_address.nickname
+                              FROM addresses LEFT JOIN user_address ON user_address.address = addresses.address
+                              WHERE addresses.address = ?
+                            """);
+                preparedStatement.setString(1, address);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    if (!resultSet.next()) return Optional.empty();
+                    String storedAddress = resultSet.getString(1);
+                    boolean whitelisted = resultSet.getBoolean(2);
+                    boolean blacklisted = resultSet.getBoolean(3);
+                    Set<String> nicknames = new HashSet<>();
+                    do {
+                        String nicknameString = resultSet.getString(4);
+                        if (nicknameString != null) nicknames.add(nicknameString);
+                    } while (resultSet.next());
+                    return Optional.of(new StoredAddress(storedAddress, nicknames, whitelisted, blacklisted));
+                }
+            });
         } catch (SQLException e) {
             LogUtils.errorDataAccess("Unable to get address '{}'.", address);
             e.printStackTrace();
@@ -68,19 +73,20 @@ public class SQLiteAddressDataAccess extends SQLiteDataAccess implements Address
 
     @Override
     public Optional<Set<String>> getNicknames(String address) {
-        try (PreparedStatement preparedStatement = connection.prepareStatement("""
-                          SELECT nicknames FROM addresses WHERE address = ?
-                        """)) {
-            preparedStatement.setString(1, address);
-            ResultSet resultSet = preparedStatement.executeQuery();
-            if (resultSet.next()) {
-                String nicknamesString = resultSet.getString(1);
-                if (nicknamesString == null) {
-                    return Optional.empty();
+        try {
+            return database.read(statements -> {
+                PreparedStatement preparedStatement = statements.prepare("""
+                              SELECT nickname FROM user_address WHERE address = ?
+                            """);
+                preparedStatement.setString(1, address);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    Set<String> nicknames = new HashSet<>();
+                    while (resultSet.next()) {
+                        nicknames.add(resultSet.getString(1));
+                    }
+                    return !nicknames.isEmpty() ? Optional.of(nicknames) : Optional.empty();
                 }
-                return Optional.of(Arrays.stream(nicknamesString.split(","))
-                        .collect(Collectors.toSet()));
-            }
+            });
         } catch (SQLException e) {
             LogUtils.errorDataAccess("Unable to get nicknames " +
                     "for address '{}'.", address);
@@ -90,34 +96,33 @@ public class SQLiteAddressDataAccess extends SQLiteDataAccess implements Address
     }
 
     @Override
-    public void addNickname(String address, @Nullable String nickname, boolean whitelisted, boolean blacklisted) {
-        Set<String> nicknames = new HashSet<>();
-        Optional<Set<String>> nicknamesOptional = getNicknames(address);
-        nicknamesOptional.ifPresent(nicknames::addAll);
-        if (nickname != null) {
-            nicknames.add(nickname);
-        }
-
-        try (PreparedStatement preparedStatement = connection.prepareStatement("""
-                          INSERT INTO addresses (address, nicknames, whitelisted, blacklisted)
-                          VALUES (?, ?, ?, ?)
-                          ON CONFLICT(address) DO UPDATE SET
-                          address = ?,
-                          nicknames = ?,
-                          whitelisted = ?,
-                          blacklisted = ?
-                        """)) {
-            preparedStatement.setString(1, address);
-            preparedStatement.setString(2, !nicknames.isEmpty()
-                ? String.join(",", nicknames) : null);
-            preparedStatement.setBoolean(3, whitelisted);
-            preparedStatement.setBoolean(4, blacklisted);
-            preparedStatement.setString(5, address);
-            preparedStatement.setString(6, !nicknames.isEmpty()
-                ? String.join(",", nicknames) : null);
-            preparedStatement.setBoolean(7, whitelisted);
-            preparedStatement.setBoolean(8, blacklisted);
-            preparedStatement.execute();
+    public void addNickname(String address, @Nullable String nickname,
+        boolean whitelisted, boolean blacklisted) {
+        try {
+            database.write(statements -> {
+                PreparedStatement preparedStatement = statements.prepare("""
+                              INSERT INTO addresses (address, whitelisted, blacklisted)
+                              VALUES (?, ?, ?)
+                              ON CONFLICT(address) DO UPDATE SET
+                              whitelisted = ?,
+                              blacklisted = ?
+                            """);
+                PreparedStatement linkStatement = statements.prepare("""
+                              INSERT OR IGNORE INTO user_address (nickname, address) VALUES (?, ?)
+                            """);
+                preparedStatement.setString(1, address);
+                preparedStatement.setBoolean(2, whitelisted);
+                preparedStatement.setBoolean(3, blacklisted);
+                preparedStatement.setBoolean(4, whitelisted);
+                preparedStatement.setBoolean(5, blacklisted);
+                preparedStatement.execute();
+                if (nickname != null) {
+                    linkStatement.setString(1, nickname);
+                    linkStatement.setString(2, address);
+                    linkStatement.execute();
+                }
+                return null;
+            });
         } catch (SQLException e) {
             LogUtils.errorDataAccess("Unable to add nickname '{}' " +
                     "for address '{}'.", nickname, address);
@@ -125,16 +130,89 @@ public class SQLiteAddressDataAccess extends SQLiteDataAccess implements Address
         }
     }
 
+    @Override
+    public void addNicknames(Map<String, Map<String, Integer>> connectionsByAddress) {
+        Map<List<String>, Integer> addressRows = new HashMap<>();
+        Map<List<String>, Integer> linkRows = new HashMap<>();
+        connectionsByAddress.forEach((address, connectionsByNickname) -> connectionsByNickname
+                .forEach((nickname, connections) -> {
+                    addressRows.merge(List.of(address), connections, Integer::sum);
+                    linkRows.put(List.of(nickname, address), connections);
+                }));
+        long seenAt = System.currentTimeMillis();
+        try {
+            database.write(statements -> {
+                upsertSeen(statements, "addresses", List.of("address"), addressRows, seenAt);
+                upsertSeen(statements, "user_address", List.of("nickname", "address"), linkRows, seenAt);
+                return null;
+            });
+        } catch (SQLException e) {
+            LogUtils.errorDataAccess("Unable to add nicknames " +
+                    "for {} addresses.", String.valueOf(connectionsByAddress.size()));
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public boolean forEachFlagged(BiConsumer<String, StoredFlags> consumer) {
+        try {
+            return database.read(statements -> {
+                PreparedStatement preparedStatement = statements.prepare("""
+                              SELECT address, whitelisted, blacklisted FROM addresses
+                              WHERE whitelisted = TRUE OR blacklisted = TRUE
+                            """);
+                preparedStatement.setFetchSize(1000);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        consumer.accept(resultSet.getString(1), StoredFlags.of(
+                                resultSet.getBoolean(2), resultSet.getBoolean(3)));
+                    }
+                }
+                return true;
+            });
+        } catch (SQLException e) {
+            LogUtils.errorDataAccess("Unable to read whitelisted and blacklisted addresses.");
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    @Override
+    public boolean setListed(List<String> addresses, boolean blacklist) {
+        String column = blacklist ? "blacklisted" : "whitelisted";
+        try {
+            database.write(statements -> {
+                PreparedStatement preparedStatement = statements.prepare(
+                        "INSERT INTO addresses (address, " + column + ") VALUES (?, 1)"
+                        + " ON CONFLICT(address) DO UPDATE SET " + column + " = 1");
+                for (String address : addresses) {
+                    preparedStatement.setString(1, address);
+                    preparedStatement.addBatch();
+                }
+                preparedStatement.executeBatch();
+                return null;
+            });
+            return true;
+        } catch (SQLException e) {
+            LogUtils.errorDataAccess("Unable to add {} addresses to the {}.",
+                    String.valueOf(addresses.size()), blacklist ? "blacklist" : "whitelist");
+            e.printStackTrace();
+        }
+        return false;
+    }
+
     @Override
     public boolean isWhitelisted(String address) {
-        try (PreparedStatement preparedStatement = connection.prepareStatement("""
-                          SELECT whitelisted FROM addresses where address = ?
-                        """)) {
-            preparedStatement.setString(1, address);
-            ResultSet resultSet = preparedStatement.executeQuery();
-            if (resultSet.next()) {
-                return resultSet.getBoolean(1);
-            }
+        try {
+            return database.read(statements -> {
+                PreparedStatement preparedStatement = statements.prepare("""
+                              SELECT whitelisted FROM addresses where address = ?
+                            """);
+                preparedStatement.setString(1, address);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    return resultSet.next() && resultSet.getBoolean(1);
+                }
+            });
         } catch (SQLException e) {
             LogUtils.errorDataAccess("Unable to check " +
                     "if address '{}' is whitelisted.", address);
@@ -145,12 +223,16 @@ public class SQLiteAddressDataAccess extends SQLiteDataAccess implements Address
 
     @Override
     public void setWhitelisted(String address, boolean whitelisted) {
-        try (PreparedStatement preparedStatement = connection.prepareStatement("""
-                          UPDATE addresses SET whitelisted = ? WHERE address = ?
-                        """)) {
-            preparedStatement.setBoolean(1, whitelisted);
-            preparedStatement.setString(2, address);
-            preparedStatement.execute();
+        try {
+            database.write(statements -> {
+                PreparedStatement preparedStatement = statements.prepare("""
+                              UPDATE addresses SET whitelisted = ? WHERE address = ?
+                            """);
+                preparedStatement.setBoolean(1, whitelisted);
+                preparedStatement.setString(2, address);
+                preparedStatement.execute();
+                return null;
+            });
         } catch (SQLException e) {
             LogUtils.errorDataAccess("Unable to set whitelisted '{}' " +
                     "for address '{}'.", String.valueOf(whitelisted), address);
@@ -160,14 +242,16 @@ public class SQLiteAddressDataAccess extends SQLiteDataAccess implements Address
 
     @Override
     public boolean isBlacklisted(String address) {
-        try (PreparedStatement preparedStatement = connection.prepareStatement("""
-                          SELECT blacklisted FROM addresses where address = ?
-                        """)) {
-            preparedStatement.setString(1, address);
-            ResultSet resultSet = preparedStatement.executeQuery();
-            if (resultSet.next()) {
-                return resultSet.getBoolean(1);
-            }
+        try {
+            return database.read(statements -> {
+                PreparedStatement preparedStatement = statements.prepare("""
+                              SELECT blacklisted FROM addresses where address = ?
+                            """);
+                preparedStatement.setString(1, address);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    return resultSet.next() && resultSet.getBoolean(1);
+                }
+            });
         } catch (SQLException e) {
             LogUtils.errorDataAccess("Unable to check " +
                     "if address '{}' is blacklisted.", address);
@@ -178,12 +262,16 @@ public class SQLiteAddressDataAccess extends SQLiteDataAccess implements Address
 
     @Override
     public void setBlacklisted(String address, boolean blacklisted) {
-        try (PreparedStatement preparedStatement = connection.prepareStatement("""
-                          UPDATE addresses SET blacklisted = ? WHERE address = ?
-                        """)) {
-            preparedStatement.setBoolean(1, blacklisted);
-            preparedStatement.setString(2, address);
-            preparedStatement.execute();
+        try {
+            database.write(statements -> {
+                PreparedStatement preparedStatement = statements.prepare("""
+                              UPDATE addresses SET blacklisted = ? WHERE address = ?
+                            """);
+                preparedStatement.setBoolean(1, blacklisted);
+                preparedStatement.setString(2, address);
+                preparedStatement.execute();
+                return null;
+            });
         } catch (SQLException e) {
             LogUtils.errorDataAccess("Unable to set blacklisted '{}' " +
                     "for address '{}'.", String.valueOf(blacklisted), address);
@@ -0,0 +1,48 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.data.storage.cluster;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+
+/**
+ * Storage of counters shared by all proxies of a cluster. Each proxy is a node
+ * publishing its own values, which are summed up by other nodes.
+ */
+public interface ClusterBackend {
+
+    /**
+     * Publishes counters of this node and reads counters of the other nodes.
+     * Counters of nodes which have not synchronized within the node timeout are ignored.
+     *
+     * @param nodeId id of this node
+     * @param counters changed counters of this node by key, 0 removes the counter
+     * @return non-zero sums of counters of the other nodes by key or null if synchronizing failed
+     */
+    @Nullable Map<String, Long> synchronize(String nodeId, Map<String, Long> counters);
+
+    /**
+     * Removes all counters of this node.
+     *
+     * @param nodeId id of this node
+     */
+    void leave(String nodeId);
+
+}
@@ -0,0 +1,151 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.data.storage.cluster;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.jetbrains.annotations.Nullable;
+import xyz.yawek.barricade.data.storage.MySQLDataAccess;
+import xyz.yawek.barricade.util.LogUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+public class MySQLClusterBackend extends MySQLDataAccess implements ClusterBackend {
+
+    private static final int CLEANUP_PERIOD = 100;
+
+    private final long nodeTimeoutMillis;
+    private int synchronizations;
+
+    public MySQLClusterBackend(HikariDataSource hikari, long nodeTimeoutMillis) {
+        super(hikari);
+        this.nodeTimeoutMillis = nodeTimeoutMillis;
+    }
+
+    @Override
+    public synchronized @Nullable Map<String, Long> synchronize(String nodeId,
+                                                               Map<String, Long> counters) {
+        long now = System.currentTimeMillis();
+        Map<String, Long> sums = new HashMap<>();
+        try (Connection connection = hikari.getConnection();
+             PreparedStatement nodeStatement = connection.prepareStatement("""
+                          INSERT INTO cluster_nodes (node_id, seen_at) VALUES (?, ?)
+                          ON DUPLICATE KEY UPDATE seen_at = VALUES(seen_at)
+                        """);
+             PreparedStatement setStatement = connection.prepareStatement("""
+                          INSERT INTO cluster_counters (node_id, counter_key, value) VALUES (?, ?, ?)
+                          ON DUPLICATE KEY UPDATE value = VALUES(value)
+                        """);
+             PreparedStatement removeStatement = connection.prepareStatement("""
+                          DELETE FROM cluster_counters WHERE node_id = ? AND counter_key = ?
+                        """);
+             PreparedStatement sumStatement = connection.prepareStatement("""
+                          SELECT cluster_counters.counter_key, SUM(cluster_counters.value)
+                          FROM cluster_counters JOIN cluster_nodes
+                          ON cluster_nodes.node_id = cluster_counters.node_id
+                          WHERE cluster_counters.node_id <> ? AND cluster_nodes.seen_at >= ?
+                          GROUP BY cluster_counters.counter_key
+                          HAVING SUM(cluster_counters.value) <> 0
+                        """)) {
+            transaction(connection, () -> {
+                nodeStatement.setString(1, nodeId);
+                nodeStatement.setLong(2, now);
+                nodeStatement.execute();
+                boolean set = false;
+                boolean removed = false;
+                for (Map.Entry<String, Long> counter : counters.entrySet()) {
+                    if (counter.getValue() != 0) {
+                        setStatement.setString(1, nodeId);
+                        setStatement.setString(2, counter.getKey());
+                        setStatement.setLong(3, counter.getValue());
+                        setStatement.addBatch();
+                        set = true;
+                    } else {
+                        removeStatement.setString(1, nodeId);
+                        removeStatement.setString(2, counter.getKey());
+                        removeStatement.addBatch();
+                        removed = true;
+                    }
+                }
+                if (set) setStatement.executeBatch();
+                if (removed) removeStatement.executeBatch();
+            });
+            sumStatement.setString(1, nodeId);
+            sumStatement.setLong(2, now - nodeTimeoutMillis);
+            try (ResultSet resultSet = sumStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    sums.put(resultSet.getString(1), resultSet.getLong(2));
+                }
+            }
+            if (++synchronizations % CLEANUP_PERIOD == 0) removeExpired(connection, now);
+            return sums;
+        } catch (SQLException e) {
+            LogUtils.errorDataAccess("Unable to synchronize cluster counters.");
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    @Override
+    public void leave(String nodeId) {
+        try (Connection connection = hikari.getConnection();
+             PreparedStatement counterStatement = connection.prepareStatement("""
+                          DELETE FROM cluster_counters WHERE node_id = ?
+                        """);
+             PreparedStatement nodeStatement = connection.prepareStatement("""
+                          DELETE FROM cluster_nodes WHERE node_id = ?
+                        """)) {
+            transaction(connection, () -> {
+                counterStatement.setString(1, nodeId);
+                counterStatement.execute();
+                nodeStatement.setString(1, nodeId);
+                nodeStatement.execute();
+            });
+        } catch (SQLException e) {
+            LogUtils.errorDataAccess("Unable to remove cluster counters of node '{}'.", nodeId);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Removes counters of nodes which have stopped without leaving the cluster.
+     */
+    private void removeExpired(Connection connection, long now) throws SQLException {
+        try (PreparedStatement counterStatement = connection.prepareStatement("""
+                          DELETE cluster_counters FROM cluster_counters JOIN cluster_nodes
+                          ON cluster_nodes.node_id = cluster_counters.node_id
+                          WHERE cluster_nodes.seen_at < ?
+                        """);
+             PreparedStatement nodeStatement = connection.prepareStatement("""
+                          DELETE FROM cluster_nodes WHERE seen_at < ?
+                        """)) {
+            transaction(connection, () -> {
+                counterStatement.setLong(1, now - nodeTimeoutMillis);
+                counterStatement.execute();
+                nodeStatement.setLong(1, now - nodeTimeoutMillis);
+                nodeStatement.execute();
+            });
+        }
+    }
+
+}
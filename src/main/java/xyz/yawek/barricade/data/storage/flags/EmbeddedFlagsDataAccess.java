@@ -0,0 +1,38 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.data.storage.flags;
+
+import org.jetbrains.annotations.Nullable;
+import xyz.yawek.barricade.data.storage.EmbeddedDataAccess;
+import xyz.yawek.barricade.data.storage.LogStore;
+import xyz.yawek.barricade.user.ConnectionFlags;
+
+public class EmbeddedFlagsDataAccess extends EmbeddedDataAccess implements FlagsDataAccess {
+
+    public EmbeddedFlagsDataAccess(LogStore store) {
+        super(store);
+    }
+
+    @Override
+    public @Nullable ConnectionFlags getFlags(String nickname, String address) {
+        return new ConnectionFlags(Entry.orEmpty(getEntry(USER + nickname)).flags(),
+                Entry.orEmpty(getEntry(ADDRESS + address)).flags());
+    }
+
+}
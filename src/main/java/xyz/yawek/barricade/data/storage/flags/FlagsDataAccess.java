@@ -0,0 +1,36 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.data.storage.flags;
+
+import org.jetbrains.annotations.Nullable;
+import xyz.yawek.barricade.user.ConnectionFlags;
+
+public interface FlagsDataAccess {
+
+    /**
+     * Reads flags of the nickname and the address with one statement.
+     *
+     * @param nickname nickname to get flags of
+     * @param address address to get flags of
+     * @return flags, {@link xyz.yawek.barricade.user.StoredFlags#NONE} for ones not stored,
+     * or null if reading failed
+     */
+    @Nullable ConnectionFlags getFlags(String nickname, String address);
+
+}
@@ -0,0 +1,71 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.data.storage.flags;
+
+import org.jetbrains.annotations.Nullable;
+import xyz.yawek.barricade.data.storage.SQLiteDataAccess;
+import xyz.yawek.barricade.data.storage.SQLiteDatabase;
+import xyz.yawek.barricade.user.ConnectionFlags;
+import xyz.yawek.barricade.user.StoredFlags;
+import xyz.yawek.barricade.util.LogUtils;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class SQLiteFlagsDataAccess extends SQLiteDataAccess implements FlagsDataAccess {
+
+    public SQLiteFlagsDataAccess(SQLiteDatabase database) {
+        super(database);
+    }
+
+    @Override
+    public @Nullable ConnectionFlags getFlags(String nickname, String address) {
+        try {
+            return database.read(statements -> {
+                PreparedStatement preparedStatement = statements.prepare("""
+                              SELECT 0, whitelisted, blacklisted FROM users WHERE nickname = ?
+                              UNION ALL
+                              SELECT 1, whitelisted, blacklisted FROM addresses WHERE address = ?
+                            """);
+                preparedStatement.setString(1, nickname);
+                preparedStatement.setString(2, address);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    StoredFlags nicknameFlags = StoredFlags.NONE;
+                    StoredFlags addressFlags = StoredFlags.NONE;
+                    while (resultSet.next()) {
+                        StoredFlags flags = StoredFlags.of(resultSet.getBoolean(2), resultSet.getBoolean(3));
+                        if (resultSet.getInt(1) == 0) {
+                            nicknameFlags = flags;
+                        } else {
+                            addressFlags = flags;
+                        }
+                    }
+                    return new ConnectionFlags(nicknameFlags, addressFlags);
+                }
+            });
+        } catch (SQLException e) {
+            LogUtils.errorDataAccess("Unable to get flags of nickname '{}' " +
+                    "and address '{}'.", nickname, address);
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+}
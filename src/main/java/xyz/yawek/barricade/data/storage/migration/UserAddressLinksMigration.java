@@ -0,0 +1,119 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.data.storage.migration;
+
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.migration.Context;
+import org.flywaydb.core.api.migration.JavaMigration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Moves nicknames and addresses from the comma-joined list columns
+ * into the user_address table created by the V3 migration.
+ * Rows are moved in chunks, each committed separately, and the list
+ * columns of moved rows are cleared, so an interrupted run resumes where it stopped.
+ */
+public class UserAddressLinksMigration implements JavaMigration {
+
+    private static final int CHUNK_SIZE = 500;
+
+    private final String insertIgnore;
+
+    /**
+     * @param mysql whether the migrated database is MySQL, SQLite otherwise
+     */
+    public UserAddressLinksMigration(boolean mysql) {
+        this.insertIgnore = mysql ? "INSERT IGNORE" : "INSERT OR IGNORE";
+    }
+
+    @Override
+    public MigrationVersion getVersion() {
+        return MigrationVersion.fromVersion("3.1");
+    }
+
+    @Override
+    public String getDescription() {
+        return "Move user address lists to links";
+    }
+
+    @Override
+    public Integer getChecksum() {
+        return null;
+    }
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            moveLists(connection, "addresses", "address", "nicknames", false);
+            moveLists(connection, "users", "nickname", "addresses", true);
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private void moveLists(Connection connection, String table, String keyColumn,
+                           String listColumn, boolean keyIsNickname) throws SQLException {
+        int moved;
+        do {
+            moved = 0;
+            try (PreparedStatement selectStatement = connection.prepareStatement(
+                    "SELECT " + keyColumn + ", " + listColumn + " FROM " + table
+                    + " WHERE " + listColumn + " IS NOT NULL LIMIT " + CHUNK_SIZE);
+                 PreparedStatement linkStatement = connection.prepareStatement(
+                    insertIgnore + " INTO user_address (nickname, address) VALUES (?, ?)");
+                 PreparedStatement clearStatement = connection.prepareStatement(
+                    "UPDATE " + table + " SET " + listColumn + " = NULL"
+                    + " WHERE " + keyColumn + " = ?")) {
+                try (ResultSet resultSet = selectStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        String key = resultSet.getString(1);
+                        for (String value : resultSet.getString(2).split(",")) {
+                            if (value.isBlank()) continue;
+                            linkStatement.setString(1, keyIsNickname ? key : value);
+                            linkStatement.setString(2, keyIsNickname ? value : key);
+                            linkStatement.addBatch();
+                        }
+                        clearStatement.setString(1, key);
+                        clearStatement.addBatch();
+                        moved++;
+                    }
+                }
+                linkStatement.executeBatch();
+                clearStatement.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } while (moved == CHUNK_SIZE);
+    }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.data.storage.range;
+
+import xyz.yawek.barricade.data.storage.EmbeddedDataAccess;
+import xyz.yawek.barricade.data.storage.LogStore;
+import xyz.yawek.barricade.util.LogUtils;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class EmbeddedRangeDataAccess extends EmbeddedDataAccess implements RangeDataAccess {
+
+    private static final byte[] PRESENT = new byte[0];
+
+    public EmbeddedRangeDataAccess(LogStore store) {
+        super(store);
+    }
+
+    @Override
+    public boolean forEachBlacklistedRange(Consumer<String> consumer) {
+        store.forEach(RANGE, (key, value) -> consumer.accept(key.substring(RANGE.length())));
+        return true;
+    }
+
+    @Override
+    public void addBlacklistedRange(String cidr) {
+        try {
+            store.put(RANGE + cidr, PRESENT);
+        } catch (IOException e) {
+            LogUtils.errorDataAccess("Unable to blacklist range '{}'.", cidr);
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public boolean addBlacklistedRanges(List<String> cidrs) {
+        try {
+            for (String cidr : cidrs) {
+                store.put(RANGE + cidr, PRESENT);
+            }
+            return true;
+        } catch (IOException e) {
+            LogUtils.errorDataAccess("Unable to blacklist {} ranges.", String.valueOf(cidrs.size()));
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    @Override
+    public void removeBlacklistedRange(String cidr) {
+        try {
+            store.delete(RANGE + cidr);
+        } catch (IOException e) {
+            LogUtils.errorDataAccess("Unable to remove range '{}' from the blacklist.", cidr);
+            e.printStackTrace();
+        }
+    }
+
+}
@@ -0,0 +1,46 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.data.storage.range;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface RangeDataAccess {
+
+    /**
+     * Reads all blacklisted address ranges row by row.
+     *
+     * @param consumer consumer of the ranges in CIDR notation
+     * @return true if all ranges were read, false if reading failed
+     */
+    boolean forEachBlacklistedRange(Consumer<String> consumer);
+
+    void addBlacklistedRange(String cidr);
+
+    /**
+     * Blacklists many ranges in one transaction, skipping ranges which are already blacklisted.
+     *
+     * @param cidrs ranges in canonical CIDR notation
+     * @return true if the ranges were saved, false if saving failed
+     */
+    boolean addBlacklistedRanges(List<String> cidrs);
+
+    void removeBlacklistedRange(String cidr);
+
+}
@@ -0,0 +1,111 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.data.storage.range;
+
+import xyz.yawek.barricade.data.storage.SQLiteDataAccess;
+import xyz.yawek.barricade.data.storage.SQLiteDatabase;
+import xyz.yawek.barricade.util.LogUtils;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class SQLiteRangeDataAccess extends SQLiteDataAccess implements RangeDataAccess {
+
+    public SQLiteRangeDataAccess(SQLiteDatabase database) {
+        super(database);
+    }
+
+    @Override
+    public boolean forEachBlacklistedRange(Consumer<String> consumer) {
+        try {
+            return database.read(statements -> {
+                PreparedStatement preparedStatement = statements.prepare("""
+                              SELECT cidr FROM blacklisted_ranges
+                            """);
+                preparedStatement.setFetchSize(1000);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        consumer.accept(resultSet.getString(1));
+                    }
+                }
+                return true;
+            });
+        } catch (SQLException e) {
+            LogUtils.errorDataAccess("Unable to read blacklisted ranges.");
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    @Override
+    public void addBlacklistedRange(String cidr) {
+        try {
+            database.write(statements -> {
+                PreparedStatement preparedStatement = statements.prepare("""
+                              INSERT OR IGNORE INTO blacklisted_ranges (cidr) VALUES (?)
+                            """);
+                preparedStatement.setString(1, cidr);
+                preparedStatement.execute();
+                return null;
+            });
+        } catch (SQLException e) {
+            LogUtils.errorDataAccess("Unable to blacklist range '{}'.", cidr);
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public boolean addBlacklistedRanges(List<String> cidrs) {
+        List<String[]> rows = cidrs.stream()
+                .map(cidr -> new String[]{cidr})
+                .toList();
+        try {
+            database.write(statements -> {
+                insertIgnore(statements, "blacklisted_ranges", List.of("cidr"), rows);
+                return null;
+            });
+            return true;
+        } catch (SQLException e) {
+            LogUtils.errorDataAccess("Unable to blacklist {} ranges.", String.valueOf(cidrs.size()));
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    @Override
+    public void removeBlacklistedRange(String cidr) {
+        try {
+            database.write(statements -> {
+                PreparedStatement preparedStatement = statements.prepare("""
+                              DELETE FROM blacklisted_ranges WHERE cidr = ?
+                            """);
+                preparedStatement.setString(1, cidr);
+                preparedStatement.execute();
+                return null;
+            });
+        } catch (SQLException e) {
+            LogUtils.errorDataAccess("Unable to remove range '{}' from the blacklist.", cidr);
+            e.printStackTrace();
+        }
+    }
+
+}
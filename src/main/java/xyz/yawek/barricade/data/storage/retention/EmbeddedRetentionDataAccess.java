@@ -0,0 +1,138 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.data.storage.retention;
+
+import xyz.yawek.barricade.data.storage.EmbeddedDataAccess;
+import xyz.yawek.barricade.data.storage.LogStore;
+import xyz.yawek.barricade.util.LogUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+public class EmbeddedRetentionDataAccess extends EmbeddedDataAccess implements RetentionDataAccess {
+
+    public EmbeddedRetentionDataAccess(LogStore store) {
+        super(store);
+    }
+
+    @Override
+    public int removeUnseenUsers(long seenBefore, int batchSize, BooleanSupplier proceed) {
+        return removeUnseen(USER, seenBefore, batchSize, proceed);
+    }
+
+    @Override
+    public int removeUnseenAddresses(long seenBefore, int batchSize, BooleanSupplier proceed) {
+        return removeUnseen(ADDRESS, seenBefore, batchSize, proceed);
+    }
+
+    @Override
+    public int trimUserAddresses(int maxAddresses, int batchSize, BooleanSupplier proceed) {
+        return trimLinks(USER, maxAddresses, batchSize, proceed);
+    }
+
+    @Override
+    public int trimAddressNicknames(int maxNicknames, int batchSize, BooleanSupplier proceed) {
+        return trimLinks(ADDRESS, maxNicknames, batchSize, proceed);
+    }
+
+    private int removeUnseen(String prefix, long seenBefore, int batchSize, BooleanSupplier proceed) {
+        Predicate<Entry> unseen = entry -> entry.lastSeen() < seenBefore
+                && !entry.whitelisted() && !entry.blacklisted();
+        return inBatches(prefix, unseen, batchSize, proceed, key -> {
+            Entry[] removed = new Entry[1];
+            updateEntry(prefix + key, entry -> {
+                if (entry == null || !unseen.test(entry)) return entry;
+                removed[0] = entry;
+                return null;
+            });
+            if (removed[0] == null) return 0;
+            for (String linked : getLinked(prefix, key, removed[0])) {
+                unlink(prefix, key, linked);
+            }
+            deleteLinked(prefix, key, removed[0]);
+            return 1;
+        });
+    }
+
+    private int trimLinks(String prefix, int maxLinks, int batchSize, BooleanSupplier proceed) {
+        return inBatches(prefix, entry -> entry.linkCount() > maxLinks, batchSize, proceed, key -> {
+            Entry entry = getEntry(prefix + key);
+            if (entry == null || entry.linkCount() <= maxLinks) return 0;
+            List<Map.Entry<String, Link>> links = new ArrayList<>(getLinks(prefix, key, entry).entrySet());
+            links.sort(Comparator.comparingLong(link -> link.getValue().lastSeen()));
+            List<String> removed = links.stream()
+                    .limit(Math.max(0, links.size() - maxLinks))
+                    .map(Map.Entry::getKey)
+                    .toList();
+            for (String linked : removed) {
+                unlink(prefix, key, linked);
+            }
+            return removed.size();
+        });
+    }
+
+    private void unlink(String prefix, String key, String linked) throws IOException {
+        if (USER.equals(prefix)) {
+            unlink(key, linked);
+        } else {
+            unlink(linked, key);
+        }
+    }
+
+    /**
+     * Processes matching entries during one pass over the log, waiting between batches.
+     */
+    private int inBatches(String prefix, Predicate<Entry> filter, int batchSize,
+                          BooleanSupplier proceed, EntryProcessor processor) {
+        int[] processed = new int[1];
+        int[] batch = new int[1];
+        try {
+            forEachEntryWhile(prefix, (key, entry) -> {
+                if (!filter.test(entry)) return true;
+                try {
+                    processed[0] += processor.process(key);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (++batch[0] < batchSize) return true;
+                batch[0] = 0;
+                return proceed.getAsBoolean();
+            });
+            return processed[0];
+        } catch (UncheckedIOException e) {
+            LogUtils.errorDataAccess("Unable to remove entries not needed anymore.");
+            e.printStackTrace();
+        }
+        return -1;
+    }
+
+    @FunctionalInterface
+    private interface EntryProcessor {
+
+        int process(String key) throws IOException;
+
+    }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.data.storage.retention;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Removes entries which are not needed anymore, in small batches which do not hold
+ * the database for a long time.
+ */
+public interface RetentionDataAccess {
+
+    /**
+     * Removes users which are neither whitelisted nor blacklisted and were not seen
+     * since the time, together with their links to addresses.
+     *
+     * @param seenBefore time in milliseconds before which the users were last seen
+     * @param batchSize maximum number of users removed in one batch
+     * @param proceed called between batches, waits before the next one and returns false to stop
+     * @return number of removed users or -1 if removing failed
+     */
+    int removeUnseenUsers(long seenBefore, int batchSize, BooleanSupplier proceed);
+
+    /**
+     * Removes addresses which are neither whitelisted nor blacklisted and were not seen
+     * since the time, together with their links to nicknames.
+     *
+     * @param seenBefore time in milliseconds before which the addresses were last seen
+     * @param batchSize maximum number of addresses removed in one batch
+     * @param proceed called between batches, waits before the next one and returns false to stop
+     * @return number of removed addresses or -1 if removing failed
+     */
+    int removeUnseenAddresses(long seenBefore, int batchSize, BooleanSupplier proceed);
+
+    /**
+     * Removes the least recently seen links of nicknames linked to more addresses than the maximum.
+     *
+     * @param maxAddresses maximum number of addresses kept for a nickname
+     * @param batchSize maximum number of nicknames trimmed in one batch
+     * @param proceed called between batches, waits before the next one and returns false to stop
+     * @return number of removed links or -1 if removing failed
+     */
+    int trimUserAddresses(int maxAddresses, int batchSize, BooleanSupplier proceed);
+
+    /**
+     * Removes the least recently seen links of addresses linked to more nicknames than the maximum.
+     *
+     * @param maxNicknames maximum number of nicknames kept for an address
+     * @param batchSize maximum number of addresses trimmed in one batch
+     * @param proceed called between batches, waits before the next one and returns false to stop
+     * @return number of removed links or -1 if removing failed
+     */
+    int trimAddressNicknames(int maxNicknames, int batchSize, BooleanSupplier proceed);
+
+}
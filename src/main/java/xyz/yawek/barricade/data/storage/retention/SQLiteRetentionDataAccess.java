@@ -0,0 +1,169 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.data.storage.retention;
+
+import xyz.yawek.barricade.data.storage.SQLiteDataAccess;
+import xyz.yawek.barricade.data.storage.SQLiteDatabase;
+import xyz.yawek.barricade.util.LogUtils;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+public class SQLiteRetentionDataAccess extends SQLiteDataAccess implements RetentionDataAccess {
+
+    public SQLiteRetentionDataAccess(SQLiteDatabase database) {
+        super(database);
+    }
+
+    @Override
+    public int removeUnseenUsers(long seenBefore, int batchSize, BooleanSupplier proceed) {
+        return removeUnseen("users", "nickname", seenBefore, batchSize, proceed);
+    }
+
+    @Override
+    public int removeUnseenAddresses(long seenBefore, int batchSize, BooleanSupplier proceed) {
+        return removeUnseen("addresses", "address", seenBefore, batchSize, proceed);
+    }
+
+    @Override
+    public int trimUserAddresses(int maxAddresses, int batchSize, BooleanSupplier proceed) {
+        return trimLinks("nickname", "address", maxAddresses, batchSize, proceed);
+    }
+
+    @Override
+    public int trimAddressNicknames(int maxNicknames, int batchSize, BooleanSupplier proceed) {
+        return trimLinks("address", "nickname", maxNicknames, batchSize, proceed);
+    }
+
+    private int removeUnseen(String table, String column, long seenBefore,
+                             int batchSize, BooleanSupplier proceed) {
+        int removed = 0;
+        try {
+            while (true) {
+                // Selecting on a reader keeps the writer free for connecting players
+                List<String> keys = database.read(statements -> {
+                    PreparedStatement preparedStatement = statements.prepare(
+                            "SELECT " + column + " FROM " + table + " WHERE last_seen < ?"
+                            + " AND whitelisted = FALSE AND blacklisted = FALSE LIMIT ?");
+                    preparedStatement.setLong(1, seenBefore);
+                    preparedStatement.setInt(2, batchSize);
+                    try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                        List<String> selected = new ArrayList<>();
+                        while (resultSet.next()) {
+                            selected.add(resultSet.getString(1));
+                        }
+                        return selected;
+                    }
+                });
+                if (keys.isEmpty()) return removed;
+
+                database.write(statements -> {
+                    PreparedStatement linkStatement = statements.prepare(
+                            "DELETE FROM user_address WHERE " + column + " = ? AND last_seen < ?");
+                    PreparedStatement deleteStatement = statements.prepare(
+                            "DELETE FROM " + table + " WHERE " + column + " = ? AND last_seen < ?"
+                            + " AND whitelisted = FALSE AND blacklisted = FALSE");
+                    for (String key : keys) {
+                        linkStatement.setString(1, key);
+                        linkStatement.setLong(2, seenBefore);
+                        linkStatement.addBatch();
+                        deleteStatement.setString(1, key);
+                        deleteStatement.setLong(2, seenBefore);
+                        deleteStatement.addBatch();
+                    }
+                    linkStatement.executeBatch();
+                    deleteStatement.executeBatch();
+                    return null;
+                });
+                removed += keys.size();
+                if (keys.size() < batchSize || !proceed.getAsBoolean()) return removed;
+            }
+        } catch (SQLException e) {
+            LogUtils.errorDataAccess("Unable to remove {} not seen for a long time.", table);
+            e.printStackTrace();
+        }
+        return -1;
+    }
+
+    private int trimLinks(String column, String linkedColumn, int maxLinks,
+                          int batchSize, BooleanSupplier proceed) {
+        int removed = 0;
+        String after = "";
+        try {
+            while (true) {
+                String lastKey = after;
+                List<String> keys = new ArrayList<>();
+                List<String[]> links = database.read(statements -> {
+                    // Keys are walked in the order of the index, so every batch continues the previous one
+                    PreparedStatement selectStatement = statements.prepare(
+                            "SELECT " + column + " FROM user_address WHERE " + column + " > ?"
+                            + " GROUP BY " + column + " HAVING COUNT(*) > ?"
+                            + " ORDER BY " + column + " LIMIT ?");
+                    selectStatement.setString(1, lastKey);
+                    selectStatement.setInt(2, maxLinks);
+                    selectStatement.setInt(3, batchSize);
+                    try (ResultSet resultSet = selectStatement.executeQuery()) {
+                        while (resultSet.next()) {
+                            keys.add(resultSet.getString(1));
+                        }
+                    }
+
+                    PreparedStatement linkStatement = statements.prepare(
+                            "SELECT " + linkedColumn + " FROM user_address WHERE " + column + " = ?"
+                            + " ORDER BY last_seen DESC");
+                    List<String[]> selected = new ArrayList<>();
+                    for (String key : keys) {
+                        linkStatement.setString(1, key);
+                        try (ResultSet resultSet = linkStatement.executeQuery()) {
+                            for (int i = 0; resultSet.next(); i++) {
+                                if (i >= maxLinks) selected.add(new String[]{key, resultSet.getString(1)});
+                            }
+                        }
+                    }
+                    return selected;
+                });
+                if (keys.isEmpty()) return removed;
+
+                database.write(statements -> {
+                    PreparedStatement deleteStatement = statements.prepare(
+                            "DELETE FROM user_address WHERE " + column + " = ? AND " + linkedColumn + " = ?");
+                    for (String[] link : links) {
+                        deleteStatement.setString(1, link[0]);
+                        deleteStatement.setString(2, link[1]);
+                        deleteStatement.addBatch();
+                    }
+                    deleteStatement.executeBatch();
+                    return null;
+                });
+                removed += links.size();
+                after = keys.get(keys.size() - 1);
+                if (keys.size() < batchSize || !proceed.getAsBoolean()) return removed;
+            }
+        } catch (SQLException e) {
+            LogUtils.errorDataAccess("Unable to remove the least recently seen links by {}.", column);
+            e.printStackTrace();
+        }
+        return -1;
+    }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.data.storage.user;
+
+import org.jetbrains.annotations.Nullable;
+import xyz.yawek.barricade.data.storage.EmbeddedDataAccess;
+import xyz.yawek.barricade.data.storage.LogStore;
+import xyz.yawek.barricade.user.StoredFlags;
+import xyz.yawek.barricade.user.StoredUser;
+import xyz.yawek.barricade.util.LogUtils;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+public class EmbeddedUserDataAccess extends EmbeddedDataAccess implements UserDataAccess {
+
+    public EmbeddedUserDataAccess(LogStore store) {
+        super(store);
+    }
+
+    @Override
+    public Optional<StoredUser> getUser(String nickname) {
+        Entry entry = getEntry(USER + nickname);
+        if (entry == null) return Optional.empty();
+        return Optional.of(new StoredUser(nickname, new HashSet<>(getLinked(USER, nickname, entry)),
+                entry.whitelisted(), entry.blacklisted()));
+    }
+
+    @Override
+    public Optional<Set<String>> getAddresses(String nickname) {
+        Entry entry = getEntry(USER + nickname);
+        if (entry == null || entry.linkCount() == 0) return Optional.empty();
+        return Optional.of(new HashSet<>(getLinked(USER, nickname, entry)));
+    }
+
+    @Override
+    public void addAddress(String nickname, @Nullable String address,
+                           boolean whitelisted, boolean blacklisted) {
+        try {
+            updateEntry(USER + nickname, entry -> Entry.orEmpty(entry)
+                    .withFlags(whitelisted, blacklisted));
+            if (address != null) link(nickname, address);
+        } catch (IOException e) {
+            LogUtils.errorDataAccess("Unable to add address '{}' " +
+                    "for nickname '{}'.", address, nickname);
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void addUsers(Map<String, Integer> connectionsByNickname) {
+        long seenAt = System.currentTimeMillis();
+        try {
+            for (Map.Entry<String, Integer> userEntry : connectionsByNickname.entrySet()) {
+                updateEntry(USER + userEntry.getKey(), entry -> Entry.orEmpty(entry)
+                        .seen(userEntry.getValue(), seenAt));
+            }
+        } catch (IOException e) {
+            LogUtils.errorDataAccess("Unable to add {} users.", String.valueOf(connectionsByNickname.size()));
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public boolean forEachFlagged(BiConsumer<String, StoredFlags> consumer) {
+        forEachEntry(USER, (nickname, entry) -> {
+            if (entry.whitelisted() || entry.blacklisted()) consumer.accept(nickname, entry.flags());
+        });
+        return true;
+    }
+
+    @Override
+    public boolean setListed(List<String> nicknames, boolean blacklist) {
+        try {
+            for (String nickname : nicknames) {
+                updateEntry(USER + nickname, entry -> {
+                    Entry stored = Entry.orEmpty(entry);
+                    return stored.withFlags(stored.whitelisted() || !blacklist, stored.blacklisted() || blacklist);
+                });
+            }
+            return true;
+        } catch (IOException e) {
+            LogUtils.errorDataAccess("Unable to add {} users to the {}.",
+                    String.valueOf(nicknames.size()), blacklist ? "blacklist" : "whitelist");
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    @Override
+    public void setJoined(Collection<String> nicknames) {
+        try {
+            for (String nickname : nicknames) {
+                updateEntry(USER + nickname, entry -> Entry.orEmpty(entry).withJoined());
+            }
+        } catch (IOException e) {
+            LogUtils.errorDataAccess("Unable to mark {} users as joined.", String.valueOf(nicknames.size()));
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public boolean forEachJoinedNickname(Consumer<String> consumer) {
+        forEachEntry(USER, (nickname, entry) -> {
+            if (entry.joined()) consumer.accept(nickname);
+        });
+        return true;
+    }
+
+    @Override
+    public boolean isWhitelisted(String nickname) {
+        Entry entry = getEntry(USER + nickname);
+        return entry != null && entry.whitelisted();
+    }
+
+    @Override
+    public void setWhitelisted(String nickname, boolean whitelisted) {
+        try {
+            updateEntry(USER + nickname, entry -> entry != null
+                    ? entry.withFlags(whitelisted, entry.blacklisted()) : null);
+        } catch (IOException e) {
+            LogUtils.errorDataAccess("Unable to set whitelisted '{}' " +
+                    "for nickname '{}'.", String.valueOf(whitelisted), nickname);
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public boolean isBlacklisted(String nickname) {
+        Entry entry = getEntry(USER + nickname);
+        return entry != null && entry.blacklisted();
+    }
+
+    @Override
+    public void setBlacklisted(String nickname, boolean blacklisted) {
+        try {
+            updateEntry(USER + nickname, entry -> entry != null
+                    ? entry.withFlags(entry.whitelisted(), blacklisted) : null);
+        } catch (IOException e) {
+            LogUtils.errorDataAccess("Unable to set blacklisted '{}' " +
+                    "for nickname '{}'.", String.valueOf(blacklisted), nickname);
+            e.printStackTrace();
+        }
+    }
+
+}
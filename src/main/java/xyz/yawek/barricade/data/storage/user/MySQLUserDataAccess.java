@@ -19,9 +19,9 @@
 package xyz.yawek.barricade.data.storage.user;
 
 import com.zaxxer.hikari.HikariDataSource;
-import java.util.Collections;
 import org.jetbrains.annotations.Nullable;
 import xyz.yawek.barricade.data.storage.MySQLDataAccess;
+import xyz.yawek.barricade.user.StoredFlags;
 import xyz.yawek.barricade.user.StoredUser;
 import xyz.yawek.barricade.util.LogUtils;
 
@@ -29,11 +29,15 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public class MySQLUserDataAccess extends MySQLDataAccess implements UserDataAccess {
 
@@ -43,24 +47,24 @@ public class MySQLUserDataAccess extends MySQLDataAccess implements UserDataAcce
 
     @Override
     public Optional<StoredUser> getUser(String nickname) {
-        try (Connection connection = hikari.getConnection()) {
-            PreparedStatement preparedStatement = connection.prepareStatement("""
-                          SELECT nickname, addresses, whitelisted, blacklisted FROM users
-                          WHERE nickname = ?
-                        """);
+        try (Connection connection = hikari.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("""
+                          SELECT users.nickname, users.whitelisted, users.blacklisted, user_address.address
+                          FROM users LEFT JOIN user_address ON user_address.nickname = users.nickname
+                          WHERE users.nickname = ?
+                        """)) {
             preparedStatement.setString(1, nickname);
-            ResultSet resultSet = preparedStatement.executeQuery();
-            if (resultSet.next()) {
-                String addressesString = resultSet.getString(2);
-                return Optional.of(
-                    new StoredUser(
-                        resultSet.getString(1),
-                        addressesString != null ? Arrays.stream(addressesString.split(","))
-                            .collect(Collectors.toSet()) : Collections.emptySet(),
-                        resultSet.getBoolean(3),
-                        resultSet.getBoolean(4)
-                    )
-                );
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                if (!resultSet.next()) return Optional.empty();
+                String storedNickname = resultSet.getString(1);
+                boolean whitelisted = resultSet.getBoolean(2);
+                boolean blacklisted = resultSet.getBoolean(3);
+                Set<String> addresses = new HashSet<>();
+                do {
+                    String addressString = resultSet.getString(4);
+                    if (addressString != null) addresses.add(addressString);
+                } while (resultSet.next());
+                return Optional.of(new StoredUser(storedNickname, addresses, whitelisted, blacklisted));
             }
         } catch (SQLException e) {
             LogUtils.errorDataAccess("Unable to get user '{}'.", nickname);
@@ -69,22 +73,19 @@ public class MySQLUserDataAccess extends MySQLDataAccess implements UserDataAcce
         return Optional.empty();
     }
 
-
     @Override
     public Optional<Set<String>> getAddresses(String nickname) {
-        try (Connection connection = hikari.getConnection()) {
-            PreparedStatement preparedStatement = connection.prepareStatement("""
-                          SELECT addresses FROM users WHERE nickname = ?
-                        """);
+        try (Connection connection = hikari.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("""
+                          SELECT address FROM user_address WHERE nickname = ?
+                        """)) {
             preparedStatement.setString(1, nickname);
-            ResultSet resultSet = preparedStatement.executeQuery();
-            if (resultSet.next()) {
-                String addressesString = resultSet.getString(1);
-                if (addressesString == null) {
-                    return Optional.empty();
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                Set<String> addresses = new HashSet<>();
+                while (resultSet.next()) {
+                    addresses.add(resultSet.getString(1));
                 }
-                return Optional.of(Arrays.stream(addressesString.split(","))
-                        .collect(Collectors.toSet()));
+                return !addresses.isEmpty() ? Optional.of(addresses) : Optional.empty();
             }
         } catch (SQLException e) {
             LogUtils.errorDataAccess("Unable to get address " +
@@ -97,34 +98,28 @@ public class MySQLUserDataAccess extends MySQLDataAccess implements UserDataAcce
     @Override
     public void addAddress(String nickname, @Nullable String address,
         boolean whitelisted, boolean blacklisted) {
-        Set<String> addresses = new HashSet<>();
-        Optional<Set<String>> addressesOptional = getAddresses(nickname);
-        addressesOptional.ifPresent(addresses::addAll);
-        if (address != null) {
-            addresses.add(address);
-        }
-
-        try (Connection connection = hikari.getConnection()) {
-            PreparedStatement preparedStatement = connection.prepareStatement("""
-                          INSERT INTO users (nickname, addresses, whitelisted, blacklisted)
-                          VALUES (?, ?, ?, ?)
+        try (Connection connection = hikari.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("""
+                          INSERT INTO users (nickname, whitelisted, blacklisted)
+                          VALUES (?, ?, ?)
                           ON DUPLICATE KEY UPDATE
-                          nickname = ?,
-                          addresses = ?,
                           whitelisted = ?,
                           blacklisted = ?
                         """);
+             PreparedStatement linkStatement = connection.prepareStatement("""
+                          INSERT IGNORE INTO user_address (nickname, address) VALUES (?, ?)
+                        """)) {
             preparedStatement.setString(1, nickname);
-            preparedStatement.setString(2, !addresses.isEmpty()
-                ? String.join(",", addresses) : null);
-            preparedStatement.setBoolean(3, whitelisted);
-            preparedStatement.setBoolean(4, blacklisted);
-            preparedStatement.setString(5, nickname);
-            preparedStatement.setString(6, !addresses.isEmpty()
-                ? String.join(",", addresses) : null);
-            preparedStatement.setBoolean(7, whitelisted);
-            preparedStatement.setBoolean(8, blacklisted);
+            preparedStatement.setBoolean(2, whitelisted);
+            preparedStatement.setBoolean(3, blacklisted);
+            preparedStatement.setBoolean(4, whitelisted);
+            preparedStatement.setBoolean(5, blacklisted);
             preparedStatement.execute();
+            if (address != null) {
+                linkStatement.setString(1, nickname);
+                linkStatement.setString(2, address);
+                linkStatement.execute();
+            }
         } catch (SQLException e) {
             LogUtils.errorDataAccess("Unable to add address '{}' " +
                     "for nickname '{}'.", address, nickname);
@@ -133,15 +128,114 @@ public class MySQLUserDataAccess extends MySQLDataAccess implements UserDataAcce
     }
 
     @Override
-    public boolean isWhitelisted(String nickname) {
+    public void addUsers(Map<String, Integer> connectionsByNickname) {
+        Map<List<String>, Integer> userRows = new HashMap<>();
+        connectionsByNickname.forEach((nickname, connections) ->
+                userRows.put(List.of(nickname), connections));
         try (Connection connection = hikari.getConnection()) {
-            PreparedStatement preparedStatement = connection.prepareStatement("""
+            upsertSeen(connection, "users", List.of("nickname"), userRows, System.currentTimeMillis());
+        } catch (SQLException e) {
+            LogUtils.errorDataAccess("Unable to add {} users.", String.valueOf(connectionsByNickname.size()));
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public boolean forEachFlagged(BiConsumer<String, StoredFlags> consumer) {
+        try (Connection connection = hikari.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("""
+                          SELECT nickname, whitelisted, blacklisted FROM users
+                          WHERE whitelisted = TRUE OR blacklisted = TRUE
+                        """)) {
+            // Streams rows one by one instead of reading the whole result into memory
+            preparedStatement.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    consumer.accept(resultSet.getString(1), StoredFlags.of(
+                            resultSet.getBoolean(2), resultSet.getBoolean(3)));
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            LogUtils.errorDataAccess("Unable to read whitelisted and blacklisted users.");
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    @Override
+    public void setJoined(Collection<String> nicknames) {
+        if (nicknames.isEmpty()) return;
+        try (Connection connection = hikari.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("""
+                          INSERT INTO users (nickname, joined) VALUES (?, TRUE)
+                          ON DUPLICATE KEY UPDATE joined = TRUE
+                        """)) {
+            transaction(connection, () -> {
+                for (String nickname : nicknames) {
+                    preparedStatement.setString(1, nickname);
+                    preparedStatement.addBatch();
+                }
+                preparedStatement.executeBatch();
+            });
+        } catch (SQLException e) {
+            LogUtils.errorDataAccess("Unable to mark {} users as joined.", String.valueOf(nicknames.size()));
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public boolean forEachJoinedNickname(Consumer<String> consumer) {
+        try (Connection connection = hikari.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("""
+                          SELECT nickname FROM users WHERE joined = TRUE
+                        """)) {
+            preparedStatement.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    consumer.accept(resultSet.getString(1));
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            LogUtils.errorDataAccess("Unable to read nicknames of joined users.");
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    @Override
+    public boolean setListed(List<String> nicknames, boolean blacklist) {
+        String column = blacklist ? "blacklisted" : "whitelisted";
+        try (Connection connection = hikari.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(
+                     "INSERT INTO users (nickname, " + column + ") VALUES (?, TRUE)"
+                     + " ON DUPLICATE KEY UPDATE " + column + " = TRUE")) {
+            transaction(connection, () -> {
+                for (String nickname : nicknames) {
+                    preparedStatement.setString(1, nickname);
+                    preparedStatement.addBatch();
+                }
+                preparedStatement.executeBatch();
+            });
+            return true;
+        } catch (SQLException e) {
+            LogUtils.errorDataAccess("Unable to add {} users to the {}.",
+                    String.valueOf(nicknames.size()), blacklist ? "blacklist" : "whitelist");
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isWhitelisted(String nickname) {
+        try (Connection connection = hikari.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("""
                           SELECT whitelisted FROM users where nickname = ?
-                        """);
+                        """)) {
             preparedStatement.setString(1, nickname);
-            ResultSet resultSet = preparedStatement.executeQuery();
-            if (resultSet.next()) {
-                return resultSet.getBoolean(1);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                return resultSet.next() && resultSet.getBoolean(1);
             }
         } catch (SQLException e) {
             LogUtils.errorDataAccess("Unable to check " +
@@ -153,10 +247,10 @@ public class MySQLUserDataAccess extends MySQLDataAccess implements UserDataAcce
 
     @Override
     public void setWhitelisted(String nickname, boolean whitelisted) {
-        try (Connection connection = hikari.getConnection()) {
-            PreparedStatement preparedStatement = connection.prepareStatement("""
+        try (Connection connection = hikari.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("""
                           UPDATE users SET whitelisted = ? WHERE nickname = ?
-                        """);
+                        """)) {
             preparedStatement.setBoolean(1, whitelisted);
             preparedStatement.setString(2, nickname);
             preparedStatement.execute();
@@ -169,14 +263,13 @@ public class MySQLUserDataAccess extends MySQLDataAccess implements UserDataAcce
 
     @Override
     public boolean isBlacklisted(String nickname) {
-        try (Connection connection = hikari.getConnection()) {
-            PreparedStatement preparedStatement = connection.prepareStatement("""
+        try (Connection connection = hikari.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("""
                           SELECT blacklisted FROM users where nickname = ?
-                        """);
+                        """)) {
             preparedStatement.setString(1, nickname);
-            ResultSet resultSet = preparedStatement.executeQuery();
-            if (resultSet.next()) {
-                return resultSet.getBoolean(1);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                return resultSet.next() && resultSet.getBoolean(1);
             }
         } catch (SQLException e) {
             LogUtils.errorDataAccess("Unable to check " +
@@ -188,10 +281,10 @@ public class MySQLUserDataAccess extends MySQLDataAccess implements UserDataAcce
 
     @Override
     public void setBlacklisted(String nickname, boolean blacklisted) {
-        try (Connection connection = hikari.getConnection()) {
-            PreparedStatement preparedStatement = connection.prepareStatement("""
+        try (Connection connection = hikari.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("""
                           UPDATE users SET blacklisted = ? WHERE nickname = ?
-                        """);
+                        """)) {
             preparedStatement.setBoolean(1, blacklisted);
             preparedStatement.setString(2, nickname);
             preparedStatement.execute();
@@ -18,9 +18,15 @@
 
 package xyz.yawek.barricade.data.storage.user;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import org.jetbrains.annotations.Nullable;
+import xyz.yawek.barricade.user.StoredFlags;
 import xyz.yawek.barricade.user.StoredUser;
 
 public interface UserDataAccess {
@@ -32,6 +38,47 @@ public interface UserDataAccess {
     void addAddress(String nickname, @Nullable String address,
         boolean whitelisted, boolean blacklisted);
 
+    /**
+     * Adds users which are not stored yet, updates the time all of them were last seen
+     * and counts their connections, keeping flags of stored users unchanged.
+     *
+     * @param connectionsByNickname numbers of new connections of the users
+     */
+    void addUsers(Map<String, Integer> connectionsByNickname);
+
+    /**
+     * Reads all whitelisted or blacklisted nicknames row by row.
+     *
+     * @param consumer consumer of the nicknames and their flags
+     * @return true if all nicknames were read, false if reading failed
+     */
+    boolean forEachFlagged(BiConsumer<String, StoredFlags> consumer);
+
+    /**
+     * Whitelists or blacklists many nicknames in one transaction, adding nicknames which are not stored yet.
+     * The other flag of stored nicknames is kept unchanged.
+     *
+     * @param nicknames nicknames to add to the list
+     * @param blacklist true to blacklist the nicknames, false to whitelist them
+     * @return true if the nicknames were saved, false if saving failed
+     */
+    boolean setListed(List<String> nicknames, boolean blacklist);
+
+    /**
+     * Marks users as joined, adding users which are not stored yet.
+     *
+     * @param nicknames nicknames of the users which completed login
+     */
+    void setJoined(Collection<String> nicknames);
+
+    /**
+     * Reads nicknames of users which completed login at least once row by row.
+     *
+     * @param consumer consumer of the nicknames
+     * @return true if all nicknames were read, false if reading failed
+     */
+    boolean forEachJoinedNickname(Consumer<String> consumer);
+
     boolean isWhitelisted(String nickname);
 
     void setWhitelisted(String nickname, boolean whitelisted);
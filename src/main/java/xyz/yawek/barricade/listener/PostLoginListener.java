@@ -23,7 +23,9 @@ import com.velocitypowered.api.event.Subscribe;
 import com.velocitypowered.api.event.connection.PostLoginEvent;
 import xyz.yawek.barricade.Barricade;
 import xyz.yawek.barricade.listener.handler.PostLoginHandler;
-import xyz.yawek.barricade.user.ConnectingUser;
+import xyz.yawek.barricade.manager.ConnectingUserManager;
+
+import java.net.InetAddress;
 
 public class PostLoginListener extends PostLoginHandler {
 
@@ -34,11 +36,13 @@ public class PostLoginListener extends PostLoginHandler {
     @SuppressWarnings("unused")
     @Subscribe
     public EventTask onPostLogin(PostLoginEvent e) {
-        return EventTask.async(() -> {
-            ConnectingUser connectingUser = barricade.getConnectingUserManager().create(
-                    e.getPlayer().getUsername(), e.getPlayer().getRemoteAddress().getAddress());
-            resolve(connectingUser);
-        });
+        ConnectingUserManager connectingUserManager = barricade.getConnectingUserManager();
+        String nickname = e.getPlayer().getUsername();
+        InetAddress inetAddress = e.getPlayer().getRemoteAddress().getAddress();
+        // The player has already passed the checks, so cached flags are enough if reading fails
+        return EventTask.resumeWhenComplete(connectingUserManager.createAsync(nickname, inetAddress)
+                .thenAccept(connectingUser -> resolve(connectingUser.orElseGet(
+                        () -> connectingUserManager.createCached(nickname, inetAddress)))));
     }
 
 }
@@ -24,7 +24,6 @@ import com.velocitypowered.api.event.Subscribe;
 import com.velocitypowered.api.event.connection.PreLoginEvent;
 import xyz.yawek.barricade.Barricade;
 import xyz.yawek.barricade.listener.handler.PreLoginHandler;
-import xyz.yawek.barricade.user.ConnectingUser;
 
 public class PreLoginListener extends PreLoginHandler {
 
@@ -35,11 +34,10 @@ public class PreLoginListener extends PreLoginHandler {
     @SuppressWarnings("unused")
     @Subscribe(order = PostOrder.LAST)
     public EventTask onPlayerPreLogin(PreLoginEvent e) {
-        return EventTask.async(() -> {
-            ConnectingUser connectingUser = barricade.getConnectingUserManager().create(
-                    e.getUsername(), e.getConnection().getRemoteAddress().getAddress());
-            e.setResult(resolve(connectingUser));
-        });
+        return EventTask.resumeWhenComplete(barricade.getConnectingUserManager()
+                .createAsync(e.getUsername(), e.getConnection().getRemoteAddress().getAddress())
+                .thenAccept(connectingUser -> e.setResult(connectingUser.isPresent()
+                        ? resolve(connectingUser.get()) : resolveUnverified())));
     }
 
 }
@@ -32,6 +32,7 @@ public abstract class PostLoginHandler {
     public void resolve(ConnectingUser connectingUser) {
         barricade.getRateLimitManager().incrementCounter();
         barricade.getAccountLimitManager().increment(connectingUser);
+        barricade.getAttackModeManager().markSeen(connectingUser.getNickname());
     }
 
 }
@@ -21,26 +21,17 @@ package xyz.yawek.barricade.listener.handler;
 import com.velocitypowered.api.event.connection.PreLoginEvent;
 import net.kyori.adventure.text.Component;
 import xyz.yawek.barricade.Barricade;
-import xyz.yawek.barricade.check.*;
+import xyz.yawek.barricade.manager.AttackModeManager;
 import xyz.yawek.barricade.user.ConnectingUser;
 
-import java.util.*;
+import java.util.Optional;
 
 public abstract class PreLoginHandler {
 
     protected final Barricade barricade;
 
-    private final Set<AbstractCheck> checkSet = new TreeSet<>();
-
     public PreLoginHandler(Barricade barricade) {
         this.barricade = barricade;
-
-        checkSet.add(new NicknameCheck(this.barricade));
-        checkSet.add(new AccountLimitCheck(this.barricade));
-        checkSet.add(new ASNCheck(this.barricade));
-        checkSet.add(new BlacklistCheck(this.barricade));
-        checkSet.add(new GeoCheck(this.barricade));
-        checkSet.add(new RateLimitCheck(this.barricade));
     }
 
     /**
@@ -50,15 +41,34 @@ public abstract class PreLoginHandler {
      * @return result of the ran checks
      */
     public PreLoginEvent.PreLoginComponentResult resolve(ConnectingUser connectingUser) {
-        barricade.getConnectingUserManager().update(connectingUser);
+        AttackModeManager attackModeManager = barricade.getAttackModeManager();
+        boolean attackMode = attackModeManager.isActive();
+        boolean seen = !attackMode || attackModeManager.isSeen(connectingUser.getNickname());
+        if (seen) barricade.getConnectingUserManager().update(connectingUser);
         if (connectingUser.isWhitelisted())
             return PreLoginEvent.PreLoginComponentResult.allowed();
-        for (AbstractCheck abstractCheck : checkSet) {
-            Optional<Component> resultComponent = abstractCheck.check(connectingUser);
-            if (resultComponent.isPresent())
-                return PreLoginEvent.PreLoginComponentResult.denied(resultComponent.get());
+        if (!seen && barricade.getConfig().attackModeDenyUnseen()) {
+            attackModeManager.recordAttempt(true);
+            return PreLoginEvent.PreLoginComponentResult.denied(
+                    barricade.getConfig().attackModeUnseen());
         }
+        Optional<Component> resultComponent = barricade.getCheckPipeline().run(connectingUser);
+        if (resultComponent.isPresent()) {
+            attackModeManager.recordAttempt(true);
+            return PreLoginEvent.PreLoginComponentResult.denied(resultComponent.get());
+        }
+        attackModeManager.recordAttempt(false);
         return PreLoginEvent.PreLoginComponentResult.allowed();
     }
 
+    /**
+     * Denies a player whose flags could not be read, as the player may be blacklisted.
+     *
+     * @return result denying the player
+     */
+    public PreLoginEvent.PreLoginComponentResult resolveUnverified() {
+        barricade.getAttackModeManager().recordAttempt(true);
+        return PreLoginEvent.PreLoginComponentResult.denied(barricade.getConfig().unverified());
+    }
+
 }
@@ -18,32 +18,54 @@
 
 package xyz.yawek.barricade.manager;
 
+import xyz.yawek.barricade.Barricade;
 import xyz.yawek.barricade.user.ConnectingUser;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class AccountLimitManager {
 
+    private final Barricade barricade;
     private final Map<String, Integer> addressesMap = new ConcurrentHashMap<>();
 
+    public AccountLimitManager(Barricade barricade) {
+        this.barricade = barricade;
+    }
+
     public void increment(ConnectingUser connectingUser) {
-        String address = connectingUser.getStringAddress();
-        addressesMap.put(address, addressesMap.getOrDefault(address, 0) + 1);
+        // Counts are published inside the update, so a concurrent change cannot publish a stale one
+        addressesMap.compute(connectingUser.getStringAddress(), (address, accounts) ->
+                publish(address, accounts != null ? accounts + 1 : 1));
     }
 
     public void decrement(ConnectingUser connectingUser) {
-        String address = connectingUser.getStringAddress();
-        if (!addressesMap.containsKey(address)) return;
-        if (addressesMap.get(address) == 0) {
-            addressesMap.remove(address);
-            return;
-        }
-        addressesMap.put(address, addressesMap.get(address) - 1);
+        addressesMap.computeIfPresent(connectingUser.getStringAddress(), (address, accounts) ->
+                publish(address, accounts - 1));
     }
 
+    /**
+     * Gets the number of accounts connected from the user's address,
+     * including other proxies of the cluster.
+     */
     public int numOfConnections(ConnectingUser connectingUser) {
-        return addressesMap.getOrDefault(connectingUser.getStringAddress(), 0);
+        String address = connectingUser.getStringAddress();
+        return addressesMap.getOrDefault(address, 0)
+                + (int) barricade.getClusterManager().getRemoteAccounts(address);
+    }
+
+    /**
+     * Publishes all connected accounts to the cluster again, after its counters were recreated.
+     */
+    public void publish() {
+        addressesMap.keySet().forEach(address ->
+                addressesMap.computeIfPresent(address, this::publish));
+    }
+
+    private @Nullable Integer publish(String address, int accounts) {
+        barricade.getClusterManager().setAccounts(address, accounts);
+        return accounts > 0 ? accounts : null;
     }
 
 }
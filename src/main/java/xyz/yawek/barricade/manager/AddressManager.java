@@ -20,34 +20,73 @@ package xyz.yawek.barricade.manager;
 
 import java.util.Collections;
 import xyz.yawek.barricade.Barricade;
+import xyz.yawek.barricade.config.Config;
+import xyz.yawek.barricade.manager.cache.ExpiringCache;
 import xyz.yawek.barricade.user.StoredAddress;
+import xyz.yawek.barricade.user.StoredFlags;
 
+import java.time.Duration;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 public class AddressManager {
 
     private final Barricade barricade;
+    private final ExpiringCache<String, StoredFlags> flagsCache;
 
     public AddressManager(Barricade barricade) {
         this.barricade = barricade;
+
+        Config config = barricade.getConfig();
+        this.flagsCache = new ExpiringCache<>(config.flagsCacheMaxSize(),
+                Duration.ofSeconds(config.flagsCacheExpireAfter()));
     }
 
     public Optional<StoredAddress> getOptional(String address) {
         return barricade.getDataProvider().getStoredAddress(address);
     }
 
+    public CompletableFuture<Optional<StoredAddress>> getOptionalAsync(String address) {
+        return barricade.getDataProvider().getStoredAddressAsync(address);
+    }
+
+    /**
+     * Gets whitelist and blacklist flags of the address only if they are cached.
+     *
+     * @param address address to get flags of
+     * @return cached flags of the address, {@link StoredFlags#NONE} if they are not cached
+     */
+    public StoredFlags getCachedFlags(String address) {
+        return flagsCache.getIfPresent(address).orElse(StoredFlags.NONE);
+    }
+
     public void update(StoredAddress storedAddress) {
         barricade.getDataProvider().updateStoredAddress(storedAddress);
+        flagsCache.invalidate(storedAddress.getAddress());
+        barricade.getListSnapshotManager().setAddressFlags(storedAddress.getAddress(),
+                StoredFlags.of(storedAddress.isWhitelisted(), storedAddress.isBlacklisted()));
     }
 
     public void addWhitelistedAddress(String address) {
         barricade.getDataProvider().updateStoredAddress(
             new StoredAddress(address, Collections.emptySet(), true, false));
+        flagsCache.invalidate(address);
+        barricade.getListSnapshotManager().setAddressFlags(address, StoredFlags.of(true, false));
     }
 
     public void addBlacklistedAddress(String address) {
         barricade.getDataProvider().updateStoredAddress(
             new StoredAddress(address, Collections.emptySet(), false, true));
+        flagsCache.invalidate(address);
+        barricade.getListSnapshotManager().setAddressFlags(address, StoredFlags.of(false, true));
+    }
+
+    public void invalidateCache() {
+        flagsCache.invalidateAll();
+    }
+
+    public ExpiringCache<String, StoredFlags> getFlagsCache() {
+        return flagsCache;
     }
 
 }
@@ -0,0 +1,104 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.manager;
+
+import org.jetbrains.annotations.Nullable;
+import xyz.yawek.barricade.Barricade;
+import xyz.yawek.barricade.manager.snapshot.AddressRange;
+import xyz.yawek.barricade.manager.snapshot.ListKey;
+import xyz.yawek.barricade.manager.snapshot.RangeTrie;
+import xyz.yawek.barricade.util.LogUtils;
+
+import java.net.InetAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps blacklisted address ranges in memory, in a trie
+ * matching an address against all of them at once.
+ */
+public class AddressRangeManager {
+
+    private final Barricade barricade;
+    private volatile RangeTrie blacklistedRanges = RangeTrie.EMPTY;
+    // Ranges added (true) or removed (false) while the ranges are being reloaded
+    private @Nullable Map<AddressRange, Boolean> pendingRanges;
+
+    public AddressRangeManager(Barricade barricade) {
+        this.barricade = barricade;
+    }
+
+    /**
+     * Reads all blacklisted ranges from the database and replaces the ones in memory.
+     * Ranges added or removed during the reading are applied to the loaded ones.
+     * The current ranges are kept if reading fails.
+     */
+    public void reload() {
+        synchronized (this) {
+            if (pendingRanges != null) return;
+            pendingRanges = new LinkedHashMap<>();
+        }
+        RangeTrie[] loaded = {RangeTrie.EMPTY};
+        boolean success = barricade.getDataProvider().forEachBlacklistedRange(cidr -> {
+            AddressRange range = AddressRange.parse(cidr);
+            if (range == null) {
+                LogUtils.error("Blacklisted range '{}' is not valid and will be ignored.", cidr);
+                return;
+            }
+            loaded[0] = loaded[0].with(range);
+        });
+        synchronized (this) {
+            if (success) {
+                RangeTrie newRanges = loaded[0];
+                for (Map.Entry<AddressRange, Boolean> entry : pendingRanges.entrySet()) {
+                    newRanges = entry.getValue()
+                            ? newRanges.with(entry.getKey()) : newRanges.without(entry.getKey());
+                }
+                blacklistedRanges = newRanges;
+            }
+            pendingRanges = null;
+        }
+    }
+
+    public boolean isBlacklisted(InetAddress inetAddress) {
+        RangeTrie ranges = blacklistedRanges;
+        return ranges.size() > 0 && ranges.contains(ListKey.ofAddress(inetAddress));
+    }
+
+    public boolean isRangeBlacklisted(AddressRange range) {
+        return blacklistedRanges.containsRange(range);
+    }
+
+    public synchronized void addBlacklistedRange(AddressRange range) {
+        barricade.getDataProvider().addBlacklistedRange(range.toString());
+        if (pendingRanges != null) pendingRanges.put(range, true);
+        blacklistedRanges = blacklistedRanges.with(range);
+    }
+
+    public synchronized void removeBlacklistedRange(AddressRange range) {
+        barricade.getDataProvider().removeBlacklistedRange(range.toString());
+        if (pendingRanges != null) pendingRanges.put(range, false);
+        blacklistedRanges = blacklistedRanges.without(range);
+    }
+
+    public int getBlacklistedSize() {
+        return blacklistedRanges.size();
+    }
+
+}
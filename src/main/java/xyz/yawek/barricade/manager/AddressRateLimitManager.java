@@ -0,0 +1,83 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.manager;
+
+import xyz.yawek.barricade.Barricade;
+import xyz.yawek.barricade.config.Config;
+import xyz.yawek.barricade.manager.counter.WindowedCountMinSketch;
+import xyz.yawek.barricade.manager.snapshot.ListKey;
+
+import java.net.InetAddress;
+
+/**
+ * Counts connections of single addresses, IPv4 /24 subnets and IPv6 /48 subnets
+ * in a fixed amount of memory, no matter how many addresses are connecting.
+ */
+public class AddressRateLimitManager {
+
+    private static final long SUBNET_TAG = 0x5BD1E9955BD1E995L;
+
+    private final Barricade barricade;
+    private final WindowedCountMinSketch sketch;
+
+    public AddressRateLimitManager(Barricade barricade) {
+        this.barricade = barricade;
+
+        Config config = barricade.getConfig();
+        this.sketch = new WindowedCountMinSketch(config.addressRateLimitSketchWidth(),
+                config.addressRateLimitSketchDepth(), config.addressRateLimitWindow(),
+                config.addressRateLimitResolution());
+    }
+
+    /**
+     * Counts a connection from the address and checks
+     * if its address or subnet made too many connections in the window.
+     *
+     * @param inetAddress address of the connection
+     * @return true if the connection should be denied
+     */
+    public boolean countAndCheck(InetAddress inetAddress) {
+        Config config = barricade.getConfig();
+        ListKey key = ListKey.ofAddress(inetAddress);
+        boolean ipv4 = key.isMappedIpv4();
+
+        int addressLimit = config.addressRateLimitPerAddress();
+        boolean limited = addressLimit != -1
+                && sketch.addAndEstimate(mix(key.high(), key.low())) > addressLimit;
+
+        int subnetLimit = ipv4
+                ? config.addressRateLimitPerSubnetV4() : config.addressRateLimitPerSubnetV6();
+        if (subnetLimit != -1) {
+            // /24 for IPv4 addresses mapped into the lower bits, /48 for IPv6 addresses
+            long subnetHigh = ipv4 ? key.high() : key.high() & 0xFFFFFFFFFFFF0000L;
+            long subnetLow = ipv4 ? key.low() & 0xFFFFFFFFFFFFFF00L : 0;
+            limited |= sketch.addAndEstimate(mix(subnetHigh, subnetLow) ^ SUBNET_TAG) > subnetLimit;
+        }
+        return limited;
+    }
+
+    public WindowedCountMinSketch getSketch() {
+        return sketch;
+    }
+
+    private static long mix(long high, long low) {
+        return high * 0x9E3779B97F4A7C15L + low;
+    }
+
+}
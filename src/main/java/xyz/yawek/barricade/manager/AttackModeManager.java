@@ -0,0 +1,178 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.manager;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import xyz.yawek.barricade.Barricade;
+import xyz.yawek.barricade.config.Config;
+import xyz.yawek.barricade.manager.counter.SlidingWindowCounter;
+import xyz.yawek.barricade.util.LogUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turns attack mode on when too many players are connecting or too many
+ * of them are denied, and off again once traffic stays normal for a while.
+ */
+public class AttackModeManager {
+
+    private static final long RESOLUTION_MILLIS = 1000;
+
+    private final Barricade barricade;
+    private final SlidingWindowCounter attempts;
+    private final SlidingWindowCounter rejections;
+    private final double windowSeconds;
+
+    private volatile Mode mode = Mode.AUTO;
+    private volatile boolean active;
+    private long calmSince;
+    private volatile BloomFilter<CharSequence> seenNicknames;
+
+    public AttackModeManager(Barricade barricade) {
+        this.barricade = barricade;
+
+        Config config = barricade.getConfig();
+        this.attempts = new SlidingWindowCounter(config.attackModeWindow(), RESOLUTION_MILLIS);
+        this.rejections = new SlidingWindowCounter(config.attackModeWindow(), RESOLUTION_MILLIS);
+        this.windowSeconds = Math.max(RESOLUTION_MILLIS, config.attackModeWindow()) / 1000D;
+        this.seenNicknames = createSeenFilter();
+    }
+
+    public void recordAttempt(boolean rejected) {
+        attempts.increment();
+        if (rejected) rejections.increment();
+    }
+
+    /**
+     * Compares recent traffic with the configured thresholds
+     * and turns attack mode on or off in the automatic mode.
+     */
+    public synchronized void evaluate() {
+        Config config = barricade.getConfig();
+        double rate = getConnectionRate();
+        int rejectedPercent = getRejectedPercent();
+        boolean enoughAttempts = attempts.sum() >= config.attackModeMinAttempts();
+        if (!active) {
+            boolean rateExceeded = config.attackModeEnterRate() != -1
+                    && rate >= config.attackModeEnterRate();
+            boolean rejectionsExceeded = config.attackModeEnterRejectedPercent() != -1
+                    && enoughAttempts && rejectedPercent >= config.attackModeEnterRejectedPercent();
+            if (rateExceeded || rejectionsExceeded) {
+                active = true;
+                calmSince = 0;
+                if (mode == Mode.AUTO) {
+                    LogUtils.warn("Attack mode has been turned on, "
+                            + formatRate(rate) + " connections per second, "
+                            + rejectedPercent + "% denied.");
+                }
+            }
+            return;
+        }
+        boolean calm = (config.attackModeExitRate() == -1 || rate < config.attackModeExitRate())
+                && (config.attackModeExitRejectedPercent() == -1 || !enoughAttempts
+                || rejectedPercent < config.attackModeExitRejectedPercent());
+        if (!calm) {
+            calmSince = 0;
+            return;
+        }
+        long now = System.nanoTime();
+        if (calmSince == 0) {
+            calmSince = now;
+        } else if (now - calmSince >= TimeUnit.SECONDS.toNanos(config.attackModeExitDelay())) {
+            active = false;
+            calmSince = 0;
+            if (mode == Mode.AUTO) LogUtils.info("Attack mode has been turned off.");
+        }
+    }
+
+    /**
+     * Checks if attack mode is active, either forced or turned on automatically.
+     */
+    public boolean isActive() {
+        Mode currentMode = mode;
+        return currentMode == Mode.ON || (currentMode == Mode.AUTO && active);
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public double getConnectionRate() {
+        return attempts.sum() / windowSeconds;
+    }
+
+    public int getRejectedPercent() {
+        long attemptsSum = attempts.sum();
+        return attemptsSum > 0 ? (int) (rejections.sum() * 100 / attemptsSum) : 0;
+    }
+
+    /**
+     * Checks if the player has joined before, may rarely be true
+     * for a player who has not.
+     *
+     * @param nickname nickname of the player
+     * @return true if the player has probably joined before
+     */
+    public boolean isSeen(String nickname) {
+        return seenNicknames.mightContain(nickname.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Marks the player as seen after login, also saving it for {@link #loadSeen()}.
+     *
+     * @param nickname nickname of the player
+     */
+    public void markSeen(String nickname) {
+        seenNicknames.put(nickname.toLowerCase(Locale.ROOT));
+        barricade.getDataProvider().markJoined(nickname);
+    }
+
+    /**
+     * Replaces seen players with stored players who completed login, nicknames
+     * which only attempted to connect are not seen.
+     */
+    public void loadSeen() {
+        BloomFilter<CharSequence> filter = createSeenFilter();
+        if (barricade.getDataProvider().forEachJoinedNickname(
+                nickname -> filter.put(nickname.toLowerCase(Locale.ROOT)))) {
+            seenNicknames = filter;
+        }
+    }
+
+    private BloomFilter<CharSequence> createSeenFilter() {
+        return BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8),
+                Math.max(1, barricade.getConfig().attackModeSeenCapacity()), 0.01);
+    }
+
+    private static String formatRate(double rate) {
+        return String.format(Locale.ROOT, "%.1f", rate);
+    }
+
+    public enum Mode {
+        AUTO, ON, OFF
+    }
+
+}
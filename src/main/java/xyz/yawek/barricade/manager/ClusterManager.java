@@ -0,0 +1,93 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.manager;
+
+import org.jetbrains.annotations.Nullable;
+import xyz.yawek.barricade.Barricade;
+import xyz.yawek.barricade.config.Config;
+import xyz.yawek.barricade.data.storage.cluster.ClusterBackend;
+import xyz.yawek.barricade.manager.counter.SharedCounters;
+import xyz.yawek.barricade.util.LogUtils;
+
+import java.util.UUID;
+
+/**
+ * Shares connection counters with other proxies, so rate and account limits apply to the whole cluster.
+ */
+public class ClusterManager {
+
+    private static final String CONNECTIONS_KEY = "connections";
+    private static final String ACCOUNTS_PREFIX = "accounts:";
+
+    private final Barricade barricade;
+    private final @Nullable SharedCounters counters;
+
+    public ClusterManager(Barricade barricade) {
+        this.barricade = barricade;
+
+        Config config = barricade.getConfig();
+        ClusterBackend backend = null;
+        if (config.clusterEnabled()) {
+            backend = barricade.getDataProvider().getClusterBackend();
+            if (backend == null) {
+                LogUtils.error("Cluster limits require the MySQL database, "
+                        + "limits will apply to this proxy only.");
+            }
+        }
+        this.counters = backend != null
+                ? new SharedCounters(backend, UUID.randomUUID().toString())
+                : null;
+    }
+
+    /**
+     * Publishes counters of this proxy and reads counters of the other proxies.
+     */
+    public void synchronize() {
+        if (counters == null) return;
+        counters.set(CONNECTIONS_KEY, barricade.getRateLimitManager().getCounter());
+        counters.synchronize();
+    }
+
+    public void shutdown() {
+        if (counters != null) counters.leave();
+    }
+
+    public boolean isEnabled() {
+        return counters != null;
+    }
+
+    /**
+     * Gets the number of connections counted by the rate limit of the other proxies.
+     */
+    public long getRemoteConnections() {
+        return counters != null ? counters.getRemote(CONNECTIONS_KEY) : 0;
+    }
+
+    public void setAccounts(String address, int accounts) {
+        if (counters != null) counters.set(ACCOUNTS_PREFIX + address, accounts);
+    }
+
+    /**
+     * Gets the number of accounts connected from the address to the other proxies.
+     */
+    public long getRemoteAccounts(String address) {
+        return counters != null ? counters.getRemote(ACCOUNTS_PREFIX + address) : 0;
+    }
+
+}
@@ -19,11 +19,15 @@
 package xyz.yawek.barricade.manager;
 
 import xyz.yawek.barricade.Barricade;
+import xyz.yawek.barricade.manager.cache.ExpiringCache;
 import xyz.yawek.barricade.user.ConnectingUser;
-import xyz.yawek.barricade.user.StoredAddress;
-import xyz.yawek.barricade.user.StoredUser;
+import xyz.yawek.barricade.user.ConnectionFlags;
+import xyz.yawek.barricade.user.StoredFlags;
+import org.jetbrains.annotations.Nullable;
 
 import java.net.InetAddress;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 public class ConnectingUserManager {
 
@@ -33,24 +37,98 @@ public class ConnectingUserManager {
         this.barricade = barricade;
     }
 
+    /**
+     * Creates the connecting user of a player who has already passed the checks.
+     * If flags cannot be read, the cached flags are used.
+     *
+     * @param nickName nickname of the user
+     * @param inetAddress address of the user
+     * @return connecting user
+     */
     public ConnectingUser create(String nickName, InetAddress inetAddress) {
-        boolean whitelisted = barricade.getStoredUserManager()
-                .getOptional(nickName)
-                .map(StoredUser::isWhitelisted)
-                .orElse(false)
-                || barricade.getAddressManager()
-                .getOptional(inetAddress.getHostAddress())
-                .map(StoredAddress::isWhitelisted)
-                .orElse(false);
-        boolean blacklisted = barricade.getStoredUserManager()
-                .getOptional(nickName)
-                .map(StoredUser::isBlacklisted)
-                .orElse(false)
-                || barricade.getAddressManager()
-                .getOptional(inetAddress.getHostAddress())
-                .map(StoredAddress::isBlacklisted)
-                .orElse(false);
-        return new ConnectingUser(nickName, inetAddress, whitelisted, blacklisted);
+        ConnectionFlags flags = getKnownFlags(nickName, inetAddress);
+        if (flags == null) flags = loadFlags(nickName, inetAddress.getHostAddress());
+        if (flags == null) return createCached(nickName, inetAddress);
+        return new ConnectingUser(nickName, inetAddress, flags.isWhitelisted(), flags.isBlacklisted());
+    }
+
+    /**
+     * Creates the connecting user without blocking the calling thread.
+     * Flags missing from the snapshot and cache are read on the database threads.
+     *
+     * @param nickName nickname of the user
+     * @param inetAddress address of the user
+     * @return future of the connecting user, empty if its flags could not be read
+     * because the database failed or was too busy to take the read
+     */
+    public CompletableFuture<Optional<ConnectingUser>> createAsync(String nickName, InetAddress inetAddress) {
+        ConnectionFlags knownFlags = getKnownFlags(nickName, inetAddress);
+        CompletableFuture<ConnectionFlags> flags;
+        if (knownFlags != null) {
+            flags = CompletableFuture.completedFuture(knownFlags);
+        } else {
+            String address = inetAddress.getHostAddress();
+            flags = barricade.getDataProvider().getExecutor()
+                    .supply(() -> loadFlags(nickName, address))
+                    .exceptionally(throwable -> null);
+        }
+        return flags.thenApply(loaded -> Optional.ofNullable(loaded).map(known ->
+                new ConnectingUser(nickName, inetAddress, known.isWhitelisted(), known.isBlacklisted())));
+    }
+
+    /**
+     * Creates the connecting user with the cached flags, flags which are not cached
+     * are treated as not set, so it must not be used to run checks.
+     *
+     * @param nickName nickname of the user
+     * @param inetAddress address of the user
+     * @return connecting user
+     */
+    public ConnectingUser createCached(String nickName, InetAddress inetAddress) {
+        ConnectionFlags flags = new ConnectionFlags(
+                barricade.getStoredUserManager().getCachedFlags(nickName),
+                barricade.getAddressManager().getCachedFlags(inetAddress.getHostAddress()));
+        return new ConnectingUser(nickName, inetAddress, flags.isWhitelisted(), flags.isBlacklisted());
+    }
+
+    /**
+     * Gets flags which are known without reading the database.
+     *
+     * @return flags or null if the database has to be read
+     */
+    private @Nullable ConnectionFlags getKnownFlags(String nickName, InetAddress inetAddress) {
+        ListSnapshotManager listSnapshotManager = barricade.getListSnapshotManager();
+        if (listSnapshotManager.isLoaded()) {
+            return new ConnectionFlags(listSnapshotManager.getNicknameFlags(nickName),
+                    listSnapshotManager.getAddressFlags(inetAddress));
+        }
+        // Also during attacks, flags missing from the cache are read, so blacklisted
+        // players cannot pass and whitelisted ones keep their bypass
+        String address = inetAddress.getHostAddress();
+        Optional<StoredFlags> userFlags =
+                barricade.getStoredUserManager().getFlagsCache().getIfPresent(nickName);
+        Optional<StoredFlags> addressFlags =
+                barricade.getAddressManager().getFlagsCache().getIfPresent(address);
+        if (userFlags.isEmpty() || addressFlags.isEmpty()) return null;
+        return new ConnectionFlags(userFlags.get(), addressFlags.get());
+    }
+
+    /**
+     * Reads flags of both the nickname and the address in one database round trip
+     * and caches them.
+     *
+     * @return flags or null if reading failed
+     */
+    private @Nullable ConnectionFlags loadFlags(String nickName, String address) {
+        ExpiringCache<String, StoredFlags> userCache = barricade.getStoredUserManager().getFlagsCache();
+        ExpiringCache<String, StoredFlags> addressCache = barricade.getAddressManager().getFlagsCache();
+        long userInvalidations = userCache.getInvalidations();
+        long addressInvalidations = addressCache.getInvalidations();
+        ConnectionFlags flags = barricade.getDataProvider().getConnectionFlags(nickName, address);
+        if (flags == null) return null;
+        userCache.putLoaded(nickName, flags.nicknameFlags(), userInvalidations);
+        addressCache.putLoaded(address, flags.addressFlags(), addressInvalidations);
+        return flags;
     }
 
     public void update(ConnectingUser connectingUser) {
@@ -0,0 +1,142 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.manager;
+
+import org.jetbrains.annotations.Nullable;
+import xyz.yawek.barricade.Barricade;
+import xyz.yawek.barricade.data.storage.DataProvider;
+import xyz.yawek.barricade.manager.snapshot.FlagSnapshot;
+import xyz.yawek.barricade.manager.snapshot.ListKey;
+import xyz.yawek.barricade.user.StoredFlags;
+
+import java.net.InetAddress;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Keeps all whitelisted and blacklisted addresses and nicknames in memory,
+ * so connecting players are checked without reading the database.
+ * Nicknames are matched regardless of their case.
+ */
+public class ListSnapshotManager {
+
+    private final Barricade barricade;
+
+    private volatile @Nullable FlagSnapshot addresses;
+    private volatile @Nullable FlagSnapshot nicknames;
+    private volatile long loadedAt;
+    // Changes made while the snapshot is being reloaded, applied to the reloaded one
+    private @Nullable Map<String, StoredFlags> pendingAddresses;
+    private @Nullable Map<String, StoredFlags> pendingNicknames;
+
+    public ListSnapshotManager(Barricade barricade) {
+        this.barricade = barricade;
+    }
+
+    /**
+     * Reads all whitelisted and blacklisted addresses and nicknames
+     * from the database and replaces the snapshot.
+     * The current snapshot is kept if reading fails.
+     */
+    public void reload() {
+        if (!barricade.getConfig().listSnapshotEnabled()) {
+            synchronized (this) {
+                addresses = null;
+                nicknames = null;
+            }
+            return;
+        }
+        synchronized (this) {
+            if (pendingAddresses != null) return;
+            pendingAddresses = new LinkedHashMap<>();
+            pendingNicknames = new LinkedHashMap<>();
+        }
+        FlagSnapshot.Builder addressBuilder = new FlagSnapshot.Builder(ListKey::ofAddress);
+        FlagSnapshot.Builder nicknameBuilder = new FlagSnapshot.Builder(ListKey::ofNickname);
+        DataProvider dataProvider = barricade.getDataProvider();
+        boolean loaded = dataProvider.forEachFlaggedAddress(addressBuilder::add)
+                && dataProvider.forEachFlaggedUser((nickname, flags) ->
+                nicknameBuilder.add(normalize(nickname), flags));
+        FlagSnapshot newAddresses = loaded ? addressBuilder.build() : null;
+        FlagSnapshot newNicknames = loaded ? nicknameBuilder.build() : null;
+        synchronized (this) {
+            if (newAddresses != null) {
+                for (Map.Entry<String, StoredFlags> entry : pendingAddresses.entrySet()) {
+                    newAddresses = newAddresses.with(entry.getKey(), entry.getValue());
+                }
+                for (Map.Entry<String, StoredFlags> entry : pendingNicknames.entrySet()) {
+                    newNicknames = newNicknames.with(entry.getKey(), entry.getValue());
+                }
+                addresses = newAddresses;
+                nicknames = newNicknames;
+                loadedAt = System.currentTimeMillis();
+            }
+            pendingAddresses = null;
+            pendingNicknames = null;
+        }
+    }
+
+    public boolean isLoaded() {
+        return addresses != null && nicknames != null;
+    }
+
+    public StoredFlags getAddressFlags(InetAddress inetAddress) {
+        FlagSnapshot snapshot = addresses;
+        return snapshot != null
+                ? snapshot.getFlags(ListKey.ofAddress(inetAddress)) : StoredFlags.NONE;
+    }
+
+    public StoredFlags getNicknameFlags(String nickname) {
+        FlagSnapshot snapshot = nicknames;
+        return snapshot != null ? snapshot.getFlags(normalize(nickname)) : StoredFlags.NONE;
+    }
+
+    public synchronized void setAddressFlags(String address, StoredFlags flags) {
+        if (pendingAddresses != null) pendingAddresses.put(address, flags);
+        if (addresses != null) addresses = addresses.with(address, flags);
+    }
+
+    public synchronized void setNicknameFlags(String nickname, StoredFlags flags) {
+        String normalized = normalize(nickname);
+        if (pendingNicknames != null) pendingNicknames.put(normalized, flags);
+        if (nicknames != null) nicknames = nicknames.with(normalized, flags);
+    }
+
+    public @Nullable FlagSnapshot getAddresses() {
+        return addresses;
+    }
+
+    public @Nullable FlagSnapshot getNicknames() {
+        return nicknames;
+    }
+
+    public long getLoadedAt() {
+        return loadedAt;
+    }
+
+    /**
+     * Lowercases the nickname, so nicknames which are not turned into
+     * a {@link ListKey} are also matched regardless of their case.
+     */
+    private static String normalize(String nickname) {
+        return nickname.toLowerCase(Locale.ROOT);
+    }
+
+}
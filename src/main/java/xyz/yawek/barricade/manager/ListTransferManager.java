@@ -0,0 +1,264 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.manager;
+
+import org.jetbrains.annotations.Nullable;
+import xyz.yawek.barricade.Barricade;
+import xyz.yawek.barricade.config.Config;
+import xyz.yawek.barricade.data.storage.DataProvider;
+import xyz.yawek.barricade.manager.snapshot.AddressRange;
+import xyz.yawek.barricade.user.StoredFlags;
+import xyz.yawek.barricade.util.AddressUtil;
+import xyz.yawek.barricade.util.NicknameUtil;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongConsumer;
+
+/**
+ * Imports and exports whitelists and blacklists as plain text or CSV files,
+ * streaming them with memory use independent of the file size.
+ */
+public class ListTransferManager {
+
+    private final Barricade barricade;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public ListTransferManager(Barricade barricade) {
+        this.barricade = barricade;
+    }
+
+    /**
+     * Resolves the file name inside the plugin's data directory.
+     *
+     * @param fileName name of the file
+     * @return path of the file or null if it is outside the data directory
+     */
+    public @Nullable Path resolve(String fileName) {
+        Path dataDirectory = barricade.getDataDirectory().toAbsolutePath().normalize();
+        Path path = dataDirectory.resolve(fileName).normalize();
+        return path.startsWith(dataDirectory) && !path.equals(dataDirectory) ? path : null;
+    }
+
+    /**
+     * Marks a transfer as running.
+     *
+     * @return false if another transfer is already running
+     */
+    public boolean start() {
+        return running.compareAndSet(false, true);
+    }
+
+    public void finish() {
+        running.set(false);
+    }
+
+    /**
+     * Imports addresses, nicknames and, for the blacklist, CIDR ranges from the file,
+     * one entry per line or in the first column of a CSV file.
+     * Entries are saved in batches, each in one transaction,
+     * the import stops at the first batch which cannot be saved.
+     *
+     * @param file file to read
+     * @param blacklist true to import to the blacklist, false to the whitelist
+     * @param progress consumer of the number of entries imported so far, called periodically
+     * @return result of the import
+     * @throws IOException if the file cannot be read or a batch cannot be saved
+     */
+    public TransferResult importList(Path file, boolean blacklist,
+                                     LongConsumer progress) throws IOException {
+        Config config = barricade.getConfig();
+        DataProvider dataProvider = barricade.getDataProvider();
+        int batchSize = Math.max(1, config.transferBatchSize());
+        long progressIntervalNanos = config.transferProgressInterval() * 1_000_000_000L;
+        long start = System.nanoTime();
+        long lastProgress = start;
+        long imported = 0;
+        long skipped = 0;
+
+        List<String> addresses = new ArrayList<>(batchSize);
+        List<String> nicknames = new ArrayList<>(batchSize);
+        List<String> ranges = new ArrayList<>(batchSize);
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String entry = parseEntry(line);
+                if (entry == null) continue;
+                if (entry.contains("/")) {
+                    AddressRange range = blacklist ? AddressRange.parse(entry) : null;
+                    if (range == null) {
+                        skipped++;
+                        continue;
+                    }
+                    ranges.add(range.toString());
+                } else if (AddressUtil.isValidIpAddress(entry)) {
+                    addresses.add(entry);
+                } else if (NicknameUtil.isValid(entry)) {
+                    nicknames.add(entry);
+                } else {
+                    skipped++;
+                    continue;
+                }
+                imported++;
+
+                if (addresses.size() >= batchSize) {
+                    save(addresses, "addresses", dataProvider.setAddressesListed(addresses, blacklist));
+                }
+                if (nicknames.size() >= batchSize) {
+                    save(nicknames, "nicknames", dataProvider.setNicknamesListed(nicknames, blacklist));
+                }
+                if (ranges.size() >= batchSize) {
+                    save(ranges, "ranges", dataProvider.addBlacklistedRanges(ranges));
+                }
+                long now = System.nanoTime();
+                if (now - lastProgress >= progressIntervalNanos) {
+                    lastProgress = now;
+                    progress.accept(imported);
+                }
+            }
+            if (!addresses.isEmpty()) {
+                save(addresses, "addresses", dataProvider.setAddressesListed(addresses, blacklist));
+            }
+            if (!nicknames.isEmpty()) {
+                save(nicknames, "nicknames", dataProvider.setNicknamesListed(nicknames, blacklist));
+            }
+            if (!ranges.isEmpty()) save(ranges, "ranges", dataProvider.addBlacklistedRanges(ranges));
+        } finally {
+            // Flags are read again at once instead of updating the snapshot entry by entry,
+            // also after a failed import, as the batches saved before the failure are kept
+            barricade.getAddressManager().invalidateCache();
+            barricade.getStoredUserManager().invalidateCache();
+            barricade.getListSnapshotManager().reload();
+            if (blacklist) barricade.getAddressRangeManager().reload();
+        }
+        return new TransferResult(imported, skipped, System.nanoTime() - start);
+    }
+
+    /**
+     * Clears the saved batch or stops the import if the batch could not be saved.
+     *
+     * @throws IOException if the batch could not be saved
+     */
+    private static void save(List<String> batch, String kind, boolean saved) throws IOException {
+        if (!saved) {
+            throw new IOException("Unable to save a batch of " + batch.size() + " " + kind + ".");
+        }
+        batch.clear();
+    }
+
+    /**
+     * Exports all whitelisted or blacklisted addresses, nicknames and ranges to the file,
+     * one entry per line.
+     *
+     * @param file file to write, replaced if it exists
+     * @param blacklist true to export the blacklist, false the whitelist
+     * @param progress consumer of the number of entries exported so far, called periodically
+     * @return result of the export
+     * @throws IOException if the file cannot be written or the database cannot be read
+     */
+    public TransferResult exportList(Path file, boolean blacklist,
+                                     LongConsumer progress) throws IOException {
+        DataProvider dataProvider = barricade.getDataProvider();
+        long progressIntervalNanos =
+                barricade.getConfig().transferProgressInterval() * 1_000_000_000L;
+        long start = System.nanoTime();
+        long[] exported = {0};
+        long[] lastProgress = {start};
+
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("# Barricade " + (blacklist ? "blacklist" : "whitelist"));
+            writer.newLine();
+            LongConsumer written = count -> {
+                long now = System.nanoTime();
+                if (now - lastProgress[0] >= progressIntervalNanos) {
+                    lastProgress[0] = now;
+                    progress.accept(count);
+                }
+            };
+            try {
+                boolean success = dataProvider.forEachFlaggedAddress((address, flags) ->
+                        writeFlagged(writer, address, flags, blacklist, exported, written))
+                        && dataProvider.forEachFlaggedUser((nickname, flags) ->
+                        writeFlagged(writer, nickname, flags, blacklist, exported, written))
+                        && (!blacklist || dataProvider.forEachBlacklistedRange(cidr ->
+                        writeFlagged(writer, cidr, StoredFlags.of(false, true),
+                                true, exported, written)));
+                if (!success) throw new IOException("Unable to read the lists from the database.");
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        return new TransferResult(exported[0], 0, System.nanoTime() - start);
+    }
+
+    private void writeFlagged(BufferedWriter writer, String entry, StoredFlags flags,
+                              boolean blacklist, long[] exported, LongConsumer written) {
+        if (blacklist ? !flags.isBlacklisted() : !flags.isWhitelisted()) return;
+        try {
+            writer.write(entry);
+            writer.newLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        written.accept(++exported[0]);
+    }
+
+    /**
+     * Gets the entry of the line, the first column if the line is CSV.
+     *
+     * @param line line of the file
+     * @return entry or null if the line is empty or a comment
+     */
+    private static @Nullable String parseEntry(String line) {
+        int end = line.length();
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == ',' || c == ';' || c == '\t' || c == '#') {
+                end = i;
+                break;
+            }
+        }
+        String entry = line.substring(0, end).trim();
+        if (entry.length() >= 2 && entry.startsWith("\"") && entry.endsWith("\"")) {
+            entry = entry.substring(1, entry.length() - 1).trim();
+        }
+        return entry.isEmpty() ? null : entry;
+    }
+
+    public record TransferResult(long entries, long skipped, long nanos) {
+
+        public double getSeconds() {
+            return nanos / 1_000_000_000D;
+        }
+
+        public long getEntriesPerSecond() {
+            return nanos > 0 ? (long) (entries * 1_000_000_000D / nanos) : entries;
+        }
+
+    }
+
+}
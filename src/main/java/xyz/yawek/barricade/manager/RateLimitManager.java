@@ -18,22 +18,46 @@
 
 package xyz.yawek.barricade.manager;
 
-import java.util.concurrent.atomic.AtomicInteger;
+import xyz.yawek.barricade.Barricade;
+import xyz.yawek.barricade.config.Config;
+import xyz.yawek.barricade.manager.counter.SlidingWindowCounter;
 
 public class RateLimitManager {
 
-    private final AtomicInteger connectionCounter = new AtomicInteger();
+    private final Barricade barricade;
+    private final SlidingWindowCounter connectionCounter;
+    private final double windowSeconds;
 
-    public int getCounter() {
-        return connectionCounter.get();
+    public RateLimitManager(Barricade barricade) {
+        this.barricade = barricade;
+
+        Config config = barricade.getConfig();
+        this.connectionCounter = new SlidingWindowCounter(
+                config.rateLimitWindow(), config.rateLimitResolution());
+        this.windowSeconds = Math.max(1, config.rateLimitWindow()) / 1000D;
+    }
+
+    public long getCounter() {
+        return connectionCounter.sum();
     }
 
     public void incrementCounter() {
-        connectionCounter.incrementAndGet();
+        connectionCounter.increment();
     }
 
-    public void resetCounter() {
-        connectionCounter.set(0);
+    /**
+     * Checks if more connections than allowed were made in the sliding window,
+     * which allows the configured rate per second over the window plus the burst.
+     * Connections to other proxies of the cluster are included.
+     *
+     * @return true if new connections should be denied
+     */
+    public boolean isLimited() {
+        Config config = barricade.getConfig();
+        int connectionsPerSecond = config.connectionsPerSecond();
+        if (connectionsPerSecond == -1) return false;
+        double limit = connectionsPerSecond * windowSeconds + Math.max(0, config.rateLimitBurst());
+        return connectionCounter.sum() + barricade.getClusterManager().getRemoteConnections() > limit;
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,102 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.manager;
+
+import xyz.yawek.barricade.Barricade;
+import xyz.yawek.barricade.config.Config;
+import xyz.yawek.barricade.data.storage.DataProvider;
+import xyz.yawek.barricade.data.storage.retention.RetentionDataAccess;
+import xyz.yawek.barricade.util.LogUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Removes nicknames and addresses not seen for a long time and the least recently
+ * seen links above the limit, in small batches with pauses between them.
+ */
+public class RetentionManager {
+
+    private final Barricade barricade;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean stopped;
+
+    public RetentionManager(Barricade barricade) {
+        this.barricade = barricade;
+    }
+
+    public void run() {
+        Config config = barricade.getConfig();
+        if (!config.retentionEnabled() || stopped
+                || barricade.getAttackModeManager().isActive()
+                || !running.compareAndSet(false, true)) return;
+        try {
+            DataProvider dataProvider = barricade.getDataProvider();
+            RetentionDataAccess dataAccess = dataProvider.getRetentionDataAccess();
+            int batchSize = Math.max(1, config.retentionBatchSize());
+            long delay = Math.max(0, config.retentionBatchDelay());
+            // Stops when the database is reloaded, the proxy shuts down or an attack starts
+            BooleanSupplier proceed = () -> pause(delay)
+                    && barricade.getDataProvider() == dataProvider;
+
+            int users = 0;
+            int addresses = 0;
+            if (config.retentionDays() > 0) {
+                long seenBefore = System.currentTimeMillis()
+                        - TimeUnit.DAYS.toMillis(config.retentionDays());
+                users = dataAccess.removeUnseenUsers(seenBefore, batchSize, proceed);
+                if (users >= 0 && proceed.getAsBoolean()) {
+                    addresses = dataAccess.removeUnseenAddresses(seenBefore, batchSize, proceed);
+                }
+            }
+            int links = 0;
+            if (config.retentionMaxLinks() > 0 && users >= 0 && addresses >= 0 && proceed.getAsBoolean()) {
+                int maxLinks = config.retentionMaxLinks();
+                links = dataAccess.trimUserAddresses(maxLinks, batchSize, proceed);
+                if (links >= 0 && proceed.getAsBoolean()) {
+                    int nicknameLinks = dataAccess.trimAddressNicknames(maxLinks, batchSize, proceed);
+                    links = nicknameLinks >= 0 ? links + nicknameLinks : -1;
+                }
+            }
+            if (users > 0 || addresses > 0 || links > 0) {
+                LogUtils.info("Removed {} nicknames, {} addresses and {} links not needed anymore.",
+                        String.valueOf(Math.max(0, users)), String.valueOf(Math.max(0, addresses)),
+                        String.valueOf(Math.max(0, links)));
+            }
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public void stop() {
+        stopped = true;
+    }
+
+    private boolean pause(long delay) {
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return !stopped && !barricade.getAttackModeManager().isActive();
+    }
+
+}
@@ -18,32 +18,71 @@
 
 package xyz.yawek.barricade.manager;
 
+import java.time.Duration;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import xyz.yawek.barricade.Barricade;
+import xyz.yawek.barricade.config.Config;
+import xyz.yawek.barricade.manager.cache.ExpiringCache;
+import xyz.yawek.barricade.user.StoredFlags;
 import xyz.yawek.barricade.user.StoredUser;
 
 public class StoredUserManager {
 
     private final Barricade barricade;
+    private final ExpiringCache<String, StoredFlags> flagsCache;
 
     public StoredUserManager(Barricade barricade) {
         this.barricade = barricade;
+
+        Config config = barricade.getConfig();
+        this.flagsCache = new ExpiringCache<>(config.flagsCacheMaxSize(),
+                Duration.ofSeconds(config.flagsCacheExpireAfter()));
     }
 
     public Optional<StoredUser> getOptional(String nickname) {
         return barricade.getDataProvider().getStoredUser(nickname);
     }
 
+    public CompletableFuture<Optional<StoredUser>> getOptionalAsync(String nickname) {
+        return barricade.getDataProvider().getStoredUserAsync(nickname);
+    }
+
+    /**
+     * Gets whitelist and blacklist flags of the nickname only if they are cached.
+     *
+     * @param nickname nickname to get flags of
+     * @return cached flags of the nickname, {@link StoredFlags#NONE} if they are not cached
+     */
+    public StoredFlags getCachedFlags(String nickname) {
+        return flagsCache.getIfPresent(nickname).orElse(StoredFlags.NONE);
+    }
+
     public void update(StoredUser storedUser) {
         barricade.getDataProvider().updateStoredUser(storedUser);
+        flagsCache.invalidate(storedUser.getNickname());
+        barricade.getListSnapshotManager().setNicknameFlags(storedUser.getNickname(),
+                StoredFlags.of(storedUser.isWhitelisted(), storedUser.isBlacklisted()));
     }
 
     public void addWhitelistedUser(String nickname) {
         barricade.getDataProvider().addUser(nickname, null, true, false);
+        flagsCache.invalidate(nickname);
+        barricade.getListSnapshotManager().setNicknameFlags(nickname, StoredFlags.of(true, false));
     }
 
     public void addBlacklistedUser(String nickname) {
         barricade.getDataProvider().addUser(nickname, null, false, true);
+        flagsCache.invalidate(nickname);
+        barricade.getListSnapshotManager().setNicknameFlags(nickname, StoredFlags.of(false, true));
+    }
+
+    public void invalidateCache() {
+        flagsCache.invalidateAll();
+    }
+
+    public ExpiringCache<String, StoredFlags> getFlagsCache() {
+        return flagsCache;
     }
 
 }
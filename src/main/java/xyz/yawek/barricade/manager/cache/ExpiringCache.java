@@ -0,0 +1,149 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.manager.cache;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache which forgets its entries after a fixed time.
+ *
+ * @param <K> type of the keys
+ * @param <V> type of the cached values
+ */
+public class ExpiringCache<K, V> {
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final int maxSize;
+    private final long expireAfterNanos;
+
+    /**
+     * @param maxSize maximum number of entries, 0 or less disables caching
+     * @param expireAfter time after which entries are loaded again
+     */
+    public ExpiringCache(int maxSize, Duration expireAfter) {
+        this.maxSize = maxSize;
+        this.expireAfterNanos = expireAfter.toNanos();
+    }
+
+    /**
+     * Returns the cached value or loads it, caching the result.
+     * Values loaded while the cache was being invalidated are returned, but not cached.
+     *
+     * @param key key of the value
+     * @param loader function loading the value on a miss
+     * @return cached or loaded value
+     */
+    public V get(K key, Function<K, V> loader) {
+        Optional<V> cached = getIfPresent(key);
+        if (cached.isPresent()) return cached.get();
+        long invalidationsBefore = invalidations.get();
+        V value = loader.apply(key);
+        putLoaded(key, value, invalidationsBefore);
+        return value;
+    }
+
+    /**
+     * Caches a value loaded outside the cache,
+     * unless the cache was invalidated since the loading started.
+     *
+     * @param key key of the value
+     * @param value loaded value
+     * @param invalidationsBefore {@link #getInvalidations()} from before the loading started
+     */
+    public void putLoaded(K key, V value, long invalidationsBefore) {
+        if (invalidations.get() == invalidationsBefore) put(key, value);
+    }
+
+    public Optional<V> getIfPresent(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && entry.expiresAt - System.nanoTime() > 0) {
+            hits.increment();
+            return Optional.of(entry.value);
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    public void put(K key, V value) {
+        if (maxSize <= 0) return;
+        long now = System.nanoTime();
+        if (entries.size() >= maxSize) evict(now);
+        entries.put(key, new Entry<>(value, now + expireAfterNanos));
+    }
+
+    public void invalidate(K key) {
+        invalidations.incrementAndGet();
+        entries.remove(key);
+    }
+
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        entries.clear();
+    }
+
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Removes expired entries and, if the cache is still full,
+     * drops entries until a tenth of the capacity is free.
+     */
+    private synchronized void evict(long now) {
+        if (entries.size() < maxSize) return;
+        entries.values().removeIf(entry -> entry.expiresAt - now <= 0);
+        int target = maxSize - Math.max(1, maxSize / 10);
+        Iterator<Entry<V>> iterator = entries.values().iterator();
+        while (entries.size() > target && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    private record Entry<V>(V value, long expiresAt) {}
+
+}
@@ -0,0 +1,98 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.manager.counter;
+
+import xyz.yawek.barricade.data.storage.cluster.ClusterBackend;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counters of this node shared with the other nodes of a cluster.
+ * Values are set locally and published in batches by {@link #synchronize()},
+ * which also reads the latest values of the other nodes.
+ */
+public class SharedCounters {
+
+    private final ClusterBackend backend;
+    private final String nodeId;
+    private final Map<String, Long> pending = new ConcurrentHashMap<>();
+    private volatile Map<String, Long> remote = Collections.emptyMap();
+
+    public SharedCounters(ClusterBackend backend, String nodeId) {
+        this.backend = backend;
+        this.nodeId = nodeId;
+    }
+
+    /**
+     * Sets the value of this node's counter, published by the next synchronization.
+     *
+     * @param key key of the counter
+     * @param value value of the counter, 0 removes it
+     */
+    public void set(String key, long value) {
+        pending.put(key, value);
+    }
+
+    /**
+     * Gets the sum of the counter of the other nodes, as of the last synchronization.
+     *
+     * @param key key of the counter
+     * @return sum of the counter of the other nodes
+     */
+    public long getRemote(String key) {
+        return remote.getOrDefault(key, 0L);
+    }
+
+    /**
+     * Publishes values set since the last synchronization and reads values of the other nodes.
+     * Values which could not be published are kept for the next synchronization.
+     *
+     * @return true if the synchronization succeeded
+     */
+    public boolean synchronize() {
+        Map<String, Long> batch = new HashMap<>(pending);
+        Map<String, Long> result = backend.synchronize(nodeId, batch);
+        if (result == null) return false;
+        // Values set again during the synchronization stay pending
+        batch.forEach(pending::remove);
+        remote = result;
+        return true;
+    }
+
+    /**
+     * Removes all counters of this node from the cluster.
+     */
+    public void leave() {
+        pending.clear();
+        remote = Collections.emptyMap();
+        backend.leave(nodeId);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public int getRemoteSize() {
+        return remote.size();
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.manager.counter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts events in a sliding time window split into buckets.
+ * Incrementing is lock-free, buckets older than the window are replaced
+ * lazily by the first increment that reuses them, so no reset task is needed.
+ */
+public class SlidingWindowCounter {
+
+    private final long resolution;
+    private final AtomicReferenceArray<Bucket> buckets;
+
+    /**
+     * @param windowMillis length of the window in milliseconds
+     * @param resolutionMillis length of a single bucket in milliseconds
+     */
+    public SlidingWindowCounter(long windowMillis, long resolutionMillis) {
+        this.resolution = TimeUnit.MILLISECONDS.toNanos(Math.max(1, resolutionMillis));
+        int bucketCount = (int) Math.max(1, (Math.max(1, windowMillis)
+                + resolutionMillis - 1) / Math.max(1, resolutionMillis));
+        this.buckets = new AtomicReferenceArray<>(bucketCount);
+        for (int i = 0; i < bucketCount; i++) {
+            buckets.set(i, new Bucket(Long.MIN_VALUE, new LongAdder()));
+        }
+    }
+
+    public void increment() {
+        add(1);
+    }
+
+    public void add(long amount) {
+        long epoch = currentEpoch();
+        int index = (int) Math.floorMod(epoch, (long) buckets.length());
+        Bucket bucket = buckets.get(index);
+        // A bucket of an old epoch is replaced with an empty one instead of being reset,
+        // so increments made by other threads after the replacement are not lost
+        while (bucket.epoch() < epoch) {
+            Bucket newBucket = new Bucket(epoch, new LongAdder());
+            if (buckets.compareAndSet(index, bucket, newBucket)) {
+                bucket = newBucket;
+            } else {
+                bucket = buckets.get(index);
+            }
+        }
+        bucket.adder().add(amount);
+    }
+
+    /**
+     * Sums events counted in the window ending now.
+     *
+     * @return number of events in the window
+     */
+    public long sum() {
+        long oldestEpoch = currentEpoch() - buckets.length();
+        long sum = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket.epoch() > oldestEpoch) sum += bucket.adder().sum();
+        }
+        return sum;
+    }
+
+    private long currentEpoch() {
+        return System.nanoTime() / resolution;
+    }
+
+    private record Bucket(long epoch, LongAdder adder) {}
+
+}
@@ -0,0 +1,120 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.manager.counter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Count-min sketch estimating how many times each key was added in a sliding
+ * time window. Memory is fixed by the width and depth regardless of the number
+ * of keys, estimates may only be higher than the real counts.
+ * The window is split into slices, each with its own sketch replaced lazily
+ * with an empty one when it is reused.
+ */
+public class WindowedCountMinSketch {
+
+    private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L,
+            0xFF51AFD7ED558CCDL, 0xC4CEB9FE1A85EC53L, 0x94D049BB133111EBL, 0xBF58476D1CE4E5B9L};
+
+    private final int width;
+    private final int depth;
+    private final long resolution;
+    private final AtomicReferenceArray<Slice> slices;
+
+    /**
+     * @param width number of counters in each row, rounded up to a power of two
+     * @param depth number of rows, at most 8
+     * @param windowMillis length of the window in milliseconds
+     * @param resolutionMillis length of a single slice in milliseconds
+     */
+    public WindowedCountMinSketch(int width, int depth, long windowMillis, long resolutionMillis) {
+        this.width = Integer.highestOneBit(Math.max(2, width - 1)) << 1;
+        this.depth = Math.max(1, Math.min(SEEDS.length, depth));
+        this.resolution = TimeUnit.MILLISECONDS.toNanos(Math.max(1, resolutionMillis));
+        int sliceCount = (int) Math.max(1, (Math.max(1, windowMillis)
+                + resolutionMillis - 1) / Math.max(1, resolutionMillis));
+        this.slices = new AtomicReferenceArray<>(sliceCount);
+        for (int i = 0; i < sliceCount; i++) {
+            slices.set(i, new Slice(Long.MIN_VALUE, new AtomicIntegerArray(this.width * this.depth)));
+        }
+    }
+
+    /**
+     * Adds the key once and estimates its count in the window.
+     *
+     * @param key key to add
+     * @return estimated count of the key in the window, including this addition
+     */
+    public int addAndEstimate(long key) {
+        long epoch = currentEpoch();
+        int index = (int) Math.floorMod(epoch, (long) slices.length());
+        Slice slice = slices.get(index);
+        // A slice of an old epoch is replaced with an empty one instead of being cleared,
+        // so additions made by other threads after the replacement are not lost
+        while (slice.epoch() < epoch) {
+            Slice newSlice = new Slice(epoch, new AtomicIntegerArray(width * depth));
+            if (slices.compareAndSet(index, slice, newSlice)) {
+                slice = newSlice;
+            } else {
+                slice = slices.get(index);
+            }
+        }
+        long oldestEpoch = epoch - slices.length();
+        Slice[] others = new Slice[slices.length()];
+        for (int i = 0; i < others.length; i++) {
+            Slice other = slices.get(i);
+            if (i != index && other.epoch() > oldestEpoch && other.epoch() <= epoch) others[i] = other;
+        }
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int cell = row * width + column(key, row);
+            int count = slice.counters().incrementAndGet(cell);
+            for (Slice other : others) {
+                if (other != null) count += other.counters().get(cell);
+            }
+            estimate = Math.min(estimate, count);
+        }
+        return estimate;
+    }
+
+    /**
+     * Gets the number of bytes used by the counters.
+     */
+    public long getMemoryUsage() {
+        return (long) slices.length() * width * depth * Integer.BYTES;
+    }
+
+    private int column(long key, int row) {
+        long hash = key ^ SEEDS[row];
+        hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+        hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return (int) hash & (width - 1);
+    }
+
+    private long currentEpoch() {
+        return System.nanoTime() / resolution;
+    }
+
+    private record Slice(long epoch, AtomicIntegerArray counters) {}
+
+}
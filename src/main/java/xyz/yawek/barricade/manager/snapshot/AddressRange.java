@@ -0,0 +1,132 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.manager.snapshot;
+
+import com.google.common.net.InetAddresses;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.StringJoiner;
+
+/**
+ * Range of addresses in CIDR notation. IPv4 ranges are mapped into IPv6,
+ * so their prefix length is 96 bits longer.
+ *
+ * @param network first address of the range
+ * @param prefixLength number of leading bits shared by addresses in the range, 0 to 128
+ */
+public record AddressRange(ListKey network, int prefixLength) {
+
+    private static final int IPV4_MAPPED_BITS = 96;
+
+    /**
+     * Parses a range in CIDR notation, for example 203.0.113.0/24 or 2001:db8::/48.
+     * Bits of the address after the prefix are cleared.
+     *
+     * @param cidr range to parse
+     * @return parsed range, null if it is not valid
+     */
+    public static @Nullable AddressRange parse(String cidr) {
+        int slash = cidr.indexOf('/');
+        if (slash == -1) return null;
+        ListKey address = ListKey.ofAddress(cidr.substring(0, slash));
+        if (address == null) return null;
+        int prefixLength;
+        try {
+            prefixLength = Integer.parseInt(cidr.substring(slash + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        int maxLength = address.isMappedIpv4() ? 32 : 128;
+        if (prefixLength < 0 || prefixLength > maxLength) return null;
+        if (address.isMappedIpv4()) prefixLength += IPV4_MAPPED_BITS;
+        return new AddressRange(mask(address, prefixLength), prefixLength);
+    }
+
+    /**
+     * Creates the range of the length containing the address.
+     *
+     * @param address any address of the range
+     * @param prefixLength number of leading bits shared by addresses in the range, 0 to 128
+     * @return range containing the address
+     */
+    public static AddressRange of(ListKey address, int prefixLength) {
+        return new AddressRange(mask(address, prefixLength), prefixLength);
+    }
+
+    static ListKey mask(ListKey key, int length) {
+        if (length <= 0) return new ListKey(0, 0);
+        if (length <= 64) return new ListKey(key.high() & (-1L << (64 - length)), 0);
+        if (length >= 128) return key;
+        return new ListKey(key.high(), key.low() & (-1L << (128 - length)));
+    }
+
+    public boolean contains(ListKey key) {
+        return mask(key, prefixLength).equals(network);
+    }
+
+    /**
+     * Gets the beginning shared by all addresses of the range formatted like
+     * {@link InetAddress#getHostAddress()}, to find stored addresses of the range
+     * with a prefix search. Other addresses may start with it too, so the found ones
+     * still need to be checked with {@link #contains(ListKey)}.
+     *
+     * @return beginning of the addresses, empty if they do not share one
+     */
+    public String textPrefix() {
+        boolean ipv4 = network.isMappedIpv4();
+        int parts = ipv4 ? (prefixLength - IPV4_MAPPED_BITS) / 8 : prefixLength / 16;
+        int maxParts = ipv4 ? 4 : 8;
+        if (parts == 0) return "";
+        StringJoiner joiner = new StringJoiner(ipv4 ? "." : ":", "",
+                parts < maxParts ? (ipv4 ? "." : ":") : "");
+        for (int i = 0; i < parts; i++) {
+            if (ipv4) {
+                joiner.add(String.valueOf((network.low() >>> (24 - i * 8)) & 0xFF));
+            } else {
+                long half = i < 4 ? network.high() : network.low();
+                joiner.add(Long.toHexString((half >>> (48 - (i % 4) * 16)) & 0xFFFF));
+            }
+        }
+        return joiner.toString();
+    }
+
+    /**
+     * Formats the range in CIDR notation, as accepted by {@link #parse(String)}.
+     */
+    @Override
+    public String toString() {
+        try {
+            if (network.isMappedIpv4()) {
+                InetAddress address = InetAddress.getByAddress(
+                        ByteBuffer.allocate(4).putInt((int) network.low()).array());
+                return InetAddresses.toAddrString(address) + "/"
+                        + (prefixLength - IPV4_MAPPED_BITS);
+            }
+            InetAddress address = InetAddress.getByAddress(ByteBuffer.allocate(16)
+                    .putLong(network.high()).putLong(network.low()).array());
+            return InetAddresses.toAddrString(address) + "/" + prefixLength;
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.manager.snapshot;
+
+import org.jetbrains.annotations.Nullable;
+import xyz.yawek.barricade.user.StoredFlags;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Immutable snapshot of whitelisted and blacklisted addresses or nicknames.
+ * Values which cannot be turned into a {@link ListKey} are kept in a map instead.
+ * <p>
+ * Single changes go to a small overlay of overridden flags, so an update copies
+ * at most {@value #MAX_OVERRIDES} entries. Once the overlay is full, it is merged
+ * into the sorted sets in one pass.
+ */
+public final class FlagSnapshot {
+
+    private static final int MAX_OVERRIDES = 1024;
+
+    private final Function<String, @Nullable ListKey> keyFunction;
+    private final SortedKeySet whitelisted;
+    private final SortedKeySet blacklisted;
+    private final Map<ListKey, StoredFlags> overrides;
+    private final Map<String, StoredFlags> unkeyed;
+
+    private FlagSnapshot(Function<String, @Nullable ListKey> keyFunction,
+                         SortedKeySet whitelisted, SortedKeySet blacklisted,
+                         Map<ListKey, StoredFlags> overrides,
+                         Map<String, StoredFlags> unkeyed) {
+        this.keyFunction = keyFunction;
+        this.whitelisted = whitelisted;
+        this.blacklisted = blacklisted;
+        this.overrides = overrides;
+        this.unkeyed = unkeyed;
+    }
+
+    public StoredFlags getFlags(ListKey key) {
+        StoredFlags overridden = overrides.get(key);
+        if (overridden != null) return overridden;
+        return StoredFlags.of(whitelisted.contains(key), blacklisted.contains(key));
+    }
+
+    public StoredFlags getFlags(String value) {
+        ListKey key = keyFunction.apply(value);
+        if (key == null) return unkeyed.getOrDefault(value, StoredFlags.NONE);
+        return getFlags(key);
+    }
+
+    /**
+     * Creates a copy of this snapshot with flags of the value replaced.
+     *
+     * @param value address or nickname to set flags of
+     * @param flags new flags of the value
+     * @return snapshot with the value's flags replaced
+     */
+    public FlagSnapshot with(String value, StoredFlags flags) {
+        ListKey key = keyFunction.apply(value);
+        if (key == null) {
+            Map<String, StoredFlags> newUnkeyed = new HashMap<>(unkeyed);
+            if (flags.isWhitelisted() || flags.isBlacklisted()) {
+                newUnkeyed.put(value, flags);
+            } else {
+                newUnkeyed.remove(value);
+            }
+            return new FlagSnapshot(keyFunction, whitelisted, blacklisted, overrides, newUnkeyed);
+        }
+        Map<ListKey, StoredFlags> newOverrides = new HashMap<>(overrides);
+        newOverrides.put(key, flags);
+        if (newOverrides.size() < MAX_OVERRIDES) {
+            return new FlagSnapshot(keyFunction, whitelisted, blacklisted, newOverrides, unkeyed);
+        }
+        Map<ListKey, Boolean> whitelistChanges = new HashMap<>();
+        Map<ListKey, Boolean> blacklistChanges = new HashMap<>();
+        newOverrides.forEach((overriddenKey, overriddenFlags) -> {
+            whitelistChanges.put(overriddenKey, overriddenFlags.isWhitelisted());
+            blacklistChanges.put(overriddenKey, overriddenFlags.isBlacklisted());
+        });
+        return new FlagSnapshot(keyFunction,
+                whitelisted.withChanges(whitelistChanges),
+                blacklisted.withChanges(blacklistChanges),
+                Map.of(), unkeyed);
+    }
+
+    public int getWhitelistedSize() {
+        int size = whitelisted.size();
+        for (Map.Entry<ListKey, StoredFlags> entry : overrides.entrySet()) {
+            boolean contained = whitelisted.contains(entry.getKey());
+            if (entry.getValue().isWhitelisted() != contained) size += contained ? -1 : 1;
+        }
+        return size + (int) unkeyed.values().stream()
+                .filter(StoredFlags::isWhitelisted).count();
+    }
+
+    public int getBlacklistedSize() {
+        int size = blacklisted.size();
+        for (Map.Entry<ListKey, StoredFlags> entry : overrides.entrySet()) {
+            boolean contained = blacklisted.contains(entry.getKey());
+            if (entry.getValue().isBlacklisted() != contained) size += contained ? -1 : 1;
+        }
+        return size + (int) unkeyed.values().stream()
+                .filter(StoredFlags::isBlacklisted).count();
+    }
+
+    public static class Builder {
+
+        private final Function<String, @Nullable ListKey> keyFunction;
+        private final SortedKeySet.Builder whitelisted = new SortedKeySet.Builder();
+        private final SortedKeySet.Builder blacklisted = new SortedKeySet.Builder();
+        private final Map<String, StoredFlags> unkeyed = new HashMap<>();
+
+        public Builder(Function<String, @Nullable ListKey> keyFunction) {
+            this.keyFunction = keyFunction;
+        }
+
+        public void add(String value, StoredFlags flags) {
+            ListKey key = keyFunction.apply(value);
+            if (key == null) {
+                unkeyed.put(value, flags);
+                return;
+            }
+            if (flags.isWhitelisted()) whitelisted.add(key);
+            if (flags.isBlacklisted()) blacklisted.add(key);
+        }
+
+        public FlagSnapshot build() {
+            return new FlagSnapshot(keyFunction,
+                    whitelisted.build(), blacklisted.build(), Map.of(), Map.copyOf(unkeyed));
+        }
+
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.manager.snapshot;
+
+import com.google.common.net.InetAddresses;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+
+/**
+ * 128-bit key of an address or a nickname, stored in list snapshots
+ * as two primitive longs.
+ *
+ * @param high upper 64 bits
+ * @param low lower 64 bits
+ */
+public record ListKey(long high, long low) {
+
+    private static final int MAX_NICKNAME_LENGTH = 16;
+    private static final long IPV4_MAPPED_PREFIX = 0xFFFFL << 32;
+
+    /**
+     * Creates key of the address, IPv4 addresses are mapped into IPv6.
+     *
+     * @param inetAddress address to create key of
+     * @return key of the address
+     */
+    public static ListKey ofAddress(InetAddress inetAddress) {
+        byte[] bytes = inetAddress.getAddress();
+        if (inetAddress instanceof Inet4Address) {
+            return new ListKey(0, IPV4_MAPPED_PREFIX | (readLong(bytes, 0, 4) & 0xFFFFFFFFL));
+        }
+        return new ListKey(readLong(bytes, 0, 8), readLong(bytes, 8, 8));
+    }
+
+    /**
+     * Creates key of the address string without resolving it.
+     *
+     * @param address address to create key of
+     * @return key of the address, null if it is not a valid IP address
+     */
+    public static @Nullable ListKey ofAddress(String address) {
+        try {
+            return ofAddress(InetAddresses.forString(address));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Creates key of the nickname, packing each character into 6 bits.
+     * Letters are packed regardless of their case, like nicknames are matched by Minecraft.
+     *
+     * @param nickname nickname to create key of
+     * @return key of the nickname, null if it is longer than 16 characters
+     * or contains characters other than letters, digits and underscores
+     */
+    public static @Nullable ListKey ofNickname(String nickname) {
+        int length = nickname.length();
+        if (length == 0 || length > MAX_NICKNAME_LENGTH) return null;
+        long high = 0;
+        long low = 0;
+        for (int i = 0; i < length; i++) {
+            int code = encode(nickname.charAt(i));
+            if (code == 0) return null;
+            if (i < 10) {
+                low |= (long) code << (i * 6);
+            } else {
+                high |= (long) code << ((i - 10) * 6);
+            }
+        }
+        return new ListKey(high, low);
+    }
+
+    /**
+     * Checks if this is a key of an IPv4 address.
+     */
+    public boolean isMappedIpv4() {
+        return high == 0 && (low & 0xFFFFFFFF00000000L) == IPV4_MAPPED_PREFIX;
+    }
+
+    private static int encode(char c) {
+        if (c >= '0' && c <= '9') return c - '0' + 1;
+        if (c >= 'A' && c <= 'Z') return c - 'A' + 11;
+        if (c >= 'a' && c <= 'z') return c - 'a' + 11;
+        if (c == '_') return 37;
+        return 0;
+    }
+
+    private static long readLong(byte[] bytes, int offset, int length) {
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            value = value << 8 | (bytes[i] & 0xFF);
+        }
+        return value;
+    }
+
+}
@@ -0,0 +1,151 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.manager.snapshot;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Immutable path-compressed binary trie (Patricia trie) of {@link AddressRange}s.
+ * Finding a range containing an address visits at most one node per bit
+ * of the longest prefix, regardless of the number of ranges.
+ * Adding or removing a range copies only the nodes on its path.
+ */
+public final class RangeTrie {
+
+    public static final RangeTrie EMPTY = new RangeTrie(null, 0);
+
+    private final @Nullable Node root;
+    private final int size;
+
+    private RangeTrie(@Nullable Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Checks if any range contains the address.
+     *
+     * @param key key of the address
+     * @return true if the address is in any of the ranges
+     */
+    public boolean contains(ListKey key) {
+        Node node = root;
+        while (node != null) {
+            if (commonPrefixLength(node.high, node.low, key.high(), key.low()) < node.length) {
+                return false;
+            }
+            if (node.terminal) return true;
+            if (node.length == 128) return false;
+            node = bitAt(key.high(), key.low(), node.length) ? node.one : node.zero;
+        }
+        return false;
+    }
+
+    public boolean containsRange(AddressRange range) {
+        Node node = root;
+        ListKey network = range.network();
+        while (node != null && node.length <= range.prefixLength()) {
+            if (commonPrefixLength(node.high, node.low,
+                    network.high(), network.low()) < node.length) return false;
+            if (node.length == range.prefixLength()) return node.terminal;
+            node = bitAt(network.high(), network.low(), node.length) ? node.one : node.zero;
+        }
+        return false;
+    }
+
+    public RangeTrie with(AddressRange range) {
+        if (containsRange(range)) return this;
+        ListKey network = range.network();
+        return new RangeTrie(insert(root, network.high(), network.low(),
+                range.prefixLength()), size + 1);
+    }
+
+    public RangeTrie without(AddressRange range) {
+        if (!containsRange(range)) return this;
+        ListKey network = range.network();
+        return new RangeTrie(remove(root, network.high(), network.low(),
+                range.prefixLength()), size - 1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static Node insert(@Nullable Node node, long high, long low, int length) {
+        if (node == null) return new Node(high, low, length, true, null, null);
+        int common = Math.min(Math.min(node.length, length),
+                commonPrefixLength(node.high, node.low, high, low));
+        if (common == node.length && common == length) {
+            return new Node(node.high, node.low, node.length, true, node.zero, node.one);
+        }
+        if (common == node.length) {
+            return bitAt(high, low, node.length)
+                    ? new Node(node.high, node.low, node.length, node.terminal,
+                            node.zero, insert(node.one, high, low, length))
+                    : new Node(node.high, node.low, node.length, node.terminal,
+                            insert(node.zero, high, low, length), node.one);
+        }
+        ListKey branch = AddressRange.mask(new ListKey(high, low), common);
+        if (common == length) {
+            // New range contains the node's range
+            return bitAt(node.high, node.low, common)
+                    ? new Node(branch.high(), branch.low(), common, true, null, node)
+                    : new Node(branch.high(), branch.low(), common, true, node, null);
+        }
+        Node leaf = new Node(high, low, length, true, null, null);
+        return bitAt(high, low, common)
+                ? new Node(branch.high(), branch.low(), common, false, node, leaf)
+                : new Node(branch.high(), branch.low(), common, false, leaf, node);
+    }
+
+    private static @Nullable Node remove(@Nullable Node node, long high, long low, int length) {
+        if (node == null || node.length > length) return node;
+        if (node.length == length) {
+            return compact(new Node(node.high, node.low, node.length, false, node.zero, node.one));
+        }
+        return bitAt(high, low, node.length)
+                ? compact(new Node(node.high, node.low, node.length, node.terminal,
+                        node.zero, remove(node.one, high, low, length)))
+                : compact(new Node(node.high, node.low, node.length, node.terminal,
+                        remove(node.zero, high, low, length), node.one));
+    }
+
+    private static @Nullable Node compact(Node node) {
+        if (node.terminal || (node.zero != null && node.one != null)) return node;
+        return node.zero != null ? node.zero : node.one;
+    }
+
+    private static boolean bitAt(long high, long low, int index) {
+        return index < 64
+                ? (high >>> (63 - index) & 1) == 1
+                : (low >>> (127 - index) & 1) == 1;
+    }
+
+    private static int commonPrefixLength(long highA, long lowA, long highB, long lowB) {
+        long difference = highA ^ highB;
+        if (difference != 0) return Long.numberOfLeadingZeros(difference);
+        difference = lowA ^ lowB;
+        if (difference != 0) return 64 + Long.numberOfLeadingZeros(difference);
+        return 128;
+    }
+
+    private record Node(long high, long low, int length, boolean terminal,
+                        @Nullable Node zero, @Nullable Node one) {}
+
+}
@@ -0,0 +1,167 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.manager.snapshot;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Immutable set of {@link ListKey}s kept in two sorted primitive arrays,
+ * looked up with a binary search.
+ */
+public final class SortedKeySet {
+
+    public static final SortedKeySet EMPTY = new SortedKeySet(new long[0], new long[0]);
+
+    private final long[] highs;
+    private final long[] lows;
+
+    private SortedKeySet(long[] highs, long[] lows) {
+        this.highs = highs;
+        this.lows = lows;
+    }
+
+    public boolean contains(ListKey key) {
+        return indexOf(key.high(), key.low()) >= 0;
+    }
+
+    /**
+     * Creates a copy of this set with many keys added or removed in one pass over the set.
+     *
+     * @param changes keys mapped to true to add them or to false to remove them
+     * @return set with the changes applied, this set if there are no changes
+     */
+    public SortedKeySet withChanges(Map<ListKey, Boolean> changes) {
+        if (changes.isEmpty()) return this;
+        ListKey[] keys = changes.keySet().toArray(ListKey[]::new);
+        Arrays.sort(keys, (first, second) ->
+                compare(first.high(), first.low(), second.high(), second.low()));
+        long[] newHighs = new long[highs.length + keys.length];
+        long[] newLows = new long[lows.length + keys.length];
+        int size = 0;
+        int index = 0;
+        for (ListKey key : keys) {
+            while (index < highs.length
+                    && compare(highs[index], lows[index], key.high(), key.low()) < 0) {
+                newHighs[size] = highs[index];
+                newLows[size++] = lows[index++];
+            }
+            if (index < highs.length && highs[index] == key.high() && lows[index] == key.low()) index++;
+            if (changes.get(key)) {
+                newHighs[size] = key.high();
+                newLows[size++] = key.low();
+            }
+        }
+        int remaining = highs.length - index;
+        System.arraycopy(highs, index, newHighs, size, remaining);
+        System.arraycopy(lows, index, newLows, size, remaining);
+        size += remaining;
+        return new SortedKeySet(Arrays.copyOf(newHighs, size), Arrays.copyOf(newLows, size));
+    }
+
+    public int size() {
+        return highs.length;
+    }
+
+    private int indexOf(long high, long low) {
+        int from = 0;
+        int to = highs.length - 1;
+        while (from <= to) {
+            int middle = (from + to) >>> 1;
+            int comparison = compare(highs[middle], lows[middle], high, low);
+            if (comparison < 0) {
+                from = middle + 1;
+            } else if (comparison > 0) {
+                to = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(from + 1);
+    }
+
+    private static int compare(long highA, long lowA, long highB, long lowB) {
+        int comparison = Long.compare(highA, highB);
+        return comparison != 0 ? comparison : Long.compare(lowA, lowB);
+    }
+
+    /**
+     * Collects keys in any order and sorts them once when built.
+     */
+    public static class Builder {
+
+        private long[] highs = new long[1024];
+        private long[] lows = new long[1024];
+        private int size;
+
+        public void add(ListKey key) {
+            if (size == highs.length) {
+                highs = Arrays.copyOf(highs, size * 2);
+                lows = Arrays.copyOf(lows, size * 2);
+            }
+            highs[size] = key.high();
+            lows[size] = key.low();
+            size++;
+        }
+
+        public SortedKeySet build() {
+            if (size == 0) return EMPTY;
+            long[] sortedHighs = Arrays.copyOf(highs, size);
+            long[] sortedLows = Arrays.copyOf(lows, size);
+            long[] bufferHighs = new long[size];
+            long[] bufferLows = new long[size];
+            // Bottom-up merge sort of both arrays at once, swapping source and buffer each pass
+            for (int width = 1; width < size; width *= 2) {
+                for (int from = 0; from < size; from += width * 2) {
+                    int middle = Math.min(from + width, size);
+                    int to = Math.min(from + width * 2, size);
+                    int left = from;
+                    int right = middle;
+                    for (int i = from; i < to; i++) {
+                        if (left < middle && (right >= to || compare(sortedHighs[left],
+                                sortedLows[left], sortedHighs[right], sortedLows[right]) <= 0)) {
+                            bufferHighs[i] = sortedHighs[left];
+                            bufferLows[i] = sortedLows[left++];
+                        } else {
+                            bufferHighs[i] = sortedHighs[right];
+                            bufferLows[i] = sortedLows[right++];
+                        }
+                    }
+                }
+                long[] swap = sortedHighs;
+                sortedHighs = bufferHighs;
+                bufferHighs = swap;
+                swap = sortedLows;
+                sortedLows = bufferLows;
+                bufferLows = swap;
+            }
+            int distinct = 0;
+            for (int i = 0; i < size; i++) {
+                if (distinct > 0 && sortedHighs[distinct - 1] == sortedHighs[i]
+                        && sortedLows[distinct - 1] == sortedLows[i]) continue;
+                sortedHighs[distinct] = sortedHighs[i];
+                sortedLows[distinct++] = sortedLows[i];
+            }
+            return new SortedKeySet(Arrays.copyOf(sortedHighs, distinct),
+                    Arrays.copyOf(sortedLows, distinct));
+        }
+
+    }
+
+}
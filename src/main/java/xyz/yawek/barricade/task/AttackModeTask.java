@@ -20,17 +20,17 @@ package xyz.yawek.barricade.task;
 
 import xyz.yawek.barricade.Barricade;
 
-public class RateLimitResetTask implements Runnable {
+public class AttackModeTask implements Runnable {
 
     private final Barricade barricade;
 
-    public RateLimitResetTask(Barricade barricade) {
+    public AttackModeTask(Barricade barricade) {
         this.barricade = barricade;
     }
 
     @Override
     public void run() {
-        barricade.getRateLimitManager().resetCounter();
+        barricade.getAttackModeManager().evaluate();
     }
 
 }
@@ -44,9 +44,24 @@ public class TaskLoader {
                 .repeat(Duration.ofSeconds(config.geoipReloadPeriod()))
                 .delay(Duration.ofSeconds(config.geoipReloadPeriod()))
                 .schedule());
-        tasks.add(scheduler.buildTask(barricade, new RateLimitResetTask(barricade))
+        tasks.add(scheduler.buildTask(barricade, new DataFlushTask(barricade))
+                .repeat(Duration.ofMillis(config.writeFlushPeriod()))
+                .schedule());
+        tasks.add(scheduler.buildTask(barricade, new ListSnapshotTask(barricade))
+                .repeat(Duration.ofSeconds(config.listSnapshotReconcilePeriod()))
+                .schedule());
+        tasks.add(scheduler.buildTask(barricade, new AttackModeTask(barricade))
                 .repeat(Duration.ofSeconds(1))
                 .schedule());
+        tasks.add(scheduler.buildTask(barricade, new ClusterSyncTask(barricade))
+                .repeat(Duration.ofMillis(Math.max(50, config.clusterSyncInterval())))
+                .schedule());
+        tasks.add(scheduler.buildTask(barricade, new RetentionTask(barricade))
+                .repeat(Duration.ofMinutes(Math.max(1, config.retentionInterval())))
+                .delay(Duration.ofMinutes(1))
+                .schedule());
+        tasks.add(scheduler.buildTask(barricade, new SeenPlayersLoadTask(barricade))
+                .schedule());
         config.serverQueues().forEach(serverName -> tasks.add(scheduler.buildTask(
                 barricade, new ServerQueueTask(barricade, serverName))
                 .repeat(Duration.ofMillis(config.serverQueuePeriod(serverName).orElse(1000)))
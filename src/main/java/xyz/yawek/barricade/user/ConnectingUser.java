@@ -18,6 +18,10 @@
 
 package xyz.yawek.barricade.user;
 
+import xyz.yawek.barricade.data.geo.GeoData;
+import xyz.yawek.barricade.data.geo.GeoDataProvider;
+import xyz.yawek.barricade.manager.snapshot.ListKey;
+
 import java.net.InetAddress;
 
 public class ConnectingUser {
@@ -26,6 +30,8 @@ public class ConnectingUser {
     private final InetAddress inetAddress;
     private final boolean whitelisted;
     private final boolean blacklisted;
+    private volatile GeoData geoData;
+    private volatile ListKey addressKey;
 
     public ConnectingUser(String nickname, InetAddress inetAddress,
                           boolean isWhitelisted, boolean blacklisted) {
@@ -47,6 +53,15 @@ public class ConnectingUser {
         return inetAddress;
     }
 
+    public ListKey getAddressKey() {
+        ListKey key = addressKey;
+        if (key == null) {
+            key = ListKey.ofAddress(inetAddress);
+            addressKey = key;
+        }
+        return key;
+    }
+
     public boolean isWhitelisted() {
         return whitelisted;
     }
@@ -55,4 +70,19 @@ public class ConnectingUser {
         return blacklisted;
     }
 
+    /**
+     * Gets country and ASN of the user's address, resolving them on the first call only.
+     *
+     * @param geoDataProvider provider used to resolve the address
+     * @return country and ASN of the address
+     */
+    public GeoData getGeoData(GeoDataProvider geoDataProvider) {
+        GeoData data = geoData;
+        if (data == null) {
+            data = geoDataProvider.lookup(inetAddress);
+            geoData = data;
+        }
+        return data;
+    }
+
 }
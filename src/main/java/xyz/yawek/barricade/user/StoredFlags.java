@@ -0,0 +1,55 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.user;
+
+/**
+ * Represents whitelist and blacklist flags of stored address or nickname.
+ */
+public class StoredFlags {
+
+    public static final StoredFlags NONE = new StoredFlags(false, false);
+    private static final StoredFlags WHITELISTED = new StoredFlags(true, false);
+    private static final StoredFlags BLACKLISTED = new StoredFlags(false, true);
+    private static final StoredFlags BOTH = new StoredFlags(true, true);
+
+    private final boolean whitelisted;
+    private final boolean blacklisted;
+
+    public StoredFlags(boolean whitelisted, boolean blacklisted) {
+        this.whitelisted = whitelisted;
+        this.blacklisted = blacklisted;
+    }
+
+    /**
+     * Gets shared flags instance without allocating a new one.
+     */
+    public static StoredFlags of(boolean whitelisted, boolean blacklisted) {
+        if (whitelisted) return blacklisted ? BOTH : WHITELISTED;
+        return blacklisted ? BLACKLISTED : NONE;
+    }
+
+    public boolean isWhitelisted() {
+        return whitelisted;
+    }
+
+    public boolean isBlacklisted() {
+        return blacklisted;
+    }
+
+}
@@ -37,6 +37,10 @@ public class LogUtils {
         LOGGER.warn(text);
     }
 
+    public static void warn(String text, String... arguments) {
+        LOGGER.warn(text, (Object[]) arguments);
+    }
+
     public static void infoDataAccess(String text) {
         LOGGER.info("[Data] " + text);
     }
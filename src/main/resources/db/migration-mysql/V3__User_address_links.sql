@@ -0,0 +1,6 @@
+CREATE TABLE IF NOT EXISTS user_address (
+  nickname VARCHAR(50) NOT NULL,
+  address VARCHAR(50) NOT NULL,
+  PRIMARY KEY (nickname, address),
+  INDEX user_address_address (address)
+);
\ No newline at end of file
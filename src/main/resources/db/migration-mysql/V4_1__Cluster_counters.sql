@@ -0,0 +1,11 @@
+CREATE TABLE IF NOT EXISTS cluster_nodes (
+  node_id CHAR(36) NOT NULL PRIMARY KEY,
+  seen_at BIGINT NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS cluster_counters (
+  node_id CHAR(36) NOT NULL,
+  counter_key VARCHAR(100) NOT NULL,
+  value BIGINT NOT NULL,
+  PRIMARY KEY (node_id, counter_key)
+);
\ No newline at end of file
@@ -0,0 +1,3 @@
+CREATE TABLE IF NOT EXISTS blacklisted_ranges (
+  cidr VARCHAR(50) NOT NULL PRIMARY KEY
+);
\ No newline at end of file
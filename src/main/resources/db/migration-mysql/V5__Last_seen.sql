@@ -0,0 +1,10 @@
+ALTER TABLE users ADD COLUMN last_seen BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE addresses ADD COLUMN last_seen BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE user_address ADD COLUMN last_seen BIGINT NOT NULL DEFAULT 0;
+
+UPDATE users SET last_seen = UNIX_TIMESTAMP() * 1000;
+UPDATE addresses SET last_seen = UNIX_TIMESTAMP() * 1000;
+UPDATE user_address SET last_seen = UNIX_TIMESTAMP() * 1000;
+
+CREATE INDEX users_last_seen ON users (last_seen);
+CREATE INDEX addresses_last_seen ON addresses (last_seen);
\ No newline at end of file
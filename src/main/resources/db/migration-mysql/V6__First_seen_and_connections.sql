@@ -0,0 +1,18 @@
+ALTER TABLE users
+  ADD COLUMN first_seen BIGINT NOT NULL DEFAULT 0,
+  ADD COLUMN connection_count BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE addresses
+  ADD COLUMN first_seen BIGINT NOT NULL DEFAULT 0,
+  ADD COLUMN connection_count BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE user_address
+  ADD COLUMN first_seen BIGINT NOT NULL DEFAULT 0,
+  ADD COLUMN connection_count BIGINT NOT NULL DEFAULT 0;
+
+UPDATE users SET first_seen = last_seen;
+UPDATE addresses SET first_seen = last_seen;
+UPDATE user_address SET first_seen = last_seen;
+
+CREATE INDEX users_first_seen ON users (first_seen);
+CREATE INDEX addresses_first_seen ON addresses (first_seen);
+CREATE INDEX user_address_address_first_seen ON user_address (address, first_seen);
+DROP INDEX user_address_address ON user_address;
\ No newline at end of file
@@ -0,0 +1,7 @@
+CREATE TABLE IF NOT EXISTS user_address (
+  nickname TEXT NOT NULL,
+  address TEXT NOT NULL,
+  PRIMARY KEY (nickname, address)
+) WITHOUT ROWID;
+
+CREATE INDEX IF NOT EXISTS user_address_address ON user_address (address);
\ No newline at end of file
@@ -0,0 +1,3 @@
+CREATE TABLE IF NOT EXISTS blacklisted_ranges (
+  cidr TEXT NOT NULL PRIMARY KEY
+) WITHOUT ROWID;
\ No newline at end of file
@@ -0,0 +1,10 @@
+ALTER TABLE users ADD COLUMN last_seen INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE addresses ADD COLUMN last_seen INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE user_address ADD COLUMN last_seen INTEGER NOT NULL DEFAULT 0;
+
+UPDATE users SET last_seen = CAST(strftime('%s', 'now') AS INTEGER) * 1000;
+UPDATE addresses SET last_seen = CAST(strftime('%s', 'now') AS INTEGER) * 1000;
+UPDATE user_address SET last_seen = CAST(strftime('%s', 'now') AS INTEGER) * 1000;
+
+CREATE INDEX IF NOT EXISTS users_last_seen ON users (last_seen);
+CREATE INDEX IF NOT EXISTS addresses_last_seen ON addresses (last_seen);
\ No newline at end of file
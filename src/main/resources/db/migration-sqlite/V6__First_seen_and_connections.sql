@@ -0,0 +1,15 @@
+ALTER TABLE users ADD COLUMN first_seen INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE users ADD COLUMN connection_count INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE addresses ADD COLUMN first_seen INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE addresses ADD COLUMN connection_count INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE user_address ADD COLUMN first_seen INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE user_address ADD COLUMN connection_count INTEGER NOT NULL DEFAULT 0;
+
+UPDATE users SET first_seen = last_seen;
+UPDATE addresses SET first_seen = last_seen;
+UPDATE user_address SET first_seen = last_seen;
+
+CREATE INDEX IF NOT EXISTS users_first_seen ON users (first_seen);
+CREATE INDEX IF NOT EXISTS addresses_first_seen ON addresses (first_seen);
+CREATE INDEX IF NOT EXISTS user_address_address_first_seen ON user_address (address, first_seen);
+DROP INDEX IF EXISTS user_address_address;
\ No newline at end of file
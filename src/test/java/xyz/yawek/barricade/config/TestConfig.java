@@ -26,6 +26,8 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -44,21 +46,27 @@ class TestConfig extends AbstractTest {
     @Test
     void testConfigCorrectness() {
         for (Method method : config.getClass().getDeclaredMethods()) {
-            Object[][] params = new Object[5][];
-            params[0] = new Object[]{};
-            params[1] = new Object[]{"a"};
-            params[2] = new Object[]{1, "a"};
-            params[4] = new Object[]{"a", true, true,
-                    new HashSet<>(Arrays.asList("a", "b"))};
+            Object[] params = Arrays.stream(method.getParameterTypes())
+                    .map(this::sampleArgument)
+                    .toArray();
             assertDoesNotThrow(() -> {
                 try {
                     LOGGER.info(method.getName());
-                    assertNotNull(method.invoke(config,
-                            params[method.getParameterCount()]));
+                    assertNotNull(method.invoke(config, params));
                 } catch (IllegalAccessException
                         | InvocationTargetException ignored) {}
             });
         }
     }
 
+    private Object sampleArgument(Class<?> type) {
+        if (type == int.class) return 1;
+        if (type == long.class) return 1L;
+        if (type == double.class) return 1D;
+        if (type == boolean.class) return true;
+        if (Set.class.isAssignableFrom(type)) return new HashSet<>(Arrays.asList("a", "b"));
+        if (List.class.isAssignableFrom(type)) return Arrays.asList("a", "b");
+        return "a";
+    }
+
 }
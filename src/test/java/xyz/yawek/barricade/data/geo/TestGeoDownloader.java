@@ -0,0 +1,183 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.data.geo;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TestGeoDownloader {
+
+    private static final long LAST_MODIFIED = 1_700_000_000_000L;
+    private static final byte[] DATABASE = "database contents".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path directory;
+
+    private final GeoDownloader downloader = new GeoDownloader();
+    private final AtomicInteger archiveRequests = new AtomicInteger();
+    private HttpServer server;
+    private byte[] archive;
+    private String checksum;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        archive = archive("GeoLite2-Country_20231114/GeoLite2-Country.mmdb", DATABASE);
+        checksum = sha256(archive);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/GeoLite2-Country.tar.gz", exchange -> {
+            archiveRequests.incrementAndGet();
+            exchange.getResponseHeaders().set("Last-Modified", httpDate(LAST_MODIFIED));
+            String modifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+            if (modifiedSince != null && ZonedDateTime.parse(modifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME)
+                    .toInstant().toEpochMilli() >= LAST_MODIFIED) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            respond(exchange, archive);
+        });
+        server.createContext("/GeoLite2-Country.tar.gz.sha256", exchange ->
+                respond(exchange, (checksum + "  GeoLite2-Country_20231114.tar.gz\n")
+                        .getBytes(StandardCharsets.US_ASCII)));
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void testDatabaseIsExtractedAndVerified() throws IOException {
+        File target = directory.resolve("GeoLite2-Country.mmdb").toFile();
+
+        File download = downloader.download(url(), target);
+
+        assertNotNull(download);
+        assertArrayEquals(DATABASE, Files.readAllBytes(download.toPath()));
+        assertFalse(target.exists());
+        try (var files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void testMismatchedChecksumIsRejected() throws IOException {
+        File target = directory.resolve("GeoLite2-Country.mmdb").toFile();
+        Files.write(target.toPath(), "old".getBytes(StandardCharsets.UTF_8));
+        target.setLastModified(LAST_MODIFIED - 60_000);
+        checksum = sha256("other".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(IOException.class, () -> downloader.download(url(), target));
+        assertArrayEquals("old".getBytes(StandardCharsets.UTF_8), Files.readAllBytes(target.toPath()));
+        try (var files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void testUnmodifiedDatabaseIsSkipped() throws IOException {
+        File target = directory.resolve("GeoLite2-Country.mmdb").toFile();
+        Files.write(target.toPath(), DATABASE);
+        target.setLastModified(LAST_MODIFIED);
+
+        assertNull(downloader.download(url(), target));
+        assertEquals(1, archiveRequests.get());
+
+        target.setLastModified(LAST_MODIFIED - 60_000);
+        assertNotNull(downloader.download(url(), target));
+        assertEquals(2, archiveRequests.get());
+    }
+
+    private String url() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort()
+                + "/GeoLite2-Country.tar.gz";
+    }
+
+    private static void respond(HttpExchange exchange, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(body);
+        }
+    }
+
+    private static byte[] archive(String name, byte[] content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (TarArchiveOutputStream tarStream = new TarArchiveOutputStream(new GZIPOutputStream(bytes))) {
+            TarArchiveEntry license = new TarArchiveEntry(name.substring(0, name.indexOf('/')) + "/LICENSE.txt");
+            byte[] licenseContent = "license".getBytes(StandardCharsets.UTF_8);
+            license.setSize(licenseContent.length);
+            tarStream.putArchiveEntry(license);
+            tarStream.write(licenseContent);
+            tarStream.closeArchiveEntry();
+            TarArchiveEntry entry = new TarArchiveEntry(name);
+            entry.setSize(content.length);
+            tarStream.putArchiveEntry(entry);
+            tarStream.write(content);
+            tarStream.closeArchiveEntry();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String httpDate(long time) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(
+                ZonedDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneOffset.UTC));
+    }
+
+}
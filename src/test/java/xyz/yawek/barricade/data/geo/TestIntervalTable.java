@@ -0,0 +1,79 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.data.geo;
+
+import org.junit.jupiter.api.Test;
+import xyz.yawek.barricade.manager.snapshot.ListKey;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestIntervalTable {
+
+    @Test
+    void testContainsAddressesOfNetworks() {
+        IntervalTable table = new IntervalTable.Builder()
+                .add(key("1.2.3.77"), 96 + 24)
+                .add(key("2001:db8::"), 32)
+                .build();
+
+        assertTrue(table.contains(key("1.2.3.0")));
+        assertTrue(table.contains(key("1.2.3.255")));
+        assertFalse(table.contains(key("1.2.2.255")));
+        assertFalse(table.contains(key("1.2.4.0")));
+        assertTrue(table.contains(key("2001:db8:ffff:ffff:ffff:ffff:ffff:ffff")));
+        assertFalse(table.contains(key("2001:db9::")));
+        // IPv4 networks do not cover IPv6 addresses with the same bits
+        assertFalse(table.contains(key("::102:300")));
+    }
+
+    @Test
+    void testMergesOverlappingAndAdjacentNetworks() {
+        IntervalTable table = new IntervalTable.Builder()
+                .add(key("10.0.1.0"), 96 + 24)
+                .add(key("10.0.0.0"), 96 + 24)
+                .add(key("10.0.0.128"), 96 + 25)
+                .add(key("10.0.3.0"), 96 + 24)
+                .build();
+
+        assertEquals(2, table.size());
+        assertTrue(table.contains(key("10.0.1.255")));
+        assertFalse(table.contains(key("10.0.2.0")));
+        assertTrue(table.contains(key("10.0.3.0")));
+    }
+
+    @Test
+    void testHandlesWholeAddressSpace() {
+        IntervalTable table = new IntervalTable.Builder()
+                .add(key("8000::"), 1)
+                .add(key("::"), 1)
+                .build();
+
+        assertEquals(1, table.size());
+        assertTrue(table.contains(key("::")));
+        assertTrue(table.contains(key("ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff")));
+        assertFalse(new IntervalTable.Builder().build().contains(key("::")));
+    }
+
+    private static ListKey key(String address) {
+        return ListKey.ofAddress(address);
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.data.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestLogStore {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testValuesAreReplayedAfterReopening() throws IOException {
+        try (LogStore store = new LogStore(directory, 4096, 50)) {
+            store.put("user:first", bytes("1"));
+            store.put("user:second", bytes("2"));
+            store.put("user:first", bytes("3"));
+            store.put("address:first", bytes("4"));
+            store.delete("user:second");
+
+            assertArrayEquals(bytes("3"), store.get("user:first"));
+            assertNull(store.get("user:second"));
+        }
+        try (LogStore store = new LogStore(directory, 4096, 50)) {
+            assertArrayEquals(bytes("3"), store.get("user:first"));
+            assertNull(store.get("user:second"));
+            assertArrayEquals(bytes("4"), store.get("address:first"));
+
+            Map<String, String> users = new HashMap<>();
+            store.forEach("user:", (key, value) -> users.put(key, new String(value, StandardCharsets.UTF_8)));
+            assertEquals(Map.of("user:first", "3"), users);
+        }
+    }
+
+    @Test
+    void testCompactionKeepsLatestValues() throws IOException {
+        try (LogStore store = new LogStore(directory, 4096, 50)) {
+            for (int round = 0; round < 100; round++) {
+                for (int key = 0; key < 20; key++) {
+                    store.put("key:" + key, bytes(round + ":" + key));
+                }
+            }
+            store.delete("key:0");
+        }
+        // 100 rounds of overwrites take about 40 segments, live values fit into a few of them
+        try (Stream<Path> files = Files.list(directory)) {
+            assertTrue(files.count() < 10);
+        }
+        try (LogStore store = new LogStore(directory, 4096, 50)) {
+            assertNull(store.get("key:0"));
+            for (int key = 1; key < 20; key++) {
+                assertArrayEquals(bytes("99:" + key), store.get("key:" + key));
+            }
+        }
+    }
+
+    @Test
+    void testForEachReadsOnlyPrefixedKeys() throws IOException {
+        try (LogStore store = new LogStore(directory, 4096, 50)) {
+            store.put("user:range", bytes("1"));
+            store.put("range:127.0.0.0/8", new byte[0]);
+            store.update("range:127.0.0.0/8", value -> new byte[0]);
+            store.delete("range:10.0.0.0/8");
+        }
+        try (LogStore store = new LogStore(directory, 4096, 50)) {
+            Map<String, byte[]> ranges = new HashMap<>();
+            store.forEach("range:", ranges::put);
+            assertEquals(1, ranges.size());
+            assertArrayEquals(new byte[0], ranges.get("range:127.0.0.0/8"));
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+}
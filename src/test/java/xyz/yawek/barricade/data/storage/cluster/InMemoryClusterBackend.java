@@ -0,0 +1,81 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.data.storage.cluster;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Cluster backend keeping the counters in memory, shared by nodes running in one process.
+ */
+public class InMemoryClusterBackend implements ClusterBackend {
+
+    private final Map<String, Map<String, Long>> counters = new HashMap<>();
+    private final Map<String, Long> seenAt = new HashMap<>();
+    private final long nodeTimeoutMillis;
+    private final LongSupplier clock;
+
+    public InMemoryClusterBackend(long nodeTimeoutMillis) {
+        this(nodeTimeoutMillis, System::currentTimeMillis);
+    }
+
+    /**
+     * @param nodeTimeoutMillis time after which counters of a node which has not synchronized are removed
+     * @param clock supplier of the current time in milliseconds
+     */
+    public InMemoryClusterBackend(long nodeTimeoutMillis, LongSupplier clock) {
+        this.nodeTimeoutMillis = nodeTimeoutMillis;
+        this.clock = clock;
+    }
+
+    @Override
+    public synchronized Map<String, Long> synchronize(String nodeId, Map<String, Long> counters) {
+        long now = clock.getAsLong();
+        seenAt.put(nodeId, now);
+        seenAt.entrySet().removeIf(node -> {
+            boolean expired = now - node.getValue() > nodeTimeoutMillis;
+            if (expired) this.counters.remove(node.getKey());
+            return expired;
+        });
+
+        Map<String, Long> own = this.counters.computeIfAbsent(nodeId, key -> new HashMap<>());
+        counters.forEach((key, value) -> {
+            if (value == 0) {
+                own.remove(key);
+            } else {
+                own.put(key, value);
+            }
+        });
+
+        Map<String, Long> sums = new HashMap<>();
+        this.counters.forEach((node, nodeCounters) -> {
+            if (!node.equals(nodeId)) nodeCounters.forEach((key, value) -> sums.merge(key, value, Long::sum));
+        });
+        sums.values().removeIf(value -> value == 0);
+        return sums;
+    }
+
+    @Override
+    public synchronized void leave(String nodeId) {
+        counters.remove(nodeId);
+        seenAt.remove(nodeId);
+    }
+
+}
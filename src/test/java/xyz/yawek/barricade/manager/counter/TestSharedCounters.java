@@ -0,0 +1,130 @@
+/*
+ * This file is part of Barricade, licensed under GNU GPLv3 license.
+ * Copyright (C) 2022 yawek9
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.yawek.barricade.manager.counter;
+
+import org.junit.jupiter.api.Test;
+import xyz.yawek.barricade.data.storage.cluster.ClusterBackend;
+import xyz.yawek.barricade.data.storage.cluster.InMemoryClusterBackend;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestSharedCounters {
+
+    @Test
+    void testCountersOfOtherNodesAreSummed() {
+        InMemoryClusterBackend backend = new InMemoryClusterBackend(10000);
+        SharedCounters first = new SharedCounters(backend, "first");
+        SharedCounters second = new SharedCounters(backend, "second");
+        SharedCounters third = new SharedCounters(backend, "third");
+
+        first.set("connections", 3);
+        second.set("connections", 4);
+        first.synchronize();
+        second.synchronize();
+        third.synchronize();
+        first.synchronize();
+
+        assertEquals(4, first.getRemote("connections"));
+        assertEquals(3, second.getRemote("connections"));
+        assertEquals(7, third.getRemote("connections"));
+        assertEquals(0, third.getRemote("accounts:127.0.0.1"));
+    }
+
+    @Test
+    void testValuesAreReadOnlyAfterSynchronization() {
+        InMemoryClusterBackend backend = new InMemoryClusterBackend(10000);
+        SharedCounters first = new SharedCounters(backend, "first");
+        SharedCounters second = new SharedCounters(backend, "second");
+
+        first.set("accounts:127.0.0.1", 2);
+        second.synchronize();
+        assertEquals(0, second.getRemote("accounts:127.0.0.1"));
+
+        first.synchronize();
+        assertEquals(0, second.getRemote("accounts:127.0.0.1"));
+        second.synchronize();
+        assertEquals(2, second.getRemote("accounts:127.0.0.1"));
+
+        first.set("accounts:127.0.0.1", 0);
+        first.synchronize();
+        second.synchronize();
+        assertEquals(0, second.getRemote("accounts:127.0.0.1"));
+        assertEquals(0, second.getRemoteSize());
+    }
+
+    @Test
+    void testExpiredAndLeftNodesAreIgnored() {
+        AtomicLong time = new AtomicLong();
+        InMemoryClusterBackend backend = new InMemoryClusterBackend(1000, time::get);
+        SharedCounters first = new SharedCounters(backend, "first");
+        SharedCounters second = new SharedCounters(backend, "second");
+        SharedCounters third = new SharedCounters(backend, "third");
+
+        first.set("connections", 5);
+        third.set("connections", 6);
+        first.synchronize();
+        third.synchronize();
+        second.synchronize();
+        assertEquals(11, second.getRemote("connections"));
+
+        third.leave();
+        second.synchronize();
+        assertEquals(5, second.getRemote("connections"));
+
+        time.set(1500);
+        second.synchronize();
+        assertEquals(0, second.getRemote("connections"));
+    }
+
+    @Test
+    void testFailedSynchronizationKeepsValues() {
+        InMemoryClusterBackend backend = new InMemoryClusterBackend(10000);
+        AtomicBoolean failing = new AtomicBoolean(true);
+        ClusterBackend unreliable = new ClusterBackend() {
+            @Override
+            public Map<String, Long> synchronize(String nodeId, Map<String, Long> counters) {
+                return failing.get() ? null : backend.synchronize(nodeId, counters);
+            }
+
+            @Override
+            public void leave(String nodeId) {
+                backend.leave(nodeId);
+            }
+        };
+        SharedCounters first = new SharedCounters(unreliable, "first");
+        SharedCounters second = new SharedCounters(backend, "second");
+
+        first.set("connections", 8);
+        assertFalse(first.synchronize());
+        second.synchronize();
+        assertEquals(0, second.getRemote("connections"));
+
+        failing.set(false);
+        assertTrue(first.synchronize());
+        second.synchronize();
+        assertEquals(8, second.getRemote("connections"));
+    }
+
+}